@@ -1,3 +1,8 @@
+import groovy.json.JsonSlurper
+import java.awt.RenderingHints
+import java.awt.image.BufferedImage
+import javax.imageio.ImageIO
+
 plugins {
     id("com.android.application")
 
@@ -30,7 +35,13 @@ android {
     }
 
     buildTypes {
+        debug {
+            // Local stand-in server on the emulator's host, reached over plain HTTP
+            resValue("string", "sticker_pack_origin", "http://10.0.2.2:8080")
+        }
         release {
+            // Origin serving packs.json and the downloadable sticker packs
+            resValue("string", "sticker_pack_origin", "https://cs5520-lab6.web.app")
             isMinifyEnabled = false
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
@@ -38,12 +49,30 @@ android {
             )
         }
     }
+    testOptions {
+        // Lets JVM tests load classes that log or read the clock through android.jar stubs
+        unitTests.isReturnDefaultValues = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
     }
 }
 
+// Packs the sticker drawables into atlas pages that the app renders stickers from
+val packStickerAtlas = tasks.register<PackStickerAtlas>("packStickerAtlas") {
+    manifest.set(layout.projectDirectory.file("src/main/assets/stickers.json"))
+    drawableDir.set(layout.projectDirectory.dir("src/main/res/drawable"))
+    cellSize.set(160)
+    pageSize.set(1024)
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.assets?.addGeneratedSourceDirectory(packStickerAtlas, PackStickerAtlas::outputDir)
+    }
+}
+
 dependencies {
 
     implementation("androidx.appcompat:appcompat:1.6.1")
@@ -66,4 +95,116 @@ dependencies {
 
     // Add the dependencies for any other desired Firebase products
     // https://firebase.google.com/docs/android/setup#available-libraries
-}
\ No newline at end of file
+}
+
+/**
+ * Packs the drawables of the stickers listed in assets/stickers.json, and the default sticker,
+ * into atlas pages under atlas/ in the generated assets, along with an index giving the page and
+ * pixel region of each sticker:
+ *
+ *     { "pages": [ "atlas/stickers_0.png" ],
+ *       "regions": { "sticker1": { "page": 0, "x": 0, "y": 0, "width": 160, "height": 160 } } }
+ *
+ * Each sticker is scaled down to fit a square cell of cellSize pixels, and cells are laid out in
+ * rows on pages of at most pageSize pixels, with a transparent gap so that filtering at the edge
+ * of a region never samples its neighbour. The last page is cropped to the cells it uses.
+ */
+abstract class PackStickerAtlas : DefaultTask() {
+    @get:InputFile
+    abstract val manifest: RegularFileProperty
+
+    @get:InputDirectory
+    abstract val drawableDir: DirectoryProperty
+
+    @get:Input
+    abstract val cellSize: Property<Int>
+
+    @get:Input
+    abstract val pageSize: Property<Int>
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @TaskAction
+    fun pack() {
+        val names = (readDrawableNames() + "default_sticker").distinct()
+        val cell = cellSize.get()
+        val stride = cell + GAP
+        val perRow = pageSize.get() / stride
+        if (perRow == 0) throw GradleException("An atlas page of ${pageSize.get()} px cannot hold a $cell px sticker")
+        val perPage = perRow * perRow
+
+        val atlasDir = outputDir.get().asFile.resolve("atlas")
+        atlasDir.deleteRecursively()
+        atlasDir.mkdirs()
+
+        val pages = mutableListOf<String>()
+        val regions = mutableListOf<String>()
+        for (first in names.indices step perPage) {
+            val onPage = names.subList(first, minOf(first + perPage, names.size))
+            val rows = (onPage.size + perRow - 1) / perRow
+            val columns = if (rows > 1) perRow else onPage.size
+            val page = BufferedImage(columns * stride, rows * stride, BufferedImage.TYPE_INT_ARGB)
+            val graphics = page.createGraphics()
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC)
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY)
+            onPage.forEachIndexed { slot, name ->
+                val sticker = scaleToFit(readDrawable(name), cell)
+                val x = slot % perRow * stride
+                val y = slot / perRow * stride
+                graphics.drawImage(sticker, x, y, null)
+                regions += "\"$name\":{\"page\":${pages.size},\"x\":$x,\"y\":$y,\"width\":${sticker.width},\"height\":${sticker.height}}"
+            }
+            graphics.dispose()
+            val pageName = "atlas/stickers_${pages.size}.png"
+            ImageIO.write(page, "png", outputDir.get().asFile.resolve(pageName))
+            pages += "\"$pageName\""
+        }
+        atlasDir.resolve("index.json").writeText(
+            "{\"pages\":[${pages.joinToString(",")}],\"regions\":{${regions.joinToString(",")}}}")
+        logger.info("Packed ${names.size} stickers into ${pages.size} atlas pages")
+    }
+
+    /**
+     * Returns the drawable names listed in the sticker manifest, in manifest order.
+     */
+    private fun readDrawableNames(): List<String> {
+        val root = JsonSlurper().parse(manifest.get().asFile) as? Map<*, *> ?: return emptyList()
+        val stickers = root["stickers"] as? List<*> ?: return emptyList()
+        return stickers.mapNotNull { (it as? Map<*, *>)?.get("drawable") as? String }
+    }
+
+    /**
+     * Reads a sticker drawable.
+     */
+    private fun readDrawable(name: String): BufferedImage {
+        val file = drawableDir.get().asFile.resolve("$name.png")
+        return ImageIO.read(file) ?: throw GradleException("Cannot read sticker drawable $file")
+    }
+
+    /**
+     * Scales an image down to fit a square, halving it step by step first so that the final
+     * bicubic pass samples every source pixel.
+     */
+    private fun scaleToFit(image: BufferedImage, size: Int): BufferedImage {
+        var scaled = image
+        val scale = minOf(1.0, size.toDouble() / maxOf(image.width, image.height))
+        val width = maxOf(1, Math.round(image.width * scale).toInt())
+        val height = maxOf(1, Math.round(image.height * scale).toInt())
+        while (scaled.width != width || scaled.height != height) {
+            val stepWidth = maxOf(width, scaled.width / 2)
+            val stepHeight = maxOf(height, scaled.height / 2)
+            val step = BufferedImage(stepWidth, stepHeight, BufferedImage.TYPE_INT_ARGB)
+            val graphics = step.createGraphics()
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC)
+            graphics.drawImage(scaled, 0, 0, stepWidth, stepHeight, null)
+            graphics.dispose()
+            scaled = step
+        }
+        return scaled
+    }
+
+    private companion object {
+        const val GAP = 2
+    }
+}
@@ -0,0 +1,50 @@
+package edu.northeastern.cs5520_lab6;
+
+import android.app.Application;
+
+import edu.northeastern.cs5520_lab6.api.LocalStore;
+import edu.northeastern.cs5520_lab6.api.MessageOutbox;
+import edu.northeastern.cs5520_lab6.stickers.StickerAtlas;
+import edu.northeastern.cs5520_lab6.stickers.StickerCatalog;
+import edu.northeastern.cs5520_lab6.stickers.StickerImageLoader;
+import edu.northeastern.cs5520_lab6.stickers.StickerPackStore;
+
+/**
+ * The MessengerApplication class sets up process-wide state before any activity is created.
+ * It initialises the on-device {@link LocalStore} that the chat, contact and sticker screens
+ * render from while their data is being fetched from Firebase, and restores the outbox so that
+ * messages queued before the process died are sent without waiting for a chat to be opened.
+ * It also loads the {@link StickerCatalog}, which every sticker row is bound from, the
+ * {@link StickerAtlas} index and the downloaded packs of the {@link StickerPackStore}, and passes
+ * memory pressure on to the {@link StickerImageLoader} cache.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class MessengerApplication extends Application {
+
+    /**
+     * Initialises the local store, the outbox, the sticker catalog, the sticker atlas and the
+     * sticker pack store when the application process starts.
+     */
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        LocalStore.init(this);
+        MessageOutbox.getInstance();
+        StickerCatalog.init(this);
+        StickerAtlas.init(this);
+        StickerPackStore.init(this);
+    }
+
+    /**
+     * Releases cached sticker bitmaps when the system runs low on memory.
+     *
+     * @param level The trim level reported by the system.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        StickerImageLoader.getInstance().onTrimMemory(level);
+    }
+}
@@ -10,9 +10,11 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
 
 import edu.northeastern.cs5520_lab6.contacts.User;
 import edu.northeastern.cs5520_lab6.api.FirebaseApi;
+import edu.northeastern.cs5520_lab6.api.UsernameClaim;
 
 /**
  * The SignUpActivity class manages the user sign-up process, allowing new users to register in the application.
@@ -101,6 +103,11 @@ public class SignUpActivity extends AppCompatActivity {
      * It validates the input fields, creates a new user account with the provided email and password, and stores additional
      * details such as full name, username, and welcome message.
      *
+     * Usernames are unique. A taken name is reported before the account is created, and no account is created while the
+     * name cannot be checked. If another sign-up claims the same name in the meantime, the claim in
+     * {@link FirebaseApi#addUserToDatabase} fails and the new account is deleted again so the user can retry with a
+     * different name. The account is also deleted if the profile cannot be written.
+     *
      * @param email     User's email address.
      * @param password  User's chosen password.
      * @param fullName  User's full name.
@@ -109,20 +116,68 @@ public class SignUpActivity extends AppCompatActivity {
      */
     private void performUserRegistration(String email, String password, String fullName, String username, String welcome) {
         // Validation and Firebase Authentication logic for creating a new user account.
-        if (!email.isEmpty() && !password.isEmpty()) {
-            auth.createUserWithEmailAndPassword(email, password).addOnCompleteListener(task -> {
-                if (task.isSuccessful()) {
-                    String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-                    User newUser = new User(userId, fullName, username, email, welcome, "");
-                    FirebaseApi.addUserToDatabase(this, newUser);
+        if (email.isEmpty()) {
+            this.email.setError("Please enter an email here");
+        } else if (password.isEmpty()) {
+            this.password.setError("Please enter a password here");
+        } else if (username.isEmpty()) {
+            usernameEditText.setError("Please enter a username here");
+        } else {
+            button_signup.setEnabled(false);
+            FirebaseApi.checkUsernameAvailable(username, availability -> {
+                if (availability == UsernameClaim.Availability.AVAILABLE) {
+                    createAccount(email, password, fullName, username, welcome);
+                } else if (availability == UsernameClaim.Availability.TAKEN) {
+                    showUsernameTaken();
                 } else {
-                    Toast.makeText(SignUpActivity.this, "Sign up unsuccessful." + task.getException().getMessage(), Toast.LENGTH_SHORT).show();
+                    button_signup.setEnabled(true);
+                    Toast.makeText(SignUpActivity.this, "Could not check the username, please try again", Toast.LENGTH_SHORT).show();
                 }
             });
-        } else if (email.isEmpty()) {
-            this.email.setError("Please enter an email here");
-        } else {
-            this.password.setError("Please enter a password here");
         }
     }
+
+    /**
+     * Creates the Firebase Authentication account and registers the user's profile and username.
+     *
+     * @param email     User's email address.
+     * @param password  User's chosen password.
+     * @param fullName  User's full name.
+     * @param username  User's chosen username.
+     * @param welcome   User's welcome message.
+     */
+    private void createAccount(String email, String password, String fullName, String username, String welcome) {
+        auth.createUserWithEmailAndPassword(email, password).addOnCompleteListener(task -> {
+            if (task.isSuccessful()) {
+                FirebaseUser firebaseUser = FirebaseAuth.getInstance().getCurrentUser();
+                User newUser = new User(firebaseUser.getUid(), fullName, username, email, welcome, "");
+                FirebaseApi.addUserToDatabase(this, newUser, new FirebaseApi.UserRegistrationCallback() {
+                    @Override
+                    public void onUsernameTaken() {
+                        // Lost the race for the username; drop the account so the email can be used again
+                        firebaseUser.delete();
+                        showUsernameTaken();
+                    }
+
+                    @Override
+                    public void onRegistrationFailed() {
+                        firebaseUser.delete();
+                        button_signup.setEnabled(true);
+                    }
+                });
+            } else {
+                button_signup.setEnabled(true);
+                Toast.makeText(SignUpActivity.this, "Sign up unsuccessful." + task.getException().getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * Tells the user that the chosen username belongs to someone else.
+     */
+    private void showUsernameTaken() {
+        button_signup.setEnabled(true);
+        usernameEditText.setError("This username is already taken");
+        usernameEditText.requestFocus();
+    }
 }
\ No newline at end of file
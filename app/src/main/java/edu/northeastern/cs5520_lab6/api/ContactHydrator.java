@@ -0,0 +1,241 @@
+package edu.northeastern.cs5520_lab6.api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+import edu.northeastern.cs5520_lab6.contacts.Contacts;
+import edu.northeastern.cs5520_lab6.contacts.ContactsAdapter;
+import edu.northeastern.cs5520_lab6.contacts.GenericAdapterNotifier;
+import edu.northeastern.cs5520_lab6.contacts.User;
+
+/**
+ * Fills a contact list with the profiles of a user's contacts, keeping it sorted by name. Profiles
+ * are resolved through the {@link UserProfileCache}, at most {@link #MAX_CONCURRENT_READS} at a
+ * time, and are merged into the list in batches of {@link #DELIVERY_BATCH_SIZE}. Each batch is
+ * reported as range inserts, so a long contact list is rebound a few rows at a time instead of
+ * once per profile.
+ *
+ * A hydrator belongs to one load of the list. Once it is cancelled none of its pending results
+ * touch the list any more, so a reload can start over without the old load adding a second copy of
+ * every contact. All methods must be called on the main thread.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class ContactHydrator {
+    /**
+     * Maximum number of profile reads in flight at the same time.
+     */
+    public static final int MAX_CONCURRENT_READS = 16;
+
+    /**
+     * Number of resolved profiles merged into the list at a time.
+     */
+    public static final int DELIVERY_BATCH_SIZE = 25;
+
+    /**
+     * Display order of contacts: by name, ignoring case, then by user id so the order is stable.
+     */
+    static final Comparator<User> BY_NAME = (first, second) -> {
+        int byName = String.CASE_INSENSITIVE_ORDER.compare(nameOf(first), nameOf(second));
+        return byName != 0 ? byName : first.getUserId().compareTo(second.getUserId());
+    };
+
+    private final List<User> contacts;
+    private final GenericAdapterNotifier notifier;
+    private final LocalStore localStore;
+    private final Deque<String> pendingIds = new ArrayDeque<>(); // Contacts not requested yet
+    private final List<User> resolved = new ArrayList<>(); // Profiles waiting to be merged
+    private int inFlight; // Profile reads that have not completed yet
+    private boolean pumping; // Guards against re-entry when cached profiles resolve synchronously
+    private boolean hydrating; // Set once the contact ids have been read from the database
+    private boolean cancelled;
+
+    /**
+     * Creates a hydrator for a contact list.
+     *
+     * @param contacts   The list displayed by the adapter.
+     * @param notifier   The adapter to be notified of changes.
+     * @param localStore The store resolved profiles are written through to.
+     */
+    ContactHydrator(List<User> contacts, GenericAdapterNotifier notifier, LocalStore localStore) {
+        this.contacts = contacts;
+        this.notifier = notifier;
+        this.localStore = localStore;
+    }
+
+    /**
+     * Shows the contacts stored on the device while the database is being read. Ignored once the
+     * contact ids have arrived from the database or if the list already has entries.
+     *
+     * @param storedContacts The stored contact profiles.
+     */
+    void showStored(List<User> storedContacts) {
+        if (cancelled || hydrating || storedContacts.isEmpty() || !contacts.isEmpty()) return;
+        List<User> sorted = new ArrayList<>(storedContacts);
+        Collections.sort(sorted, BY_NAME);
+        contacts.addAll(sorted);
+        notifier.notifyAdapterItemRangeInserted(0, sorted.size());
+    }
+
+    /**
+     * Drops the contacts that are no longer listed and starts resolving the profile of every
+     * listed contact.
+     *
+     * @param contactIds The current contacts, as read from the database.
+     */
+    void hydrate(Contacts contactIds) {
+        if (cancelled) return;
+        hydrating = true;
+        for (int i = contacts.size() - 1; i >= 0; i--) {
+            if (!contactIds.contains(contacts.get(i).getUserId())) {
+                contacts.remove(i);
+                notifier.notifyAdapterItemRemoved(i);
+            }
+        }
+        pendingIds.addAll(contactIds.getUserIDs());
+        pump();
+    }
+
+    /**
+     * Stops this load. Profiles that are still being read are dropped when they arrive.
+     */
+    public void cancel() {
+        cancelled = true;
+        pendingIds.clear();
+        resolved.clear();
+    }
+
+    /**
+     * Returns whether this load has been cancelled.
+     *
+     * @return true if the load was cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Starts profile reads until the concurrency bound is reached, and merges what is left once
+     * every read has completed.
+     */
+    private void pump() {
+        if (pumping) return;
+        pumping = true;
+        while (!cancelled && inFlight < MAX_CONCURRENT_READS && !pendingIds.isEmpty()) {
+            inFlight++;
+            UserProfileCache.getInstance().getUser(pendingIds.poll(), this::onResolved);
+        }
+        pumping = false;
+        if (!cancelled && inFlight == 0 && pendingIds.isEmpty() && !resolved.isEmpty()) {
+            deliver();
+        }
+    }
+
+    /**
+     * Collects a resolved profile and keeps the reads going.
+     *
+     * @param user The profile, or null if it could not be loaded.
+     */
+    private void onResolved(User user) {
+        inFlight--;
+        if (cancelled) return;
+        if (user != null) {
+            resolved.add(user);
+            if (resolved.size() >= DELIVERY_BATCH_SIZE) deliver();
+        }
+        pump();
+    }
+
+    /**
+     * Merges the collected profiles into the sorted list. Profiles already shown are replaced in
+     * place, and their rows rebound only if a displayed field changed; new ones are inserted at
+     * their sorted positions, with adjacent inserts reported as one range.
+     */
+    private void deliver() {
+        List<User> batch = new ArrayList<>(resolved);
+        resolved.clear();
+        localStore.saveUsers(batch);
+
+        List<User> added = new ArrayList<>();
+        for (User user : batch) {
+            int position = indexOf(user.getUserId());
+            if (position == -1) {
+                added.add(user);
+            } else if (BY_NAME.compare(contacts.get(position), user) == 0) {
+                // Most profiles are unchanged since they were stored; those rows are not rebound
+                boolean changed = !ContactsAdapter.USER_DIFF.areContentsTheSame(contacts.get(position), user);
+                contacts.set(position, user);
+                if (changed) notifier.notifyAdapterItemChanged(position);
+            } else {
+                // Renamed since it was stored; move it to its new position
+                contacts.remove(position);
+                notifier.notifyAdapterItemRemoved(position);
+                added.add(user);
+            }
+        }
+        Collections.sort(added, BY_NAME);
+
+        int rangeStart = -1;
+        int rangeCount = 0;
+        for (User user : added) {
+            int position = insertionPoint(user);
+            contacts.add(position, user);
+            if (position == rangeStart + rangeCount) {
+                rangeCount++;
+            } else {
+                if (rangeCount > 0) notifier.notifyAdapterItemRangeInserted(rangeStart, rangeCount);
+                rangeStart = position;
+                rangeCount = 1;
+            }
+        }
+        if (rangeCount > 0) notifier.notifyAdapterItemRangeInserted(rangeStart, rangeCount);
+    }
+
+    /**
+     * Finds the position of a contact in the list.
+     *
+     * @param userId The id of the contact.
+     * @return The position of the contact, or -1 if it is not in the list.
+     */
+    private int indexOf(String userId) {
+        for (int i = 0; i < contacts.size(); i++) {
+            if (userId.equals(contacts.get(i).getUserId())) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the position a contact has to be inserted at to keep the list sorted.
+     *
+     * @param user The contact.
+     * @return The position after every contact that sorts before or equal to it.
+     */
+    private int insertionPoint(User user) {
+        int low = 0;
+        int high = contacts.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (BY_NAME.compare(contacts.get(middle), user) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the name a contact is sorted by.
+     *
+     * @param user The contact.
+     * @return The contact's name, or an empty string if it has none.
+     */
+    private static String nameOf(User user) {
+        return user.getName() == null ? "" : user.getName();
+    }
+}
@@ -8,25 +8,27 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.lifecycle.LifecycleOwner;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
 import com.google.firebase.database.Transaction;
 import com.google.firebase.database.ValueEventListener;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import edu.northeastern.cs5520_lab6.LogInActivity;
 import edu.northeastern.cs5520_lab6.contacts.Contacts;
@@ -34,10 +36,12 @@ import edu.northeastern.cs5520_lab6.contacts.GenericAdapterNotifier;
 import edu.northeastern.cs5520_lab6.contacts.NewContactActivity;
 import edu.northeastern.cs5520_lab6.contacts.User;
 import edu.northeastern.cs5520_lab6.main.ChatsAdapter;
+import edu.northeastern.cs5520_lab6.main.RecentChats;
 import edu.northeastern.cs5520_lab6.main.ChatsFragment;
 import edu.northeastern.cs5520_lab6.messages.Chat;
 import edu.northeastern.cs5520_lab6.messages.Message;
 import edu.northeastern.cs5520_lab6.messages.MessageActivity;
+import edu.northeastern.cs5520_lab6.messages.MessageStore;
 import edu.northeastern.cs5520_lab6.stickers.Sticker;
 
 /**
@@ -61,6 +65,10 @@ import edu.northeastern.cs5520_lab6.stickers.Sticker;
 
 public class FirebaseApi {
     private static DatabaseReference databaseReference = FirebaseDatabase.getInstance().getReference();
+    private static final Set<String> stickerMigrationChecked = new HashSet<>(); // Users whose legacy stickers were checked
+    private static final String LEGACY_CONTACTS_KEY = "userIDs"; // Former list of contact ids under users/{uid}/contacts
+    static final String USERNAME_RESERVED_KEY = "usernameReserved"; // Set on users/{uid} once their name is in the registry
+    static final String USERNAME_KEY_FIELD = "usernameKey"; // Normalized username on users/{uid}, for case-insensitive lookups
     //private static boolean onStartUp = false;
 
     public FirebaseApi() {
@@ -71,76 +79,315 @@ public class FirebaseApi {
      * Adds a new user to the Firebase Realtime Database under the "users" node. This method
      * should be called when a new user signs up.
      *
-     * @param context The context from which this method is called, used for displaying Toast messages.
-     * @param user    The user object to be added to the database.
+     * The username is registered through a {@link UsernameClaim}: a user from before the
+     * {@code usernames} registry holding the same name makes it taken, otherwise the name is
+     * claimed in a transaction on its {@code usernames/{key}} entry, so of two sign-ups racing for
+     * the same name exactly one wins, and the claim is released again if the profile cannot be
+     * written. The same entry is the direct lookup path of {@link #searchUsersByUsername} and the
+     * prefix index of {@link UsernameSearch}.
+     *
+     * @param context  The context from which this method is called, used for displaying Toast messages.
+     * @param user     The user object to be added to the database.
+     * @param callback Notified if the username already belongs to another user or the registration
+     *                 fails; the user is not registered then.
      */
-    public static void addUserToDatabase(Context context, User user) {
-        DatabaseReference usersRef = databaseReference.child("users").child(user.getUserId());
-        usersRef.setValue(user).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
+    public static void addUserToDatabase(Context context, User user, UserRegistrationCallback callback) {
+        new UsernameClaim(new FirebaseUsernameRegistry()).register(user, new UsernameClaim.Listener() {
+            @Override
+            public void onRegistered() {
                 // Handle success, such as navigating to the main app UI or showing a success message
                 Toast.makeText(context, "Congratulations! you have successfully signed up!", Toast.LENGTH_SHORT).show();
                 Intent intent = new Intent(context, LogInActivity.class);
                 context.startActivity(intent);
-            } else {
-                // Handle failure, such as showing an error message to the user
+            }
+
+            @Override
+            public void onUsernameTaken() {
+                if (callback != null) callback.onUsernameTaken();
+            }
+
+            @Override
+            public void onFailed() {
+                Toast.makeText(context, "Sign up unsuccessful. Please try again.", Toast.LENGTH_SHORT).show();
+                if (callback != null) callback.onRegistrationFailed();
             }
         });
     }
 
+    /**
+     * Checks whether a username is still free, in the {@code usernames} registry and among the
+     * users from before it. This is only a hint for the sign-up form; the name is reserved by the
+     * claim in {@link #addUserToDatabase}.
+     *
+     * @param username The username to check.
+     * @param callback Receives whether the username is free, or that it could not be checked.
+     */
+    public static void checkUsernameAvailable(String username, UsernameAvailabilityCallback callback) {
+        UsernameClaim claim = new UsernameClaim(new FirebaseUsernameRegistry());
+        databaseReference.child("usernames").child(UsernameSearch.usernameKey(username))
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                        claim.checkAvailable(username, dataSnapshot.exists(), callback::onAvailabilityChecked);
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError databaseError) {
+                        Log.w("FirebaseApi", "checkUsernameAvailable:onCancelled", databaseError.toException());
+                        callback.onAvailabilityChecked(UsernameClaim.Availability.UNKNOWN);
+                    }
+                });
+    }
+
+    /**
+     * The database operations of a {@link UsernameClaim}, over the Firebase Realtime Database.
+     */
+    private static class FirebaseUsernameRegistry implements UsernameClaim.Registry {
+        /**
+         * Queries the {@code users} node for the normalized {@link #USERNAME_KEY_FIELD} of the
+         * name, and for the stored {@code username} as typed and in lower case, which covers the
+         * users that have not signed in since the field was added.
+         *
+         * @param username The username.
+         * @param step     Receives the stored usernames keyed by user id, or null if any of the
+         *                 queries failed.
+         */
+        @Override
+        public void findLegacyOwners(String username, UsernameClaim.Step<Map<String, String>> step) {
+            DatabaseReference users = databaseReference.child("users");
+            String trimmed = username.trim();
+            List<Query> queries = new ArrayList<>();
+            queries.add(users.orderByChild(USERNAME_KEY_FIELD).equalTo(UsernameSearch.usernameKey(username)));
+            queries.add(users.orderByChild("username").equalTo(trimmed));
+            if (!trimmed.equals(trimmed.toLowerCase(Locale.ROOT))) {
+                queries.add(users.orderByChild("username").equalTo(trimmed.toLowerCase(Locale.ROOT)));
+            }
+
+            Map<String, String> owners = new HashMap<>();
+            int[] pending = {queries.size()};
+            boolean[] failed = {false};
+            for (Query query : queries) {
+                query.addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                        for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
+                            owners.put(snapshot.getKey(), snapshot.child("username").getValue(String.class));
+                        }
+                        if (--pending[0] == 0) step.onDone(failed[0] ? null : owners);
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError databaseError) {
+                        Log.w("FirebaseApi", "findLegacyOwners:onCancelled", databaseError.toException());
+                        failed[0] = true;
+                        if (--pending[0] == 0) step.onDone(null);
+                    }
+                });
+            }
+        }
+
+        /**
+         * Claims the registry entry in a transaction.
+         *
+         * @param key    The registry key of the username.
+         * @param userId The user claiming the name.
+         * @param step   Receives the outcome.
+         */
+        @Override
+        public void claim(String key, String userId, UsernameClaim.Step<UsernameClaim.ClaimResult> step) {
+            databaseReference.child("usernames").child(key).runTransaction(new Transaction.Handler() {
+                @NonNull
+                @Override
+                public Transaction.Result doTransaction(@NonNull MutableData mutableData) {
+                    if (!UsernameClaim.canClaim(mutableData.getValue(), userId)) {
+                        return Transaction.abort(); // Claimed by someone else
+                    }
+                    mutableData.setValue(userId);
+                    return Transaction.success(mutableData);
+                }
+
+                @Override
+                public void onComplete(@Nullable DatabaseError databaseError, boolean committed, @Nullable DataSnapshot dataSnapshot) {
+                    if (committed) {
+                        step.onDone(UsernameClaim.ClaimResult.CLAIMED);
+                    } else if (databaseError != null) {
+                        Log.e("FirebaseApi", "Failed to claim username", databaseError.toException());
+                        step.onDone(UsernameClaim.ClaimResult.FAILED);
+                    } else {
+                        step.onDone(UsernameClaim.ClaimResult.TAKEN);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Removes the registry entry.
+         *
+         * @param key The registry key of the username.
+         */
+        @Override
+        public void release(String key) {
+            databaseReference.child("usernames").child(key).removeValue();
+        }
+
+        /**
+         * Writes the profile with the normalized username, marked as having a complete chat index
+         * since a new user has no chats to backfill.
+         *
+         * @param user The user.
+         * @param step Receives whether the profile was written.
+         */
+        @Override
+        public void writeProfile(User user, UsernameClaim.Step<Boolean> step) {
+            Map<String, Object> profile = ModelMapper.toMap(user);
+            profile.put(UserChatsSubscription.INDEX_BUILT_KEY, true);
+            profile.put(USERNAME_KEY_FIELD, UsernameSearch.usernameKey(user.getUsername()));
+            profile.put(USERNAME_RESERVED_KEY, true); // Reserved by the claim
+            databaseReference.child("users").child(user.getUserId()).setValue(profile).addOnCompleteListener(task -> {
+                if (task.isSuccessful()) {
+                    UserProfileCache.getInstance().invalidate(user.getUserId());
+                } else {
+                    Log.e("FirebaseApi", "Failed to write user profile", task.getException());
+                }
+                step.onDone(task.isSuccessful());
+            });
+        }
+    }
+
     /**
      * Adds a new contact to the current user's list of contacts in the Firebase database. If the
      * contact is successfully added, a callback method is invoked.
      *
+     * Only the single {@code users/{uid}/contacts/{contactId}} entry is written, inside a
+     * transaction on that entry alone, so adding a contact uploads a few bytes however large the
+     * profile is, concurrent adds of different contacts never overwrite each other, and adding an
+     * existing contact changes nothing.
+     *
      * @param context          The context from which this method is called.
      * @param currentUserId    The ID of the current user.
      * @param newContactUserId The ID of the new contact to be added.
      * @param callback         Callback interface for post-operation actions.
      */
     public static void addContactToUser(Context context, String currentUserId, String newContactUserId, ContactAddedCallback callback) {
-        DatabaseReference userRef = FirebaseDatabase.getInstance().getReference("users").child(currentUserId);
+        DatabaseReference contactRef = FirebaseDatabase.getInstance().getReference("users")
+                .child(currentUserId).child("contacts").child(newContactUserId);
 
-        userRef.addListenerForSingleValueEvent(new ValueEventListener() {
+        boolean[] alreadyContact = {false};
+        contactRef.runTransaction(new Transaction.Handler() {
+            @NonNull
             @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                User user = dataSnapshot.getValue(User.class);
-                if (user != null) {
-                    Contacts contacts = user.getContacts();
-                    if (contacts == null) {
-                        contacts = new Contacts(new ArrayList<>());
-                    }
-                    // Add the new contact's userID if not already present
-                    if (!contacts.getUserIDs().contains(newContactUserId)) {
-                        contacts.addUserID(newContactUserId);
-                        user.setContacts(contacts);
-                        // Write the updated User object back to Firebase
-                        userRef.setValue(user).addOnCompleteListener(task -> {
-                            if (task.isSuccessful()) {
-                                Toast.makeText(context, "Congratulations! Contact added successfully!", Toast.LENGTH_SHORT).show();
-                                if (callback != null) callback.onContactAdded();
-                            } else {
-                                Toast.makeText(context, "Unfortunately, contact not added!", Toast.LENGTH_SHORT).show();
-
-                            }
-                        });
-                    }
+            public Transaction.Result doTransaction(@NonNull MutableData mutableData) {
+                // Add the new contact's userID if not already present
+                alreadyContact[0] = mutableData.getValue() != null;
+                if (alreadyContact[0]) {
+                    return Transaction.abort();
                 }
+                mutableData.setValue(true);
+                return Transaction.success(mutableData);
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e("FirebaseApi", "Failed to read contacts", databaseError.toException());
+            public void onComplete(@Nullable DatabaseError databaseError, boolean committed, @Nullable DataSnapshot dataSnapshot) {
+                if (committed) {
+                    UserProfileCache.getInstance().invalidate(currentUserId); // The cached profile lists the old contacts
+                    Toast.makeText(context, "Congratulations! Contact added successfully!", Toast.LENGTH_SHORT).show();
+                    if (callback != null) callback.onContactAdded();
+                } else if (databaseError != null) {
+                    Log.e("FirebaseApi", "Failed to add contact", databaseError.toException());
+                    Toast.makeText(context, "Unfortunately, contact not added!", Toast.LENGTH_SHORT).show();
+                }
             }
         });
     }
 
+    /**
+     * Reads the contact ids under a {@code users/{uid}/contacts} node. Both the current layout, one
+     * {@code {contactId}: true} entry per contact, and the legacy {@code userIDs} list are read.
+     *
+     * @param contactsSnapshot Snapshot of the {@code contacts} node.
+     * @return The contacts found in either layout.
+     */
+    private static Contacts readContacts(DataSnapshot contactsSnapshot) {
+        Contacts contacts = new Contacts();
+        for (DataSnapshot snapshot : contactsSnapshot.getChildren()) {
+            if (LEGACY_CONTACTS_KEY.equals(snapshot.getKey())) {
+                for (DataSnapshot legacySnapshot : snapshot.getChildren()) {
+                    String userId = legacySnapshot.getValue(String.class);
+                    if (userId != null) contacts.addUserID(userId);
+                }
+            } else if (Boolean.TRUE.equals(snapshot.getValue())) {
+                contacts.addUserID(snapshot.getKey());
+            }
+        }
+        return contacts;
+    }
+
+    /**
+     * Moves a legacy {@code contacts/userIDs} list into individual contact entries. The new entries
+     * are added and the list is removed in one atomic update.
+     *
+     * @param contactsRef Reference to {@code users/{uid}/contacts}.
+     * @param contacts    Every contact read from the node, in either layout.
+     */
+    private static void migrateLegacyContacts(DatabaseReference contactsRef, Contacts contacts) {
+        Map<String, Object> contactUpdates = new HashMap<>();
+        for (String userId : contacts.getUserIDs()) {
+            contactUpdates.put(userId, true);
+        }
+        contactUpdates.put(LEGACY_CONTACTS_KEY, null);
+        contactsRef.updateChildren(contactUpdates);
+    }
+
     /**
      * Searches for users in the Firebase database by username. Results are returned via a callback.
      *
+     * The username is looked up directly at its {@code usernames/{key}} entry, which names at most
+     * one user. Only users who registered before usernames were reserved have no entry; for them
+     * the {@code users} node is still queried by username.
+     *
      * @param username The username to search for.
      * @param callback Callback interface to handle the search results.
      */
     public static void searchUsersByUsername(String username, NewContactActivity.UserSearchCallback callback) {
+        if (TextUtils.isEmpty(username)) {
+            callback.onSearchResults(new ArrayList<>());
+            return;
+        }
+        databaseReference.child("usernames").child(UsernameSearch.usernameKey(username))
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                        String userId = dataSnapshot.getValue(String.class);
+                        if (userId == null) {
+                            searchLegacyUsersByUsername(username, callback);
+                            return;
+                        }
+                        UserProfileCache.getInstance().getUser(userId, user -> {
+                            List<User> userList = new ArrayList<>();
+                            if (user != null) userList.add(user);
+                            callback.onSearchResults(userList);
+                        });
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError databaseError) {
+                        Log.w("FirebaseApi", "searchUsersByUsername:onCancelled", databaseError.toException());
+                        searchLegacyUsersByUsername(username, callback);
+                    }
+                });
+    }
+
+    /**
+     * Searches the {@code users} node for users whose username matches exactly. Used for users that
+     * registered before the {@code usernames} registry and have not signed in since, so their name
+     * is not reserved yet; see {@link #reserveOwnUsernameIfMissing()}. The query is served by the
+     * {@code username} index declared in {@code database.rules.json}, and is only run for a
+     * submitted search, never per keystroke.
+     *
+     * @param username The username to search for.
+     * @param callback Callback interface to handle the search results.
+     */
+    static void searchLegacyUsersByUsername(String username, NewContactActivity.UserSearchCallback callback) {
         DatabaseReference usersRef = databaseReference.child("users");
         usersRef.orderByChild("username").equalTo(username)
                 .addListenerForSingleValueEvent(new ValueEventListener() {
@@ -148,9 +395,10 @@ public class FirebaseApi {
                     public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
                         List<User> userList = new ArrayList<>();
                         for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                            User user = snapshot.getValue(User.class);
+                            User user = ModelMapper.userFromSnapshot(snapshot);
                             if (user != null) {
                                 userList.add(user);
+                                UserProfileCache.getInstance().put(user);
                             }
                         }
                         callback.onSearchResults(userList); // Notify callback with the result
@@ -158,50 +406,131 @@ public class FirebaseApi {
 
                     @Override
                     public void onCancelled(@NonNull DatabaseError databaseError) {
-                        // Handle possible errors
+                        Log.w("FirebaseApi", "searchLegacyUsersByUsername:onCancelled", databaseError.toException());
+                        callback.onSearchResults(new ArrayList<>());
                     }
                 });
     }
 
     /**
-     * Loads chat data for the current user and notifies the provided adapter of any changes. This
-     * method should be used to populate the UI with chat information.
-     *
-     * @param chatList The list to store the chat data.
-     * @param adapter  The adapter to be notified of data changes.
+     * Reserves the signed-in user's own username in {@code usernames/{key}} unless their marker
+     * says it is reserved already. This is a one-time migration for users that registered before
+     * the registry: each user only ever writes their own id, which is all the database rules
+     * allow, and the marker keeps the profile read from being repeated on every start. A name that
+     * another user has reserved in the meantime is left to them.
      */
-    public static void loadChatData(List<Chat> chatList, ChatsAdapter adapter) {
-        FirebaseDatabase database = FirebaseDatabase.getInstance();
-        DatabaseReference chatsRef = database.getReference("chats");
+    public static void reserveOwnUsernameIfMissing() {
+        if (FirebaseAuth.getInstance().getCurrentUser() == null) return;
         String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        DatabaseReference userRef = databaseReference.child("users").child(currentUserId);
+        userRef.child(USERNAME_RESERVED_KEY).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot markerSnapshot) {
+                if (!markerSnapshot.exists()) reserveOwnUsername(userRef, currentUserId);
+            }
 
-        chatsRef.addValueEventListener(new ValueEventListener() {
             @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                chatList.clear(); // Clear existing data first
-                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                    Chat chat = snapshot.getValue(Chat.class);
-                    if (chat != null && chat.getUserIds().contains(currentUserId)) {
-                        chat.setId(snapshot.getKey());
-                        chatList.add(chat);
-                    }
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                Log.w("FirebaseApi", "reserveOwnUsernameIfMissing:onCancelled", databaseError.toException());
+            }
+        });
+    }
+
+    /**
+     * Reads the user's username and reserves it for them if the registry entry is free, then
+     * stores the normalized {@link #USERNAME_KEY_FIELD} along with the marker.
+     *
+     * @param userRef       Reference to {@code users/{uid}}.
+     * @param currentUserId The signed-in user.
+     */
+    private static void reserveOwnUsername(DatabaseReference userRef, String currentUserId) {
+        userRef.child("username").addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot usernameSnapshot) {
+                String username = usernameSnapshot.getValue(String.class);
+                if (TextUtils.isEmpty(username) || UsernameSearch.usernameKey(username).isEmpty()) {
+                    userRef.child(USERNAME_RESERVED_KEY).setValue(true);
+                    return;
                 }
-                Log.d("loadChatData", "Number of chats loaded: " + chatList.size());
-                // Notify the adapter of data changes
-                adapter.notifyDataSetChanged();
+                databaseReference.child("usernames").child(UsernameSearch.usernameKey(username))
+                        .runTransaction(new Transaction.Handler() {
+                            @NonNull
+                            @Override
+                            public Transaction.Result doTransaction(@NonNull MutableData mutableData) {
+                                Object owner = mutableData.getValue();
+                                if (owner != null) return Transaction.abort(); // Ours already, or someone else's
+                                mutableData.setValue(currentUserId);
+                                return Transaction.success(mutableData);
+                            }
 
-                // After loading chats, adjust chat names
-                adjustChatNamesForCurrentUser(chatList, adapter);
+                            @Override
+                            public void onComplete(@Nullable DatabaseError databaseError, boolean committed, @Nullable DataSnapshot dataSnapshot) {
+                                if (databaseError != null) {
+                                    Log.w("FirebaseApi", "reserveOwnUsername:onComplete", databaseError.toException());
+                                    return; // Tried again on the next start
+                                }
+                                if (!committed && dataSnapshot != null && !currentUserId.equals(dataSnapshot.getValue())) {
+                                    Log.w("FirebaseApi", "Username " + username + " is reserved by another user");
+                                }
+                                Map<String, Object> updates = new HashMap<>();
+                                updates.put(USERNAME_KEY_FIELD, UsernameSearch.usernameKey(username));
+                                updates.put(USERNAME_RESERVED_KEY, true);
+                                userRef.updateChildren(updates);
+                            }
+                        });
             }
 
             @Override
-            public void onCancelled(DatabaseError databaseError) {
-                // Handle possible errors
-                Log.w("loadChatData", "loadChat:onCancelled", databaseError.toException());
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                Log.w("FirebaseApi", "reserveOwnUsername:onCancelled", databaseError.toException());
             }
         });
     }
 
+    /**
+     * Loads chat data for the current user and notifies the provided adapter of any changes. This
+     * method should be used to populate the UI with chat information. Only the chats listed in
+     * the user's {@code userChats/{uid}} index are downloaded and observed.
+     *
+     * The chats stored in {@link LocalStore} are shown first, so the list renders without waiting
+     * for the network; every chat received from the database replaces its stored copy. Chats are
+     * kept ordered by last activity, so a chat receiving a message moves to the top of the list.
+     *
+     * @param owner    The lifecycle the subscription is tied to; it is stopped when the owner is destroyed.
+     * @param adapter  The adapter whose {@link RecentChats} receive the chats.
+     * @return The subscription feeding the list, which may also be stopped earlier.
+     */
+    public static UserChatsSubscription loadChatData(LifecycleOwner owner, ChatsAdapter adapter) {
+        String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        LocalStore localStore = LocalStore.getInstance();
+        RecentChats chats = adapter.getChats();
+
+        // Chats that already arrived from the network are newer than their stored copies
+        localStore.loadChats(currentUserId, chats::putAbsent);
+
+        UserChatsSubscription subscription = new UserChatsSubscription(databaseReference, currentUserId, new UserChatsSubscription.ChatChangeListener() {
+            @Override
+            public void onChatChanged(Chat chat) {
+                // Resolve the display name first so the row is bound once, with its final name
+                adjustChatNameForCurrentUser(chat, currentUserId, () -> {
+                    localStore.saveChat(currentUserId, chat);
+                    // Moves the chat to its place by last activity, rebinding only its preview
+                    chats.put(chat);
+                    Log.d("loadChatData", "Number of chats loaded: " + chats.size());
+                });
+            }
+
+            @Override
+            public void onChatRemoved(String chatId) {
+                localStore.removeChat(currentUserId, chatId);
+                chats.remove(chatId);
+            }
+        });
+        ListenerRegistry.getInstance().bindToLifecycle(owner, subscription::stop);
+        subscription.start();
+        return subscription;
+    }
+
     /**
      * Defines a callback interface for responding to the loading of chat data. This interface
      * is used to execute code after chat data has been successfully loaded from the Firebase Realtime
@@ -220,325 +549,223 @@ public class FirebaseApi {
     }
 
     /**
-     * Attaches a listener to the "chats" reference in the Firebase Realtime Database to listen for
-     * real-time updates to chat data. This method is particularly useful for updating the app's UI
-     * in response to the addition of new chats or updates to existing ones where the current user
-     * is a participant.
+     * Attaches listeners to the chats of the current user, as listed in the {@code userChats/{uid}}
+     * index, to listen for real-time updates to chat data. This method is particularly useful for
+     * updating the app's UI in response to the addition of new chats or updates to existing ones
+     * where the current user is a participant.
      *
      * The listener is notified of new or updated chats through the {@link DataLoadListener} interface,
      * which must be implemented by the caller to handle the chat data once it's loaded or updated.
      * This allows for flexible handling of chat data changes, enabling the app to respond dynamically
      * to real-time database events.
      *
+     * The listener is only called for chats whose last message was sent by someone else. That is
+     * decided from the {@code lastSenderId} and {@code lastSenderName} fields written with every
+     * message, so a chat event is handled without any further reads. Chats whose last message
+     * predates these fields are ignored until their next message.
+     *
+     * @param owner    The lifecycle the subscription is tied to; it is stopped when the owner is destroyed.
      * @param listener An implementation of {@link DataLoadListener} to handle the callback when
      *                 chat data is loaded or updated. The listener is called with the loaded or updated
      *                 {@link Chat} object, allowing the caller to update the UI or perform other actions
      *                 in response to chat data changes.
+     * @return The subscription feeding the listener, which may also be stopped earlier.
      */
-    public static void attachChatListener(DataLoadListener listener) {
-        FirebaseDatabase database = FirebaseDatabase.getInstance();
-        DatabaseReference chatsRef = database.getReference("chats");
+    public static UserChatsSubscription attachChatListener(LifecycleOwner owner, DataLoadListener listener) {
         String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
 
-        ChildEventListener childEventListener = new ChildEventListener() {
+        UserChatsSubscription subscription = new UserChatsSubscription(databaseReference, currentUserId, new UserChatsSubscription.ChatChangeListener() {
             @Override
-            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
-                Chat chat = snapshot.getValue(Chat.class);
-                if (chat != null && chat.getUserIds().contains(currentUserId)) {
-                    DatabaseReference messageRef = database.getReference("messages").child(chat.getId());
-                    messageRef.orderByKey().limitToLast(1).addListenerForSingleValueEvent(new ValueEventListener() {
-                        @Override
-                        public void onDataChange(@NonNull DataSnapshot snapshot) {
-                            for (DataSnapshot messageSnapshot: snapshot.getChildren()) {
-                                Message message = messageSnapshot.getValue(Message.class);
-                                if(message != null && !message.getSenderId().equals(currentUserId)) {
-                                    adjustChatNamesForCurrentUser(chat, listener);
-                                }
-                            }
-                        }
-
-                        @Override
-                        public void onCancelled(@NonNull DatabaseError error) {
-                            Log.w("attachChatListener", "loadMessage:onCancelled: ", error.toException() );
-                        }
-                    });
-
-                }
-            }
-
-            @Override
-            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
-                Chat chat = snapshot.getValue(Chat.class);
-                if (chat != null && chat.getUserIds().contains(currentUserId)) {
-                    DatabaseReference messageRef = database.getReference("messages").child(chat.getId());
-                    messageRef.orderByKey().limitToLast(1).addListenerForSingleValueEvent(new ValueEventListener() {
-                        @Override
-                        public void onDataChange(@NonNull DataSnapshot snapshot) {
-                            for (DataSnapshot messageSnapshot: snapshot.getChildren()) {
-                                Message message = messageSnapshot.getValue(Message.class);
-                                if(message != null && !message.getSenderId().equals(currentUserId)) {
-                                    adjustChatNamesForCurrentUser(chat, listener);
-                                }
-                            }
-                        }
-
-                        @Override
-                        public void onCancelled(@NonNull DatabaseError error) {
-                            Log.w("attachChatListener", "loadMessage:onCancelled: ", error.toException() );
-                        }
-                    });
+            public void onChatChanged(Chat chat) {
+                String lastSenderId = chat.getLastSenderId();
+                if (lastSenderId != null && !lastSenderId.equals(currentUserId) && listener != null) {
+                    listener.onDataLoaded(chat);
                 }
             }
-
-            @Override
-            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
-
-            }
-
-            @Override
-            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
-
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.w("attachChatListener", "loadChat: onCancelled", databaseError.toException());
-            }
-        };
-        chatsRef.addChildEventListener(childEventListener);
+        });
+        ListenerRegistry.getInstance().bindToLifecycle(owner, subscription::stop);
+        subscription.start();
+        return subscription;
     }
 
     /**
-     * Adjusts the names of chats in the provided list to exclude the current user's name,
-     * ensuring that chat names reflect the other participants more accurately. This method
-     * queries the database for user information and updates each chat's name accordingly.
-     *
-     * It is designed to enhance the user interface by displaying chat names that are more
-     * meaningful to the current user, omitting their own name from the list of chat participants.
-     * The method handles the asynchronous nature of database operations and updates the chat
-     * list adapter once all chat names have been adjusted.
+     * Adjusts the name of a given chat to exclude the current user's name, creating a more relevant
+     * display name based on the other participants in the chat. Participant profiles are resolved
+     * through the shared {@link UserProfileCache}, so resolving the names of many chats costs one
+     * read per distinct participant at most, and usually none at all.
      *
-     * Note: This method may invoke {@link ChatsAdapter#notifyDataSetChanged()} multiple times,
-     * which could impact performance. Consider optimizing if necessary.
+     * The participants' names are joined in the order of the chat's user ids. If none of the other
+     * participants can be resolved the chat keeps the name it was stored with.
      *
-     * @param chatList The list of {@link Chat} objects to be adjusted.
-     * @param adapter  The adapter used to display the chat list. This adapter is notified to
-     *                 refresh the view once chat names have been adjusted.
+     * @param chat          The {@link Chat} object to be adjusted. This object should contain the IDs
+     *                      of all participants, including the current user.
+     * @param currentUserId The id of the current user, whose name is left out.
+     * @param onAdjusted    Run once the chat name has been adjusted.
      */
-    private static void adjustChatNamesForCurrentUser(List<Chat> chatList, ChatsAdapter adapter) {
-        String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-        DatabaseReference userRef = FirebaseDatabase.getInstance().getReference("users");
-
-        // Fetch the current user's name
-        userRef.child(currentUserId).addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                User currentUser = dataSnapshot.getValue(User.class);
-                if (currentUser != null) {
-                    // Adjust each chat's name
-                    for (Chat chat : chatList) {
-                        List<String> otherUserIds = new ArrayList<>(chat.getUserIds());
-                        otherUserIds.remove(currentUserId); // Remove current user's ID
-                        StringBuilder otherUserNames = new StringBuilder();
-
-                        for (String userId : otherUserIds) {
-                            // Fetch each user's name
-                            userRef.child(userId).addListenerForSingleValueEvent(new ValueEventListener() {
-                                @Override
-                                public void onDataChange(DataSnapshot userSnapshot) {
-                                    User user = userSnapshot.getValue(User.class);
-                                    if (user != null) {
-                                        if (otherUserNames.length() > 0) otherUserNames.append(", ");
-                                        otherUserNames.append(user.getName());
-                                        // Update chat name if last user's name fetched
-                                        if (otherUserNames.toString().split(", ").length == otherUserIds.size()) {
-                                            chat.setName(otherUserNames.toString());
-                                            adapter.notifyDataSetChanged(); // This might be called multiple times, we should consider optimization
-                                        }
-                                    }
-                                }
-                                @Override
-                                public void onCancelled(DatabaseError databaseError) {}
-                            });
-                        }
-                    }
+    private static void adjustChatNameForCurrentUser(Chat chat, String currentUserId, Runnable onAdjusted) {
+        List<String> otherUserIds = new ArrayList<>(chat.getUserIds());
+        otherUserIds.remove(currentUserId); // Remove current user's ID
+
+        UserProfileCache.getInstance().getUsers(otherUserIds, users -> {
+            StringBuilder otherUserNames = new StringBuilder();
+            for (String userId : otherUserIds) {
+                User user = users.get(userId);
+                if (user != null) {
+                    if (otherUserNames.length() > 0) otherUserNames.append(", ");
+                    otherUserNames.append(user.getName());
                 }
             }
-            @Override
-            public void onCancelled(DatabaseError databaseError) {}
+            if (otherUserNames.length() > 0) {
+                chat.setName(otherUserNames.toString());
+            }
+            onAdjusted.run();
         });
     }
 
     /**
-     * Dynamically adjusts the name of a given chat to exclude the current user's name, creating a more
-     * relevant display name based on the other participants in the chat. This method queries the
-     * Firebase Realtime Database to fetch the names of the other chat participants and then updates the
-     * chat's name accordingly.
+     * Loads contact data for the current user and notifies the provided adapter of any changes. This
+     * method should be used to populate the UI with contact information. Contacts stored in the
+     * legacy {@code contacts/userIDs} list are read as well and moved to the current layout.
      *
-     * Once the chat name has been adjusted to reflect only the other participants, the method notifies
-     * a provided {@link DataLoadListener} with the updated {@link Chat} object. This allows for the
-     * dynamic update of chat display names in the UI or elsewhere in the application, enhancing the
-     * user experience by ensuring chat names are displayed in a contextually relevant manner.
+     * The contacts stored in {@link LocalStore} are shown first. Once the contact list has been read
+     * from the database, stored contacts that are no longer listed are dropped and the profiles are
+     * resolved by a {@link ContactHydrator}, which keeps the list sorted by name and reports changes
+     * as range notifications.
      *
-     * @param chat The {@link Chat} object to be adjusted. This object should contain the IDs of all
-     *             participants, including the current user.
-     * @param listener A {@link DataLoadListener} that will be notified with the updated chat object
-     *                 after the chat name has been adjusted. This listener allows for the execution of
-     *                 further actions in response to the chat name update, such as UI refreshes.
+     * Contacts already in the list are kept and reconciled rather than cleared, so reloading a list
+     * that is on screen does not make it flicker. A caller that reloads the same list must cancel the
+     * previous load first so that only one load merges into it.
+     *
+     * @param owner    The lifecycle the load is tied to; it is cancelled when the owner is destroyed.
+     * @param contacts The list to store the contact data.
+     * @param adapter  The adapter to be notified of data changes.
+     * @return The load filling the list, which may also be cancelled earlier.
      */
-    private static void adjustChatNamesForCurrentUser(Chat chat, DataLoadListener listener) {
-        String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-        DatabaseReference userRef = FirebaseDatabase.getInstance().getReference("users");
-
-        // Fetch the current user's name
-        userRef.child(currentUserId).addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                User currentUser = dataSnapshot.getValue(User.class);
-                if (currentUser != null) {
-                    // Adjust chat's name
-                    List<String> otherUserIds = new ArrayList<>(chat.getUserIds());
-                    otherUserIds.remove(currentUserId); // Remove current user's ID
-                    StringBuilder otherUserNames = new StringBuilder();
-
-                    for (String userId : otherUserIds) {
-                        // Fetch each user's name
-                        userRef.child(userId).addListenerForSingleValueEvent(new ValueEventListener() {
-                            @Override
-                            public void onDataChange(DataSnapshot userSnapshot) {
-                                User user = userSnapshot.getValue(User.class);
-                                if (user != null) {
-                                    if (otherUserNames.length() > 0) otherUserNames.append(", ");
-                                    otherUserNames.append(user.getName());
-                                    // Update chat name if last user's name fetched
-                                    if (otherUserNames.toString().split(", ").length == otherUserIds.size()) {
-                                        chat.setName(otherUserNames.toString());
-                                        if(listener != null) {
-                                            listener.onDataLoaded(chat);
-                                        }
-                                    }
-                                }
-                            }
-                            @Override
-                            public void onCancelled(DatabaseError databaseError) {}
-                        });
-                    }
-                }
-            }
-            @Override
-            public void onCancelled(DatabaseError databaseError) {}
-        });
+    public static ContactHydrator loadContactData(LifecycleOwner owner, List<User> contacts, GenericAdapterNotifier adapter) {
+        ContactHydrator hydrator = loadContactData(contacts, adapter);
+        ListenerRegistry.getInstance().bindToLifecycle(owner, hydrator::cancel);
+        return hydrator;
     }
 
     /**
-     * Loads contact data for the current user and notifies the provided adapter of any changes. This
-     * method should be used to populate the UI with contact information.
+     * Loads contact data like {@link #loadContactData(LifecycleOwner, List, GenericAdapterNotifier)},
+     * without tying the load to a lifecycle. For screens that reload the list repeatedly: they bind
+     * the cancellation of the current load to their lifecycle once, instead of adding an observer
+     * for every load.
      *
      * @param contacts The list to store the contact data.
      * @param adapter  The adapter to be notified of data changes.
+     * @return The load filling the list, which the caller must cancel.
      */
-    public static void loadContactData(List<User> contacts, GenericAdapterNotifier adapter) {
+    public static ContactHydrator loadContactData(List<User> contacts, GenericAdapterNotifier adapter) {
         FirebaseDatabase database = FirebaseDatabase.getInstance();
         DatabaseReference userRef = database.getReference("users");
 
         String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
 
-        // Correct path based on our structure would be "users/{userId}/contacts/userIDs"
-        DatabaseReference contactsRef = userRef.child(currentUserId).child("contacts").child("userIDs");
+        // Contacts are stored as "users/{userId}/contacts/{contactId}: true"
+        DatabaseReference contactsRef = userRef.child(currentUserId).child("contacts");
 
-        // Clear the contacts list before loading new data
-        contacts.clear();
+        LocalStore localStore = LocalStore.getInstance();
+        ContactHydrator hydrator = new ContactHydrator(contacts, adapter, localStore);
+
+        localStore.loadContacts(currentUserId, hydrator::showStored);
 
         contactsRef.addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                // Assuming userIDs is a list of strings
-                List<String> userIDs = new ArrayList<>();
-                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                    String userId = snapshot.getValue(String.class);
-                    if (userId != null) {
-                        userIDs.add(userId);
-                    }
-                }
-                // Now, for each userId, fetch the user details
-                for (String userId : userIDs) {
-                    userRef.child(userId).addListenerForSingleValueEvent(new ValueEventListener() {
-                        @Override
-                        public void onDataChange(@NonNull DataSnapshot userSnapshot) {
-                            User user = userSnapshot.getValue(User.class);
-                            if (user != null) {
-                                contacts.add(user); // Rebuild contacts with detailed info
-                                adapter.notifyAdapterDataSetChanged(); // Update RecyclerView
-                            }
-                        }
-
-                        @Override
-                        public void onCancelled(@NonNull DatabaseError databaseError) {
-                            // Handle possible errors
-                        }
-                    });
+                if (hydrator.isCancelled()) return;
+                Contacts contactIds = readContacts(dataSnapshot);
+                if (dataSnapshot.hasChild(LEGACY_CONTACTS_KEY)) {
+                    migrateLegacyContacts(contactsRef, contactIds);
                 }
+                localStore.saveContactIds(currentUserId, contactIds.getUserIDs());
+                hydrator.hydrate(contactIds);
             }
 
             @Override
             public void onCancelled(@NonNull DatabaseError databaseError) {
-                // Handle possible errors
+                Log.w("FirebaseApi", "loadContactData:onCancelled", databaseError.toException());
             }
         });
+        return hydrator;
     }
 
     /**
-     * Loads messages for a specific chat and notifies the provided adapter of any changes. This
-     * method should be used to populate the UI with messages from a chat.
+     * Loads messages for a specific chat into a sliding window and notifies the provided adapter
+     * of every change. Only the most recent {@link MessagePager#PAGE_SIZE} messages are fetched
+     * up front; newer messages arrive through child events and older pages are fetched on demand
+     * through {@link MessagePager#loadOlder()}. Changes are reported as range notifications so
+     * that only the affected rows are rebound. The messages stored in {@link LocalStore} are shown
+     * while the first page is loading, and messages still in the {@link MessageOutbox} are shown as
+     * pending.
      *
+     * @param owner    The lifecycle the pager is tied to; it is stopped when the owner is destroyed.
      * @param chatId   The ID of the chat for which messages are loaded.
      * @param messages The list to store the message data.
      * @param adapter  The adapter to be notified of data changes.
+     * @return The pager driving the window, which may also be stopped earlier.
      */
-    public static void loadMessagesForChat(String chatId, List<Message> messages, GenericAdapterNotifier adapter) {
+    public static MessagePager loadMessagesForChat(LifecycleOwner owner, String chatId, MessageStore messages, GenericAdapterNotifier adapter) {
         DatabaseReference messagesRef = FirebaseDatabase.getInstance().getReference("messages").child(chatId);
 
-        messagesRef.addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                messages.clear(); // Clear existing messages before loading new ones
-                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                    Message message = snapshot.getValue(Message.class);
-                    if (message != null) {
-                        messages.add(message);
-                    }
-                }
-                adapter.notifyAdapterDataSetChanged(); // Notify the adapter of data changes
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                // Handle possible errors
-            }
-        });
+        MessagePager pager = new MessagePager(messagesRef, LocalStore.getInstance(), MessageOutbox.getInstance(), messages, adapter);
+        ListenerRegistry.getInstance().bindToLifecycle(owner, pager::stop);
+        pager.start();
+        return pager;
     }
 
     /**
      * Loads the current user's stickers from the database, updating a local list. This method
      * facilitates the display and management of the user's sticker collection within the app,
-     * ensuring the UI reflects the most current data.
+     * ensuring the UI reflects the most current data. Usage is read from the
+     * {@code users/{uid}/stickerCounts} map; the first call in a process also migrates any legacy
+     * {@code users/{uid}/stickers} list into that map.
+     *
+     * The callback is normally invoked twice: first with the counts stored in {@link LocalStore},
+     * then with the counts read from the database.
      *
      * @param callback             Callback to notify when the list has been updated.
      */
     public static void loadUserStickers(StickerDataCallback callback) {
         String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-        DatabaseReference userStickersRef = FirebaseDatabase.getInstance().getReference("users").child(currentUserId).child("stickers");
+        DatabaseReference userRef = FirebaseDatabase.getInstance().getReference("users").child(currentUserId);
+
+        // The stored counts are only shown if they arrive before the current ones
+        boolean[] networkLoaded = {false};
+        StickerDataCallback networkCallback = stickers -> {
+            networkLoaded[0] = true;
+            if (callback != null) callback.onStickersLoaded(stickers);
+        };
+        LocalStore.getInstance().loadStickerCounts(currentUserId, storedStickers -> {
+            if (!networkLoaded[0] && callback != null) callback.onStickersLoaded(storedStickers);
+        });
+
+        if (stickerMigrationChecked.add(currentUserId)) {
+            migrateLegacyStickers(userRef, () -> readStickerCounts(userRef, networkCallback));
+        } else {
+            readStickerCounts(userRef, networkCallback);
+        }
+    }
 
-        userStickersRef.addListenerForSingleValueEvent(new ValueEventListener() {
+    /**
+     * Reads the sticker usage counters of a user and hands them to the callback as stickers.
+     *
+     * @param userRef  Reference to {@code users/{uid}}.
+     * @param callback Callback to notify when the list has been loaded.
+     */
+    private static void readStickerCounts(DatabaseReference userRef, StickerDataCallback callback) {
+        userRef.child("stickerCounts").addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
                 List<Sticker> stickers = new ArrayList<>();
-                for (DataSnapshot stickerSnapshot : dataSnapshot.getChildren()) {
-                    Sticker sticker = stickerSnapshot.getValue(Sticker.class);
-                    if (sticker != null) {
-                        stickers.add(sticker);
+                for (DataSnapshot countSnapshot : dataSnapshot.getChildren()) {
+                    Long count = countSnapshot.getValue(Long.class);
+                    if (count != null) {
+                        stickers.add(new Sticker(countSnapshot.getKey(), count.intValue()));
                     }
                 }
+                LocalStore.getInstance().saveStickerCounts(userRef.getKey(), stickers);
                 if (callback != null) {
                     callback.onStickersLoaded(stickers);
                 }
@@ -551,6 +778,64 @@ public class FirebaseApi {
         });
     }
 
+    /**
+     * Moves a legacy {@code users/{uid}/stickers} list into the {@code stickerCounts} map. Only the
+     * list node is read to find out whether there is anything to migrate. If there is, the counts
+     * are added to the map and the list is deleted in one transaction on the user node, so the
+     * counts are never lost between the two writes and a list migrated by another device is not
+     * counted twice.
+     *
+     * @param userRef    Reference to {@code users/{uid}}.
+     * @param onComplete Run once the migration has finished or was not needed.
+     */
+    private static void migrateLegacyStickers(DatabaseReference userRef, Runnable onComplete) {
+        userRef.child("stickers").addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                if (!dataSnapshot.exists()) {
+                    onComplete.run();
+                    return;
+                }
+                userRef.runTransaction(new Transaction.Handler() {
+                    @NonNull
+                    @Override
+                    public Transaction.Result doTransaction(@NonNull MutableData userData) {
+                        // Run again with the stored value when the node was not cached locally
+                        if (userData.getValue() == null) return Transaction.success(userData);
+                        MutableData legacy = userData.child("stickers");
+                        MutableData counts = userData.child("stickerCounts");
+                        for (MutableData stickerData : legacy.getChildren()) {
+                            Sticker sticker = ModelMapper.stickerFromValue(stickerData.getValue());
+                            if (sticker != null && sticker.getId() != null) {
+                                MutableData count = counts.child(sticker.getId());
+                                Long current = count.getValue(Long.class);
+                                count.setValue((current == null ? 0 : current) + sticker.getCount());
+                            }
+                        }
+                        legacy.setValue(null);
+                        return Transaction.success(userData);
+                    }
+
+                    @Override
+                    public void onComplete(@Nullable DatabaseError databaseError, boolean committed, @Nullable DataSnapshot dataSnapshot) {
+                        if (databaseError != null) {
+                            Log.w("FirebaseApi", "migrateLegacyStickers:onComplete", databaseError.toException());
+                        } else if (committed) {
+                            UserProfileCache.getInstance().invalidate(userRef.getKey());
+                        }
+                        onComplete.run();
+                    }
+                });
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                Log.w("FirebaseApi", "migrateLegacyStickers:onCancelled", databaseError.toException());
+                onComplete.run();
+            }
+        });
+    }
+
     /**
      * Finds an existing chat with the given participants or creates a new one if it doesn't exist.
      * Navigates to the MessageActivity with the chat ID once the operation is complete.
@@ -561,7 +846,6 @@ public class FirebaseApi {
      */
     public static void findOrCreateChatWithUsers(Context context, List<String> participantIds, String initialMessage) {
         DatabaseReference chatsRef = FirebaseDatabase.getInstance().getReference("chats");
-        DatabaseReference usersRef = FirebaseDatabase.getInstance().getReference("users");
 
         String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
         if (!participantIds.contains(currentUserId)) {
@@ -577,179 +861,110 @@ public class FirebaseApi {
             @Override
             public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
                 if (!dataSnapshot.exists()) {
-                    // Chat doesn't exist, create a new chat
-                    final String[] chatName = {""};
-                    Map<String, Boolean> userIdsMap = new HashMap<>();
-                    for (String userId : participantIds) {
-                        userIdsMap.put(userId, true);
-                        // Do not Skip the current user when setting the chat name
-                        if(!userId.equals(currentUserId)) {
-                            usersRef.child(userId).addListenerForSingleValueEvent(new ValueEventListener() {
-                                @Override
-                                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                                    User user = snapshot.getValue(User.class);
-                                    if (user != null) {
-                                        chatName[0] = chatName[0].isEmpty() ? user.getName() : chatName[0] + ", " + user.getName();
-                                        // If this is the last user to fetch, create the chat
-                                        if (chatName[0].split(", ").length == (participantIds.size() - 1)) {
-                                            Chat newChat = new Chat(chatId, new ArrayList<>(userIdsMap.keySet()), chatName[0], initialMessage, getCurrentTimestamp(), "");
-                                            chatsRef.child(chatId).setValue(newChat).addOnCompleteListener(task -> {
-                                                if (task.isSuccessful()) {
-                                                    // Navigate to MessageActivity with the new or found chatId
-                                                    Intent intent = new Intent(context, MessageActivity.class);
-                                                    intent.putExtra("chatId", chatId);
-                                                    context.startActivity(intent);
-                                                }
-                                            });
-                                        }
-                                    }
-                                }
-
-                                @Override
-                                public void onCancelled(@NonNull DatabaseError error) {
-                                    // Handle possible errors
-                                }
-                            });
+                    // Chat doesn't exist, create a new chat named after the other participants
+                    List<String> otherUserIds = new ArrayList<>(participantIds);
+                    otherUserIds.remove(currentUserId);
+                    UserProfileCache.getInstance().getUsers(otherUserIds, users -> {
+                        // Every participant must resolve before the chat is created
+                        if (users.size() != otherUserIds.size()) {
+                            Log.w("FirebaseApi", "findOrCreateChatWithUsers: resolved " + users.size()
+                                    + " of " + otherUserIds.size() + " participants of " + chatId);
+                            Toast.makeText(context, "Unable to start the chat, please try again", Toast.LENGTH_SHORT).show();
+                            return;
                         }
-                    }
+                        StringBuilder chatName = new StringBuilder();
+                        for (String userId : otherUserIds) {
+                            if (chatName.length() > 0) chatName.append(", ");
+                            chatName.append(users.get(userId).getName());
+                        }
+                        Chat newChat = new Chat(chatId, participantIds, chatName.toString(), initialMessage, 0, ""); // The server assigns the timestamp
+                        // Write the chat and every participant's index entry together
+                        Map<String, Object> chatUpdates = new HashMap<>();
+                        chatUpdates.put("chats/" + chatId, ModelMapper.toMap(newChat));
+                        chatUpdates.putAll(userChatsIndexUpdates(chatId, participantIds));
+                        databaseReference.updateChildren(chatUpdates).addOnCompleteListener(task -> {
+                            if (task.isSuccessful()) {
+                                // Navigate to MessageActivity with the new or found chatId
+                                Intent intent = new Intent(context, MessageActivity.class);
+                                intent.putExtra("chatId", chatId);
+                                intent.putStringArrayListExtra("userIds", new ArrayList<>(participantIds));
+                                context.startActivity(intent);
+                            } else {
+                                Log.w("FirebaseApi", "findOrCreateChatWithUsers:create", task.getException());
+                                Toast.makeText(context, "Unable to start the chat, please try again", Toast.LENGTH_SHORT).show();
+                            }
+                        });
+                    });
                 } else {
                     // Chat exists, navigate to MessageActivity with chatId
                     Intent intent = new Intent(context, MessageActivity.class);
                     intent.putExtra("chatId", chatId);
+                    intent.putStringArrayListExtra("userIds", new ArrayList<>(participantIds));
                     context.startActivity(intent);
                 }
             }
 
             @Override
             public void onCancelled(@NonNull DatabaseError databaseError) {
-                // Handle possible errors
+                Log.w("FirebaseApi", "findOrCreateChatWithUsers:onCancelled", databaseError.toException());
+                Toast.makeText(context, "Unable to start the chat, please try again", Toast.LENGTH_SHORT).show();
             }
         });
     }
 
     /**
-     * Generates a string representation of the current time using the "HH:mm" format (24-hour format).
-     * This method is useful for creating timestamps for chat messages or other time-sensitive data
-     * in the application.
+     * Builds the multi-path updates that list a chat in the {@code userChats/{uid}} index of each
+     * of its participants. Writing these alongside every chat update keeps the index self-healing
+     * for chats that were created before it existed. Each entry holds the server time of the
+     * update, so a user's chats can be ordered by recency straight from the index.
      *
-     * @return A string representing the current time in the "HH:mm" format.
+     * @param chatId  The chat id.
+     * @param userIds The participants of the chat.
+     * @return Root-relative paths mapped to {@link ServerValue#TIMESTAMP}.
      */
-    private static String getCurrentTimestamp() {
-        SimpleDateFormat sdf = new SimpleDateFormat("ddMMM HH:mm", Locale.getDefault());
-        return sdf.format(new Date());
+    static Map<String, Object> userChatsIndexUpdates(String chatId, List<String> userIds) {
+        Map<String, Object> indexUpdates = new HashMap<>();
+        for (String userId : userIds) {
+            indexUpdates.put("userChats/" + userId + "/" + chatId, ServerValue.TIMESTAMP);
+        }
+        return indexUpdates;
     }
 
     /**
-     * Sends a message or sticker within a specified chat. If the content type is a text message, it
-     * is sent directly. For stickers, this method handles the addition or update of the sticker count
-     * in the user's sticker collection before sending. It ensures that the chat's last message and
-     * timestamp are updated accordingly. In the case of stickers, a unique format is applied to the
-     * last message for easy identification.
+     * Sends a message or sticker within a specified chat. The message gets its push id on the
+     * client and is handed to the {@link MessageOutbox}, which journals it, shows it as pending
+     * and writes it together with any other messages sent in the same burst. Each batch writes
+     * the messages, the chats' last message, timestamp and sender, the participants' chat index
+     * entries and, for stickers, the sender's usage counters in a single atomic multi-location
+     * update.
+     * Sticker messages are stored in the chat's last message with a unique format for easy
+     * identification, and the sticker counter is bumped with a server-side increment so that
+     * concurrent sends from several devices never conflict.
      *
      * @param chatId       The ID of the chat where the message is to be sent.
+     * @param chatUserIds  The participants of the chat, or null if the caller does not know them;
+     *                     the outbox then reads them from the chat.
      * @param messageText  The content of the message, or the sticker ID if a sticker is being sent.
-     * @param stickerCount The usage count of the sticker being sent, relevant only for sticker messages.
      * @param type         Indicates whether the message is a "text" or "sticker".
-     * @param callback     Callback to handle the result of the send operation.
+     * @return The queued message, or null if no message id could be generated.
      */
-    public static void sendMessage(String chatId, String messageText, int stickerCount, String type, MessageSendCallback callback) {
+    @Nullable
+    public static Message sendMessage(String chatId, @Nullable List<String> chatUserIds, String messageText, String type) {
         DatabaseReference messagesRef = databaseReference.child("messages").child(chatId);
         String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid(); // Ensure proper authentication handling
 
-        DatabaseReference chatsRef = databaseReference.child("chats").child(chatId);
-        DatabaseReference userRef = FirebaseDatabase.getInstance().getReference("users").child(currentUserId);
-
         String messageId = messagesRef.push().getKey();
-        if (messageId != null) {
-            Message newMessage;
-            // handle texts and stickers differently
-            if(type.equals("text")) {
-                newMessage = new Message(chatId, messageId, messageText, currentUserId, getCurrentTimestamp(), type, "-1");
-
-                messagesRef.child(messageId).setValue(newMessage).addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        // Update the chat with the new last message and timestamp
-                        Map<String, Object> chatUpdates = new HashMap<>();
-                        chatUpdates.put("lastMessage", messageText);
-                        chatUpdates.put("timestamp", getCurrentTimestamp());
-
-                        // Perform the update on the chat reference
-                        chatsRef.updateChildren(chatUpdates).addOnCompleteListener(updateTask -> {
-                            if (updateTask.isSuccessful()) {
-                                // Notify caller of success
-                                if (callback != null) callback.onSuccess(newMessage);
-                            } else {
-                                // Handle update failure
-                                if (callback != null) callback.onFailure();
-                            }
-                        });
-                    } else {
-                        // Notify caller of message send failure
-                        if (callback != null) callback.onFailure();
-                    }
-                });
-            } else {
-                newMessage = new Message(chatId, messageId, messageText, currentUserId, getCurrentTimestamp(), type, messageText);
-
-                // Perform a transaction to update the user's stickers
-                userRef.runTransaction(new Transaction.Handler() {
-                   @NonNull
-                   @Override
-                   public Transaction.Result doTransaction(@NonNull MutableData mutableData) {
-                       User user = mutableData.getValue(User.class);
-                       if (user == null) {
-                           return Transaction.success(mutableData); // User does not exist, abort the transaction
-                       }
-
-                       // addSticker modifies the user's stickers list correctly
-                       Sticker stickerToAdd = new Sticker(messageText, stickerCount);
-                       user.addSticker(stickerToAdd); // This method should handle the logic of updating counts
-
-                       // Set the updated user object back into the transaction
-                       mutableData.setValue(user);
-                       return Transaction.success(mutableData);
-                   }
-                    @Override
-                    public void onComplete(@Nullable DatabaseError databaseError, boolean committed, @Nullable DataSnapshot dataSnapshot) {
-                        // Transaction completed
-                        if (committed) {
-                            // Sticker count updated, now send the sticker message
-                            messagesRef.child(messageId).setValue(newMessage).addOnCompleteListener(task -> {
-                                if (task.isSuccessful()) {
-                                    // Sticker count updated, now send the sticker message with a special format
-                                    String stickerMessageFormat = "%sticker%:" + messageText; // Assuming messageText is the sticker ID
-
-                                    // Update the chat with the new last message and timestamp
-                                    Map<String, Object> chatUpdates = new HashMap<>();
-                                    chatUpdates.put("lastMessage", stickerMessageFormat);
-                                    chatUpdates.put("timestamp", getCurrentTimestamp());
-
-                                    // Perform the update on the chat reference
-                                    chatsRef.updateChildren(chatUpdates).addOnCompleteListener(updateTask -> {
-                                        if (updateTask.isSuccessful()) {
-                                            // Notify caller of success
-                                            if (callback != null) callback.onSuccess(newMessage);
-                                        } else {
-                                            // Handle update failure
-                                            if (callback != null) callback.onFailure();
-                                        }
-                                    });
-                                } else {
-                                    // Notify caller of message send failure
-                                    if (callback != null) callback.onFailure();
-                                }
-                            });
-                        } else {
-                            // Transaction failed to commit
-                            if (callback != null) callback.onFailure();
-                        }
-                    }
-                });
-            }
-        } else {
+        if (messageId == null) {
             // Handle the case where messageId could not be generated
-            if (callback != null) callback.onFailure();
+            return null;
         }
+
+        boolean isSticker = type.equals("sticker");
+        // handle texts and stickers differently; the server assigns the timestamp when the message is written
+        Message newMessage = new Message(chatId, messageId, messageText, currentUserId, 0, type, isSticker ? messageText : "-1");
+        newMessage.setChatUserIds(chatUserIds);
+        MessageOutbox.getInstance().enqueue(newMessage);
+        return newMessage;
     }
 
     /**
@@ -760,11 +975,19 @@ public class FirebaseApi {
     }
 
     /**
-     * Callback interface for sending a message.
+     * Callback interface for sign-ups that do not complete.
+     */
+    public interface UserRegistrationCallback {
+        void onUsernameTaken();
+
+        default void onRegistrationFailed() { }
+    }
+
+    /**
+     * Callback interface for checking whether a username is free.
      */
-    public interface MessageSendCallback {
-        void onSuccess(Message message);
-        void onFailure();
+    public interface UsernameAvailabilityCallback {
+        void onAvailabilityChecked(UsernameClaim.Availability availability);
     }
 
     public interface StickerDataCallback {
@@ -0,0 +1,218 @@
+package edu.northeastern.cs5520_lab6.api;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.northeastern.cs5520_lab6.contacts.GenericAdapterNotifier;
+
+/**
+ * Batches bursts of list changes into one update per display frame. Changes are queued with
+ * {@link #post(Runnable)} and applied together on the next {@link Choreographer} frame, before
+ * the frame is laid out. While a batch is applied, the notifications it produces are merged:
+ * adjacent inserts, removals and changes become one range notification, and changes to rows
+ * inserted by the same batch are dropped, as those rows are bound fresh anyway.
+ *
+ * A burst of messages in a busy group chat therefore reaches the adapter as a single range insert
+ * per frame, instead of one insert, rebind and scroll per server event.
+ *
+ * Changes are applied to the list only when their notifications are sent, in the same main-thread
+ * task, so the adapter never sees a list that is out of step with what it was told. Notifications
+ * made outside a batch are forwarded straight away. All methods must be called on the main thread.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class FrameCoalescer implements GenericAdapterNotifier {
+    private static final int NONE = 0;
+    private static final int INSERTED = 1;
+    private static final int REMOVED = 2;
+    private static final int CHANGED = 3;
+
+    private final GenericAdapterNotifier target;
+    private final List<Runnable> queued = new ArrayList<>(); // Changes waiting for the next frame
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> flush();
+    private boolean frameScheduled;
+    private boolean applying; // True while a batch is being applied
+
+    // The range notification being merged
+    private int pendingType = NONE;
+    private int pendingStart;
+    private int pendingCount;
+    private Object pendingPayload;
+
+    /**
+     * Creates a coalescer in front of an adapter.
+     *
+     * @param target The adapter the merged notifications are sent to.
+     */
+    public FrameCoalescer(GenericAdapterNotifier target) {
+        this.target = target;
+    }
+
+    /**
+     * Queues a change to be applied on the next frame, along with every other change queued until
+     * then. The change reports what it did to this coalescer, not to the adapter.
+     *
+     * @param change Mutates the list and notifies this coalescer.
+     */
+    public void post(Runnable change) {
+        queued.add(change);
+        if (!frameScheduled) {
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * Applies the queued changes right away instead of waiting for the next frame.
+     */
+    public void flush() {
+        if (frameScheduled) {
+            frameScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+        }
+        if (queued.isEmpty()) return;
+        List<Runnable> batch = new ArrayList<>(queued);
+        queued.clear();
+        applying = true;
+        try {
+            for (Runnable change : batch) {
+                change.run();
+            }
+        } finally {
+            applying = false;
+            dispatchPending();
+        }
+    }
+
+    /**
+     * Drops the queued changes without applying them.
+     */
+    public void cancel() {
+        queued.clear();
+        if (frameScheduled) {
+            frameScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+        }
+    }
+
+    @Override
+    public void notifyAdapterDataSetChanged() {
+        clearPending();
+        target.notifyAdapterDataSetChanged();
+    }
+
+    @Override
+    public void notifyAdapterItemRangeInserted(int positionStart, int itemCount) {
+        if (!applying) {
+            target.notifyAdapterItemRangeInserted(positionStart, itemCount);
+        } else if (pendingType == INSERTED && positionStart >= pendingStart && positionStart <= pendingStart + pendingCount) {
+            pendingCount += itemCount; // Lands inside or right after the range being inserted
+        } else {
+            startPending(INSERTED, positionStart, itemCount, null);
+        }
+    }
+
+    @Override
+    public void notifyAdapterItemChanged(int position) {
+        notifyAdapterItemRangeChanged(position, 1, null);
+    }
+
+    @Override
+    public void notifyAdapterItemChanged(int position, Object payload) {
+        notifyAdapterItemRangeChanged(position, 1, payload);
+    }
+
+    @Override
+    public void notifyAdapterItemRangeChanged(int positionStart, int itemCount, Object payload) {
+        if (!applying) {
+            target.notifyAdapterItemRangeChanged(positionStart, itemCount, payload);
+        } else if (pendingType == INSERTED && positionStart >= pendingStart && positionStart + itemCount <= pendingStart + pendingCount) {
+            // The rows have not been bound yet; they are bound with their final contents
+        } else if (pendingType == CHANGED && pendingPayload == payload
+                && positionStart <= pendingStart + pendingCount && positionStart + itemCount >= pendingStart) {
+            int end = Math.max(pendingStart + pendingCount, positionStart + itemCount);
+            pendingStart = Math.min(pendingStart, positionStart);
+            pendingCount = end - pendingStart;
+        } else {
+            startPending(CHANGED, positionStart, itemCount, payload);
+        }
+    }
+
+    @Override
+    public void notifyAdapterItemRemoved(int position) {
+        notifyAdapterItemRangeRemoved(position, 1);
+    }
+
+    @Override
+    public void notifyAdapterItemRangeRemoved(int positionStart, int itemCount) {
+        if (!applying) {
+            target.notifyAdapterItemRangeRemoved(positionStart, itemCount);
+        } else if (pendingType == REMOVED && (positionStart == pendingStart || positionStart + itemCount == pendingStart)) {
+            pendingStart = positionStart;
+            pendingCount += itemCount;
+        } else {
+            startPending(REMOVED, positionStart, itemCount, null);
+        }
+    }
+
+    @Override
+    public void notifyAdapterItemMoved(int fromPosition, int toPosition) {
+        dispatchPending();
+        target.notifyAdapterItemMoved(fromPosition, toPosition);
+    }
+
+    /**
+     * Sends the range being merged and starts merging a new one.
+     *
+     * @param type          The kind of notification.
+     * @param positionStart Position of the first affected item.
+     * @param itemCount     Number of items affected.
+     * @param payload       The payload of a change, or null.
+     */
+    private void startPending(int type, int positionStart, int itemCount, Object payload) {
+        dispatchPending();
+        pendingType = type;
+        pendingStart = positionStart;
+        pendingCount = itemCount;
+        pendingPayload = payload;
+    }
+
+    /**
+     * Sends the range being merged to the adapter, if there is one.
+     */
+    private void dispatchPending() {
+        int type = pendingType;
+        clearPending();
+        switch (type) {
+            case INSERTED:
+                target.notifyAdapterItemRangeInserted(pendingStart, pendingCount);
+                break;
+            case REMOVED:
+                if (pendingCount == 1) {
+                    target.notifyAdapterItemRemoved(pendingStart);
+                } else {
+                    target.notifyAdapterItemRangeRemoved(pendingStart, pendingCount);
+                }
+                break;
+            case CHANGED:
+                if (pendingCount == 1) {
+                    target.notifyAdapterItemChanged(pendingStart, pendingPayload);
+                } else {
+                    target.notifyAdapterItemRangeChanged(pendingStart, pendingCount, pendingPayload);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Forgets the range being merged.
+     */
+    private void clearPending() {
+        pendingType = NONE;
+    }
+}
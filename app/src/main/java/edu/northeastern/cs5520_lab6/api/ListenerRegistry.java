@@ -0,0 +1,201 @@
+package edu.northeastern.cs5520_lab6.api;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Single place through which every long-lived Firebase listener of the app is attached. Each
+ * registration can be tied to a {@link LifecycleOwner}, in which case it is detached automatically
+ * when the owner is destroyed, so recreating an activity or a fragment's view never leaves an
+ * extra copy of a listener behind.
+ *
+ * The registry keeps a live count of the active listeners on every database path. A count that
+ * keeps growing as a screen is reopened is a leak; {@link #getActiveListenerCount(String)} and
+ * {@link #getActiveListenerCount()} make that visible in tests.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class ListenerRegistry {
+    /**
+     * Handle for an attached listener.
+     */
+    public interface Registration {
+        /**
+         * Detaches the listener. Calling this more than once has no effect.
+         */
+        void remove();
+    }
+
+    private static ListenerRegistry instance;
+
+    private final Map<String, Integer> activeCounts = new HashMap<>(); // path -> active listeners
+
+    /**
+     * Returns the shared registry.
+     *
+     * @return The process-wide listener registry.
+     */
+    public static synchronized ListenerRegistry getInstance() {
+        if (instance == null) {
+            instance = new ListenerRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * Attaches a value listener that stays attached until its registration is removed.
+     *
+     * @param query    The location or query to listen to.
+     * @param listener The listener.
+     * @return The registration of the listener.
+     */
+    public Registration addValueEventListener(Query query, ValueEventListener listener) {
+        query.addValueEventListener(listener);
+        return track(pathOf(query), () -> query.removeEventListener(listener));
+    }
+
+    /**
+     * Attaches a child listener that stays attached until its registration is removed.
+     *
+     * @param query    The location or query to listen to.
+     * @param listener The listener.
+     * @return The registration of the listener.
+     */
+    public Registration addChildEventListener(Query query, ChildEventListener listener) {
+        query.addChildEventListener(listener);
+        return track(pathOf(query), () -> query.removeEventListener(listener));
+    }
+
+    /**
+     * Attaches a value listener that is detached when the owner is destroyed.
+     *
+     * @param owner    The lifecycle the listener is tied to.
+     * @param query    The location or query to listen to.
+     * @param listener The listener.
+     * @return The registration of the listener, which may also be removed earlier.
+     */
+    public Registration addValueEventListener(LifecycleOwner owner, Query query, ValueEventListener listener) {
+        Registration registration = addValueEventListener(query, listener);
+        bindToLifecycle(owner, registration::remove);
+        return registration;
+    }
+
+    /**
+     * Attaches a child listener that is detached when the owner is destroyed.
+     *
+     * @param owner    The lifecycle the listener is tied to.
+     * @param query    The location or query to listen to.
+     * @param listener The listener.
+     * @return The registration of the listener, which may also be removed earlier.
+     */
+    public Registration addChildEventListener(LifecycleOwner owner, Query query, ChildEventListener listener) {
+        Registration registration = addChildEventListener(query, listener);
+        bindToLifecycle(owner, registration::remove);
+        return registration;
+    }
+
+    /**
+     * Runs a teardown action when the owner is destroyed, or immediately if it already is. This is
+     * how subscriptions made of several listeners, such as {@link UserChatsSubscription} and
+     * {@link MessagePager}, are tied to a screen. Must be called on the main thread.
+     *
+     * @param owner    The lifecycle to follow.
+     * @param teardown The action that detaches the subscription.
+     */
+    public void bindToLifecycle(LifecycleOwner owner, Runnable teardown) {
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            teardown.run();
+            return;
+        }
+        lifecycle.addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    source.getLifecycle().removeObserver(this);
+                    teardown.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns how many listeners are currently attached to a path.
+     *
+     * @param path The database path, for example {@code /userChats/abc}.
+     * @return The number of active listeners on the path.
+     */
+    public synchronized int getActiveListenerCount(String path) {
+        Integer count = activeCounts.get(path);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Returns how many listeners are currently attached across all paths.
+     *
+     * @return The total number of active listeners.
+     */
+    public synchronized int getActiveListenerCount() {
+        int total = 0;
+        for (int count : activeCounts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Counts a newly attached listener and wraps its detach action so it is counted down once.
+     *
+     * @param path   The path the listener is attached to.
+     * @param detach Detaches the listener from Firebase.
+     * @return The registration of the listener.
+     */
+    Registration track(String path, Runnable detach) {
+        synchronized (this) {
+            activeCounts.put(path, getActiveListenerCount(path) + 1);
+        }
+        return new Registration() {
+            private boolean removed;
+
+            @Override
+            public void remove() {
+                synchronized (ListenerRegistry.this) {
+                    if (removed) return;
+                    removed = true;
+                    int remaining = getActiveListenerCount(path) - 1;
+                    if (remaining > 0) {
+                        activeCounts.put(path, remaining);
+                    } else {
+                        activeCounts.remove(path);
+                    }
+                }
+                detach.run();
+            }
+        };
+    }
+
+    /**
+     * Returns the database path a query listens to, relative to the database root. Queries on the
+     * same location share a path.
+     *
+     * @param query The query.
+     * @return The path, starting with "/".
+     */
+    static String pathOf(Query query) {
+        DatabaseReference ref = query.getRef();
+        String url = ref.toString();
+        String rootUrl = ref.getRoot().toString();
+        return url.length() > rootUrl.length() ? url.substring(rootUrl.length()) : "/";
+    }
+}
@@ -0,0 +1,568 @@
+package edu.northeastern.cs5520_lab6.api;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import edu.northeastern.cs5520_lab6.contacts.User;
+import edu.northeastern.cs5520_lab6.messages.Chat;
+import edu.northeastern.cs5520_lab6.messages.Message;
+import edu.northeastern.cs5520_lab6.stickers.Sticker;
+import edu.northeastern.cs5520_lab6.stickers.StickerRanking;
+
+/**
+ * On-device copy of the data the app's screens display: chats, messages, user profiles, contact
+ * lists and sticker counts, plus the journal of outgoing messages kept by {@link MessageOutbox}
+ * and the sticker scores kept by {@link StickerRanking}.
+ * {@link FirebaseApi} writes every piece of data it receives from the
+ * Firebase Realtime Database through to this store, and reads from it before going to the
+ * network, so that screens can render immediately from disk, including after a process restart
+ * or while offline.
+ *
+ * All database work runs on a single background thread; load results are delivered on the main
+ * thread. The store must be initialised once with {@link #init(Context)} before it is used.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class LocalStore extends SQLiteOpenHelper {
+    /**
+     * Callback interface for asynchronous loads from the store.
+     *
+     * @param <T> The type of the loaded data.
+     */
+    public interface LoadCallback<T> {
+        /**
+         * Called on the main thread with the loaded data.
+         *
+         * @param result The loaded data; never null.
+         */
+        void onLoaded(T result);
+    }
+
+    private static final String DATABASE_NAME = "messenger.db";
+    private static final int DATABASE_VERSION = 6;
+    private static final String[] CACHE_TABLES = {"chats", "messages", "users", "contacts", "sticker_counts"};
+    private static final String[] MESSAGE_COLUMNS = {"chat_id", "id", "text", "sender_id", "timestamp", "message_type", "sticker_id"};
+    private static final String[] OUTBOX_COLUMNS = {"chat_id", "id", "text", "sender_id", "timestamp", "message_type", "sticker_id", "user_ids"};
+
+    private static LocalStore instance;
+
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Initialises the shared store. Safe to call more than once.
+     *
+     * @param context Any context; the application context is retained.
+     */
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            instance = new LocalStore(context.getApplicationContext());
+        }
+    }
+
+    /**
+     * Returns the shared store.
+     *
+     * @return The store initialised by {@link #init(Context)}.
+     */
+    public static synchronized LocalStore getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("LocalStore.init(Context) has not been called");
+        }
+        return instance;
+    }
+
+    private LocalStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    /**
+     * Creates the tables of the store.
+     *
+     * @param db The database being created.
+     */
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        createCacheTables(db);
+        if (oldVersion >= 2 && oldVersion < 6) {
+            db.execSQL("ALTER TABLE outbox ADD COLUMN user_ids TEXT");
+        }
+        createOutboxTable(db);
+        createStickerScoreTable(db);
+    }
+
+    /**
+     * Creates the tables holding copies of server data.
+     *
+     * @param db The database.
+     */
+    private static void createCacheTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE chats (owner_id TEXT NOT NULL, id TEXT NOT NULL, user_ids TEXT, name TEXT, "
+                + "last_message TEXT, timestamp INTEGER, avatar_url TEXT, last_sender_id TEXT, last_sender_name TEXT, "
+                + "PRIMARY KEY (owner_id, id))");
+        db.execSQL("CREATE TABLE messages (chat_id TEXT NOT NULL, id TEXT NOT NULL, text TEXT, sender_id TEXT, "
+                + "timestamp INTEGER, message_type TEXT, sticker_id TEXT, PRIMARY KEY (chat_id, id))");
+        db.execSQL("CREATE TABLE users (id TEXT PRIMARY KEY, name TEXT, username TEXT, email TEXT, "
+                + "welcome_message TEXT, image_url TEXT)");
+        db.execSQL("CREATE TABLE contacts (owner_id TEXT NOT NULL, contact_id TEXT NOT NULL, PRIMARY KEY (owner_id, contact_id))");
+        db.execSQL("CREATE TABLE sticker_counts (owner_id TEXT NOT NULL, sticker_id TEXT NOT NULL, count INTEGER NOT NULL, "
+                + "PRIMARY KEY (owner_id, sticker_id))");
+    }
+
+    /**
+     * Creates the outgoing message journal. Unlike the cache tables it holds data that exists
+     * nowhere else, so it is never dropped. Journals created while timestamps were text keep that
+     * column type; the numeric values written since are stored as text there and read back the same.
+     *
+     * @param db The database.
+     */
+    private static void createOutboxTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS outbox (chat_id TEXT NOT NULL, id TEXT PRIMARY KEY, text TEXT, "
+                + "sender_id TEXT, timestamp INTEGER, message_type TEXT, sticker_id TEXT, user_ids TEXT)");
+    }
+
+    /**
+     * Creates the table of sticker scores kept by {@link StickerRanking}. Like the outbox, the
+     * scores exist only on this device.
+     *
+     * @param db The database.
+     */
+    private static void createStickerScoreTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS sticker_scores (owner_id TEXT NOT NULL, sticker_id TEXT NOT NULL, "
+                + "score REAL NOT NULL, updated_at INTEGER NOT NULL, PRIMARY KEY (owner_id, sticker_id))");
+    }
+
+    /**
+     * The cache tables only hold copies of server data, so an upgrade simply starts them over from
+     * empty. The outbox and the sticker scores are kept; an outbox from before version 6 gains the
+     * column holding the chat's participants.
+     *
+     * @param db         The database being upgraded.
+     * @param oldVersion The version on disk.
+     * @param newVersion The version of this code.
+     */
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        for (String table : CACHE_TABLES) {
+            db.execSQL("DROP TABLE IF EXISTS " + table);
+        }
+        createCacheTables(db);
+        createOutboxTable(db);
+        createStickerScoreTable(db);
+    }
+
+    // Chats
+
+    /**
+     * Loads every stored chat of a user.
+     *
+     * @param ownerId  The user whose chats are loaded.
+     * @param callback Receives the chats.
+     */
+    public void loadChats(String ownerId, LoadCallback<List<Chat>> callback) {
+        load(() -> {
+            List<Chat> chats = new ArrayList<>();
+            try (Cursor cursor = getReadableDatabase().query("chats",
+                    new String[]{"id", "user_ids", "name", "last_message", "timestamp", "avatar_url", "last_sender_id", "last_sender_name"},
+                    "owner_id = ?", new String[]{ownerId}, null, null, null)) {
+                while (cursor.moveToNext()) {
+                    String userIds = cursor.getString(1);
+                    Chat chat = new Chat(cursor.getString(0),
+                            userIds == null ? new ArrayList<String>() : new ArrayList<>(Arrays.asList(userIds.split(","))),
+                            cursor.getString(2), cursor.getString(3), cursor.getLong(4), cursor.getString(5));
+                    chat.setLastSenderId(cursor.getString(6));
+                    chat.setLastSenderName(cursor.getString(7));
+                    chats.add(chat);
+                }
+            }
+            return chats;
+        }, callback);
+    }
+
+    /**
+     * Stores or replaces a chat of a user.
+     *
+     * @param ownerId The user the chat belongs to.
+     * @param chat    The chat.
+     */
+    public void saveChat(String ownerId, Chat chat) {
+        diskExecutor.execute(() -> {
+            ContentValues values = new ContentValues();
+            values.put("owner_id", ownerId);
+            values.put("id", chat.getId());
+            values.put("user_ids", chat.getUserIds() == null ? null : TextUtils.join(",", chat.getUserIds()));
+            values.put("name", chat.getName());
+            values.put("last_message", chat.getLastMessage());
+            values.put("timestamp", chat.getTimestamp());
+            values.put("avatar_url", chat.getAvatarUrl());
+            values.put("last_sender_id", chat.getLastSenderId());
+            values.put("last_sender_name", chat.getLastSenderName());
+            getWritableDatabase().insertWithOnConflict("chats", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        });
+    }
+
+    /**
+     * Removes a chat of a user.
+     *
+     * @param ownerId The user the chat belongs to.
+     * @param chatId  The chat id.
+     */
+    public void removeChat(String ownerId, String chatId) {
+        diskExecutor.execute(() -> getWritableDatabase()
+                .delete("chats", "owner_id = ? AND id = ?", new String[]{ownerId, chatId}));
+    }
+
+    // Messages
+
+    /**
+     * Loads the most recent stored messages of a chat, oldest first.
+     *
+     * @param chatId   The chat id.
+     * @param limit    The maximum number of messages.
+     * @param callback Receives the messages.
+     */
+    public void loadRecentMessages(String chatId, int limit, LoadCallback<List<Message>> callback) {
+        load(() -> {
+            List<Message> messages = new ArrayList<>();
+            try (Cursor cursor = getReadableDatabase().query("messages",
+                    new String[]{"id", "text", "sender_id", "timestamp", "message_type", "sticker_id"},
+                    "chat_id = ?", new String[]{chatId}, null, null, "id DESC", String.valueOf(limit))) {
+                while (cursor.moveToNext()) {
+                    messages.add(new Message(chatId, cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                            cursor.getLong(3), cursor.getString(4), cursor.getString(5)));
+                }
+            }
+            Collections.reverse(messages);
+            return messages;
+        }, callback);
+    }
+
+    /**
+     * Stores or replaces a batch of messages in one transaction.
+     *
+     * @param messages The messages.
+     */
+    public void saveMessages(List<Message> messages) {
+        List<Message> batch = new ArrayList<>(messages);
+        diskExecutor.execute(() -> {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (Message message : batch) {
+                    insertMessage(db, message);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    /**
+     * Stores or replaces a single message.
+     *
+     * @param message The message.
+     */
+    public void saveMessage(Message message) {
+        diskExecutor.execute(() -> insertMessage(getWritableDatabase(), message));
+    }
+
+    /**
+     * Removes a single message.
+     *
+     * @param chatId    The chat the message belongs to.
+     * @param messageId The message id.
+     */
+    public void removeMessage(String chatId, String messageId) {
+        diskExecutor.execute(() -> getWritableDatabase()
+                .delete("messages", "chat_id = ? AND id = ?", new String[]{chatId, messageId}));
+    }
+
+    private static void insertMessage(SQLiteDatabase db, Message message) {
+        db.insertWithOnConflict("messages", null, messageValues(message), SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private static ContentValues messageValues(Message message) {
+        ContentValues values = new ContentValues();
+        values.put("chat_id", message.getChatId());
+        values.put("id", message.getId());
+        values.put("text", message.getText());
+        values.put("sender_id", message.getSenderId());
+        values.put("timestamp", message.getTimestamp());
+        values.put("message_type", message.getMessageType());
+        values.put("sticker_id", message.getStickerId());
+        return values;
+    }
+
+    // Outbox
+
+    /**
+     * Loads every message in the outgoing journal, oldest first.
+     *
+     * @param callback Receives the queued messages, marked as pending.
+     */
+    public void loadOutbox(LoadCallback<List<Message>> callback) {
+        load(() -> {
+            List<Message> messages = new ArrayList<>();
+            try (Cursor cursor = getReadableDatabase().query("outbox", OUTBOX_COLUMNS,
+                    null, null, null, null, "id")) {
+                while (cursor.moveToNext()) {
+                    // Journals written before timestamps became numeric read back as 0, which the server replaces
+                    Message message = new Message(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                            cursor.getString(3), cursor.getLong(4), cursor.getString(5), cursor.getString(6));
+                    String userIds = cursor.getString(7); // Null for messages queued before it was journaled
+                    if (userIds != null) message.setChatUserIds(new ArrayList<>(Arrays.asList(userIds.split(","))));
+                    message.setPending(true);
+                    messages.add(message);
+                }
+            }
+            return messages;
+        }, callback);
+    }
+
+    /**
+     * Adds a message to the outgoing journal.
+     *
+     * @param message The queued message.
+     */
+    public void saveOutboxMessage(Message message) {
+        ContentValues values = messageValues(message);
+        values.put("user_ids", message.getChatUserIds() == null ? null : TextUtils.join(",", message.getChatUserIds()));
+        diskExecutor.execute(() -> getWritableDatabase()
+                .insertWithOnConflict("outbox", null, values, SQLiteDatabase.CONFLICT_REPLACE));
+    }
+
+    /**
+     * Removes messages that have been acknowledged or given up on from the outgoing journal.
+     *
+     * @param messageIds The message ids.
+     */
+    public void removeOutboxMessages(List<String> messageIds) {
+        List<String> ids = new ArrayList<>(messageIds);
+        diskExecutor.execute(() -> {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (String id : ids) {
+                    db.delete("outbox", "id = ?", new String[]{id});
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    // Users and contacts
+
+    /**
+     * Loads the stored contacts of a user, with their stored profiles.
+     *
+     * @param ownerId  The user whose contacts are loaded.
+     * @param callback Receives the contacts that have a stored profile.
+     */
+    public void loadContacts(String ownerId, LoadCallback<List<User>> callback) {
+        load(() -> {
+            List<User> contacts = new ArrayList<>();
+            try (Cursor cursor = getReadableDatabase().rawQuery(
+                    "SELECT u.id, u.name, u.username, u.email, u.welcome_message, u.image_url "
+                            + "FROM contacts c JOIN users u ON u.id = c.contact_id WHERE c.owner_id = ?",
+                    new String[]{ownerId})) {
+                while (cursor.moveToNext()) {
+                    contacts.add(new User(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                            cursor.getString(3), cursor.getString(4), cursor.getString(5)));
+                }
+            }
+            return contacts;
+        }, callback);
+    }
+
+    /**
+     * Replaces the stored contact list of a user.
+     *
+     * @param ownerId    The user the contacts belong to.
+     * @param contactIds The ids of every contact.
+     */
+    public void saveContactIds(String ownerId, List<String> contactIds) {
+        List<String> ids = new ArrayList<>(contactIds);
+        diskExecutor.execute(() -> {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                db.delete("contacts", "owner_id = ?", new String[]{ownerId});
+                for (String contactId : ids) {
+                    ContentValues values = new ContentValues();
+                    values.put("owner_id", ownerId);
+                    values.put("contact_id", contactId);
+                    db.insertWithOnConflict("contacts", null, values, SQLiteDatabase.CONFLICT_IGNORE);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    /**
+     * Stores or replaces a user profile.
+     *
+     * @param user The profile.
+     */
+    public void saveUser(User user) {
+        List<User> users = new ArrayList<>();
+        users.add(user);
+        saveUsers(users);
+    }
+
+    /**
+     * Stores or replaces a batch of user profiles in one transaction.
+     *
+     * @param users The profiles.
+     */
+    public void saveUsers(List<User> users) {
+        List<User> batch = new ArrayList<>(users);
+        diskExecutor.execute(() -> {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (User user : batch) {
+                    ContentValues values = new ContentValues();
+                    values.put("id", user.getUserId());
+                    values.put("name", user.getName());
+                    values.put("username", user.getUsername());
+                    values.put("email", user.getEmail());
+                    values.put("welcome_message", user.getWelcomeMessage());
+                    values.put("image_url", user.getImageUrl());
+                    db.insertWithOnConflict("users", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    // Stickers
+
+    /**
+     * Loads the stored sticker counts of a user.
+     *
+     * @param ownerId  The user whose counts are loaded.
+     * @param callback Receives the counts as stickers.
+     */
+    public void loadStickerCounts(String ownerId, LoadCallback<List<Sticker>> callback) {
+        load(() -> {
+            List<Sticker> stickers = new ArrayList<>();
+            try (Cursor cursor = getReadableDatabase().query("sticker_counts", new String[]{"sticker_id", "count"},
+                    "owner_id = ?", new String[]{ownerId}, null, null, null)) {
+                while (cursor.moveToNext()) {
+                    stickers.add(new Sticker(cursor.getString(0), cursor.getInt(1)));
+                }
+            }
+            return stickers;
+        }, callback);
+    }
+
+    /**
+     * Replaces the stored sticker counts of a user.
+     *
+     * @param ownerId  The user the counts belong to.
+     * @param stickers The counts as stickers.
+     */
+    public void saveStickerCounts(String ownerId, List<Sticker> stickers) {
+        List<Sticker> counts = new ArrayList<>(stickers);
+        diskExecutor.execute(() -> {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                db.delete("sticker_counts", "owner_id = ?", new String[]{ownerId});
+                for (Sticker sticker : counts) {
+                    ContentValues values = new ContentValues();
+                    values.put("owner_id", ownerId);
+                    values.put("sticker_id", sticker.getId());
+                    values.put("count", sticker.getCount());
+                    db.insertWithOnConflict("sticker_counts", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    /**
+     * Loads the sticker scores of a user.
+     *
+     * @param ownerId  The user whose scores are loaded.
+     * @param callback Receives the scores by sticker id.
+     */
+    public void loadStickerScores(String ownerId, LoadCallback<Map<String, StickerRanking.Score>> callback) {
+        load(() -> {
+            Map<String, StickerRanking.Score> scores = new HashMap<>();
+            try (Cursor cursor = getReadableDatabase().query("sticker_scores", new String[]{"sticker_id", "score", "updated_at"},
+                    "owner_id = ?", new String[]{ownerId}, null, null, null)) {
+                while (cursor.moveToNext()) {
+                    scores.put(cursor.getString(0), new StickerRanking.Score(cursor.getDouble(1), cursor.getLong(2)));
+                }
+            }
+            return scores;
+        }, callback);
+    }
+
+    /**
+     * Stores or replaces the score of a sticker.
+     *
+     * @param ownerId   The user the score belongs to.
+     * @param stickerId The sticker.
+     * @param score     The score.
+     */
+    public void saveStickerScore(String ownerId, String stickerId, StickerRanking.Score score) {
+        diskExecutor.execute(() -> {
+            ContentValues values = new ContentValues();
+            values.put("owner_id", ownerId);
+            values.put("sticker_id", stickerId);
+            values.put("score", score.value);
+            values.put("updated_at", score.updatedAt);
+            getWritableDatabase().insertWithOnConflict("sticker_scores", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        });
+    }
+
+    /**
+     * Runs a query on the disk thread and delivers its result on the main thread.
+     *
+     * @param query    The query to run.
+     * @param callback Receives the result.
+     * @param <T>      The type of the result.
+     */
+    private <T> void load(Query<T> query, LoadCallback<T> callback) {
+        diskExecutor.execute(() -> {
+            T result = query.run();
+            mainHandler.post(() -> callback.onLoaded(result));
+        });
+    }
+
+    /**
+     * A database read run on the disk thread.
+     *
+     * @param <T> The type of the result.
+     */
+    private interface Query<T> {
+        T run();
+    }
+}
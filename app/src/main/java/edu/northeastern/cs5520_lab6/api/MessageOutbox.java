@@ -0,0 +1,415 @@
+package edu.northeastern.cs5520_lab6.api;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.GenericTypeIndicator;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import edu.northeastern.cs5520_lab6.contacts.User;
+import edu.northeastern.cs5520_lab6.messages.Message;
+
+/**
+ * Durable queue of outgoing messages. A message handed to {@link #enqueue(Message)} is written to
+ * the {@link LocalStore} journal straight away and shown as pending, so it is neither lost when a
+ * send fails nor when the process dies before the server has acknowledged it.
+ *
+ * Messages queued in quick succession are coalesced and written in a single multi-location
+ * update once {@link #BATCH_WINDOW_MILLIS} has passed. Only one batch is in flight at a time;
+ * a failed batch is retried with exponential backoff, and a batch rejected by the database rules
+ * is split so that a single bad message cannot block the rest. Messages restored from the journal
+ * after a restart are checked against the server first, since their batch may have been committed
+ * just before the process died.
+ *
+ * All methods must be called on the main thread.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class MessageOutbox {
+    /**
+     * Callback interface for changes to the outbox. Every method has an empty default.
+     */
+    public interface OutboxListener {
+        /**
+         * Called when a message has been queued, including when it is restored from the journal.
+         *
+         * @param message The pending message.
+         */
+        default void onMessageQueued(Message message) { }
+
+        /**
+         * Called once the server has acknowledged a message.
+         *
+         * @param message The acknowledged message, no longer pending.
+         */
+        default void onMessageSent(Message message) { }
+
+        /**
+         * Called when a message was rejected by the database and has been dropped from the outbox.
+         *
+         * @param message The rejected message.
+         */
+        default void onMessageFailed(Message message) { }
+    }
+
+    /**
+     * Time a queued message waits for further messages to be batched with it.
+     */
+    public static final long BATCH_WINDOW_MILLIS = 100;
+
+    /**
+     * Maximum number of messages written in one batch.
+     */
+    public static final int MAX_BATCH_SIZE = 50;
+
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 60 * 1000;
+
+    private static MessageOutbox instance;
+
+    private final DatabaseReference rootRef;
+    private final LocalStore localStore;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final LinkedHashMap<String, Message> queued = new LinkedHashMap<>(); // messageId -> message, in send order
+    private final Map<String, Message> inFlight = new HashMap<>(); // Messages of the batch being written
+    private final List<OutboxListener> listeners = new CopyOnWriteArrayList<>();
+    private final Runnable flushRunnable = this::flush;
+    private boolean flushScheduled;
+    private boolean splitNextBatch; // True after a batch was rejected, to isolate the bad message
+    private int consecutiveFailures;
+
+    /**
+     * Returns the shared outbox, restoring the journal of a previous process the first time.
+     *
+     * @return The process-wide outbox.
+     */
+    public static synchronized MessageOutbox getInstance() {
+        if (instance == null) {
+            instance = new MessageOutbox(FirebaseDatabase.getInstance().getReference(), LocalStore.getInstance());
+            instance.restore();
+        }
+        return instance;
+    }
+
+    /**
+     * Creates an outbox writing to the given database root and journaling to the given store.
+     *
+     * @param rootRef    Reference to the database root.
+     * @param localStore Store holding the journal.
+     */
+    MessageOutbox(DatabaseReference rootRef, LocalStore localStore) {
+        this.rootRef = rootRef;
+        this.localStore = localStore;
+    }
+
+    /**
+     * Registers a listener for outbox changes.
+     *
+     * @param listener The listener.
+     */
+    public void addListener(OutboxListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener The listener.
+     */
+    public void removeListener(OutboxListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the messages of a chat that have not been acknowledged yet, in send order.
+     *
+     * @param chatId The chat id.
+     * @return The pending messages.
+     */
+    public List<Message> getPendingMessages(String chatId) {
+        List<Message> pending = new ArrayList<>();
+        for (Message message : inFlight.values()) {
+            if (chatId.equals(message.getChatId())) pending.add(message);
+        }
+        for (Message message : queued.values()) {
+            if (chatId.equals(message.getChatId())) pending.add(message);
+        }
+        return pending;
+    }
+
+    /**
+     * Returns whether a message is still waiting to be acknowledged.
+     *
+     * @param messageId The message id.
+     * @return true if the message is queued or in flight.
+     */
+    public boolean isPending(String messageId) {
+        return queued.containsKey(messageId) || inFlight.containsKey(messageId);
+    }
+
+    /**
+     * Journals a message, marks it as pending and schedules it to be written.
+     *
+     * @param message A message with its client-generated push id set.
+     */
+    public void enqueue(Message message) {
+        message.setPending(true);
+        localStore.saveOutboxMessage(message);
+        queued.put(message.getId(), message);
+        for (OutboxListener listener : listeners) {
+            listener.onMessageQueued(message);
+        }
+        scheduleFlush(BATCH_WINDOW_MILLIS);
+    }
+
+    /**
+     * Loads the journal left by a previous process. Messages that already reached the server are
+     * dropped; the others are queued again.
+     */
+    private void restore() {
+        localStore.loadOutbox(journaled -> {
+            for (Message message : journaled) {
+                rootRef.child("messages").child(message.getChatId()).child(message.getId())
+                        .addListenerForSingleValueEvent(new ValueEventListener() {
+                            @Override
+                            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                                if (snapshot.exists()) {
+                                    acknowledge(message);
+                                } else {
+                                    queued.put(message.getId(), message);
+                                    for (OutboxListener listener : listeners) {
+                                        listener.onMessageQueued(message);
+                                    }
+                                    scheduleFlush(0);
+                                }
+                            }
+
+                            @Override
+                            public void onCancelled(@NonNull DatabaseError databaseError) {
+                                Log.w("MessageOutbox", "restore:onCancelled", databaseError.toException());
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * Schedules a flush unless one is already scheduled.
+     *
+     * @param delayMillis Delay before the flush.
+     */
+    private void scheduleFlush(long delayMillis) {
+        if (flushScheduled) return;
+        flushScheduled = true;
+        handler.postDelayed(flushRunnable, delayMillis);
+    }
+
+    /**
+     * Writes the oldest queued messages in one multi-location update. The senders' display names
+     * are resolved through the {@link UserProfileCache} first, so they can be denormalised onto
+     * the chats, along with the participants of any chat the sender did not pass them for.
+     */
+    private void flush() {
+        flushScheduled = false;
+        if (!inFlight.isEmpty() || queued.isEmpty()) return;
+
+        int batchSize = splitNextBatch ? 1 : MAX_BATCH_SIZE;
+        List<Message> batch = new ArrayList<>();
+        for (Message message : queued.values()) {
+            if (batch.size() == batchSize) break;
+            batch.add(message);
+        }
+        Set<String> senderIds = new HashSet<>();
+        for (Message message : batch) {
+            queued.remove(message.getId());
+            inFlight.put(message.getId(), message);
+            senderIds.add(message.getSenderId());
+        }
+
+        UserProfileCache.getInstance().getUsers(senderIds, senders ->
+                resolveChatUserIds(batch, () -> writeBatch(batch, senders)));
+    }
+
+    /**
+     * Reads the participants of the chats whose messages were queued without them, from
+     * {@code chats/{chatId}/userIds}. A chat that cannot be read is written without refreshing its
+     * index entries.
+     *
+     * @param batch  The messages to write.
+     * @param onDone Run once every read has finished.
+     */
+    private void resolveChatUserIds(List<Message> batch, Runnable onDone) {
+        Map<String, List<Message>> unresolved = new HashMap<>(); // chatId -> its messages without participants
+        for (Message message : batch) {
+            if (message.getChatUserIds() != null) continue;
+            List<Message> messages = unresolved.get(message.getChatId());
+            if (messages == null) {
+                messages = new ArrayList<>();
+                unresolved.put(message.getChatId(), messages);
+            }
+            messages.add(message);
+        }
+        if (unresolved.isEmpty()) {
+            onDone.run();
+            return;
+        }
+
+        int[] pending = {unresolved.size()};
+        for (Map.Entry<String, List<Message>> chat : unresolved.entrySet()) {
+            rootRef.child("chats").child(chat.getKey()).child("userIds")
+                    .addListenerForSingleValueEvent(new ValueEventListener() {
+                        @Override
+                        public void onDataChange(@NonNull DataSnapshot snapshot) {
+                            List<String> userIds = snapshot.getValue(new GenericTypeIndicator<List<String>>() { });
+                            for (Message message : chat.getValue()) {
+                                message.setChatUserIds(userIds);
+                            }
+                            if (--pending[0] == 0) onDone.run();
+                        }
+
+                        @Override
+                        public void onCancelled(@NonNull DatabaseError databaseError) {
+                            Log.w("MessageOutbox", "resolveChatUserIds:onCancelled", databaseError.toException());
+                            if (--pending[0] == 0) onDone.run();
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Writes a batch and handles the outcome: acknowledged messages leave the outbox, a rejected
+     * single message is dropped and anything else is put back and retried.
+     *
+     * @param batch   The messages to write, in send order.
+     * @param senders The resolved profiles of the batch's senders.
+     */
+    private void writeBatch(List<Message> batch, Map<String, User> senders) {
+        rootRef.updateChildren(batchUpdates(batch, senders), (databaseError, databaseReference) -> {
+            for (Message message : batch) {
+                inFlight.remove(message.getId());
+            }
+            if (databaseError == null) {
+                consecutiveFailures = 0;
+                splitNextBatch = false;
+                for (Message message : batch) {
+                    acknowledge(message);
+                }
+            } else if (databaseError.getCode() == DatabaseError.PERMISSION_DENIED && batch.size() == 1) {
+                // Retrying a rejected message cannot succeed; give up on it so the rest can go through
+                Log.w("MessageOutbox", "flush: message rejected", databaseError.toException());
+                splitNextBatch = false;
+                reject(batch.get(0));
+            } else {
+                // Put the batch back in front of anything queued meanwhile and retry later
+                LinkedHashMap<String, Message> requeued = new LinkedHashMap<>();
+                for (Message message : batch) {
+                    requeued.put(message.getId(), message);
+                }
+                requeued.putAll(queued);
+                queued.clear();
+                queued.putAll(requeued);
+                if (databaseError.getCode() == DatabaseError.PERMISSION_DENIED) {
+                    splitNextBatch = true;
+                    scheduleFlush(0);
+                    return;
+                }
+                consecutiveFailures++;
+                Log.w("MessageOutbox", "flush: attempt " + consecutiveFailures + " failed", databaseError.toException());
+                scheduleFlush(backoffMillis());
+                return;
+            }
+            if (!queued.isEmpty()) scheduleFlush(0);
+        });
+    }
+
+    /**
+     * Builds the multi-location update for a batch: each message, the last message, timestamp and
+     * sender of every affected chat, the participants' chat index entries and, for stickers, one
+     * summed increment per sender and sticker.
+     *
+     * @param batch   The messages to write, in send order.
+     * @param senders The resolved profiles of the batch's senders.
+     * @return Root-relative paths mapped to their new values.
+     */
+    private static Map<String, Object> batchUpdates(List<Message> batch, Map<String, User> senders) {
+        Map<String, Object> updates = new HashMap<>();
+        Map<String, Integer> stickerIncrements = new HashMap<>(); // counter path -> amount
+        for (Message message : batch) {
+            String chatId = message.getChatId();
+            boolean isSticker = "sticker".equals(message.getMessageType());
+            updates.put("messages/" + chatId + "/" + message.getId(), ModelMapper.toMap(message));
+            // Later messages of the same chat overwrite the preview of earlier ones
+            updates.put("chats/" + chatId + "/lastMessage", isSticker ? "%sticker%:" + message.getStickerId() : message.getText());
+            updates.put("chats/" + chatId + "/timestamp", ServerValue.TIMESTAMP);
+            User sender = senders.get(message.getSenderId());
+            updates.put("chats/" + chatId + "/lastSenderId", message.getSenderId());
+            updates.put("chats/" + chatId + "/lastSenderName", sender != null ? sender.getName() : null);
+            if (message.getChatUserIds() != null) {
+                updates.putAll(FirebaseApi.userChatsIndexUpdates(chatId, message.getChatUserIds()));
+            }
+            if (isSticker) {
+                String counterPath = "users/" + message.getSenderId() + "/stickerCounts/" + message.getStickerId();
+                Integer amount = stickerIncrements.get(counterPath);
+                stickerIncrements.put(counterPath, amount == null ? 1 : amount + 1);
+            }
+        }
+        for (Map.Entry<String, Integer> increment : stickerIncrements.entrySet()) {
+            updates.put(increment.getKey(), ServerValue.increment(increment.getValue()));
+        }
+        return updates;
+    }
+
+    /**
+     * Returns the delay before the next retry, doubling with every consecutive failure.
+     *
+     * @return The delay in milliseconds.
+     */
+    private long backoffMillis() {
+        int exponent = Math.min(consecutiveFailures - 1, 10);
+        return Math.min(INITIAL_BACKOFF_MILLIS << exponent, MAX_BACKOFF_MILLIS);
+    }
+
+    /**
+     * Removes an acknowledged message from the journal and reports it as sent.
+     *
+     * @param message The acknowledged message.
+     */
+    private void acknowledge(Message message) {
+        message.setPending(false);
+        localStore.removeOutboxMessages(Collections.singletonList(message.getId()));
+        for (OutboxListener listener : listeners) {
+            listener.onMessageSent(message);
+        }
+    }
+
+    /**
+     * Removes a rejected message from the journal and reports it as failed.
+     *
+     * @param message The rejected message.
+     */
+    private void reject(Message message) {
+        localStore.removeOutboxMessages(Collections.singletonList(message.getId()));
+        for (OutboxListener listener : listeners) {
+            listener.onMessageFailed(message);
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package edu.northeastern.cs5520_lab6.api;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.northeastern.cs5520_lab6.contacts.AdapterDiffs;
+import edu.northeastern.cs5520_lab6.contacts.GenericAdapterNotifier;
+import edu.northeastern.cs5520_lab6.messages.Message;
+import edu.northeastern.cs5520_lab6.messages.MessageAdapter;
+import edu.northeastern.cs5520_lab6.messages.MessageStore;
+
+/**
+ * Maintains a sliding window over the messages of a single chat. The window opens on the most
+ * recent {@link #PAGE_SIZE} messages, follows new messages through child events, and fetches
+ * older pages on demand when the user scrolls towards the start of the conversation.
+ *
+ * Every change is applied to the backing list in place and reported to the
+ * {@link GenericAdapterNotifier} as the narrowest possible range notification, so the adapter
+ * only rebinds the rows that actually changed instead of the whole chat history. When the stored
+ * messages are merged into the window or replaced by the first page, the window is diffed by
+ * message id against what was shown before, so rows that survive are neither rebound nor
+ * flicker. The diff is computed on the main thread, as the window is at most two pages plus the
+ * pending messages at that point.
+ *
+ * Every message received is also written to the {@link LocalStore}, and the window is seeded
+ * from the store while the first page is in flight, so reopening a chat shows its latest
+ * messages straight from disk.
+ *
+ * Messages still waiting in the {@link MessageOutbox} are shown as pending at their place in the
+ * window. When their server echo arrives it replaces the pending row instead of adding a second
+ * one, and the row stops being pending once the outbox reports the message as sent.
+ *
+ * Snapshots are mapped to messages by the {@link SnapshotDecoder} on a background thread; the
+ * window is only touched on the main thread, once a page or event has been decoded. Decoded live
+ * events are applied through a {@link FrameCoalescer}, so a burst of messages is added to the
+ * window once per frame and reported as a single range insert.
+ *
+ * Instances are created through {@link FirebaseApi#loadMessagesForChat}.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class MessagePager {
+    /**
+     * Number of messages fetched for the initial window and for every older page.
+     */
+    public static final int PAGE_SIZE = 50;
+
+    private final DatabaseReference messagesRef; // messages/{chatId}
+    private final LocalStore localStore; // On-device copy of the messages
+    private final MessageOutbox outbox; // Messages sent but not yet acknowledged
+    private final MessageStore messages; // Backing list shared with the adapter
+    private final FrameCoalescer notifier; // Merges and forwards range notifications
+    private final SnapshotDecoder decoder = SnapshotDecoder.getInstance();
+    private final SnapshotDecoder.Decoder<Message> messageDecoder = ModelMapper::messageFromSnapshot;
+
+    private ListenerRegistry.Registration liveRegistration; // Listener for messages newer than the initial page
+    private MessageOutbox.OutboxListener outboxListener; // Listener for this chat's outgoing messages
+    private boolean loading; // True while a page request is in flight
+    private boolean reachedStart; // True once the first message of the chat is in the window
+    private boolean stopped; // True once the pager has been detached
+    private boolean firstPageLoaded; // True once the window holds network data
+
+    /**
+     * Creates a pager over the given messages node. The pager does nothing until
+     * {@link #start()} is called.
+     *
+     * @param messagesRef Reference to the {@code messages/{chatId}} node.
+     * @param localStore  Store the messages are read from first and written through to.
+     * @param outbox      Outbox whose pending messages are shown in the window.
+     * @param messages    The list the adapter displays; it is mutated in place.
+     * @param notifier    Notified of every change made to {@code messages}.
+     */
+    MessagePager(DatabaseReference messagesRef, LocalStore localStore, MessageOutbox outbox,
+                 MessageStore messages, GenericAdapterNotifier notifier) {
+        this.messagesRef = messagesRef;
+        this.localStore = localStore;
+        this.outbox = outbox;
+        this.messages = messages;
+        this.notifier = new FrameCoalescer(notifier);
+    }
+
+    /**
+     * Shows the stored messages of the chat, loads the most recent page of messages and then starts
+     * listening for newer ones. The stored messages are replaced by the page once it arrives.
+     */
+    void start() {
+        loading = true;
+        attachOutboxListener();
+        addPendingMessages();
+        if (!messages.isEmpty()) {
+            notifier.notifyAdapterItemRangeInserted(0, messages.size());
+        }
+
+        localStore.loadRecentMessages(messagesRef.getKey(), PAGE_SIZE, storedMessages -> {
+            if (stopped || firstPageLoaded || storedMessages.isEmpty()) return;
+            List<Message> previous = new ArrayList<>(messages);
+            for (Message message : storedMessages) {
+                if (indexOfKey(message.getId()) == -1) {
+                    messages.add(insertionPointFor(message.getId()), message);
+                }
+            }
+            if (previous.isEmpty()) {
+                notifier.notifyAdapterItemRangeInserted(0, messages.size());
+            } else {
+                dispatchDiff(previous);
+            }
+        });
+        messagesRef.orderByKey().limitToLast(PAGE_SIZE).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                if (stopped) return;
+                decoder.decodeChildren(dataSnapshot, messageDecoder, null, page -> showFirstPage(page));
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                loading = false;
+                Log.w("MessagePager", "start:onCancelled", databaseError.toException());
+            }
+        });
+    }
+
+    /**
+     * Replaces the stored messages in the window with the decoded first page and starts listening
+     * for newer messages.
+     *
+     * @param page The most recent messages of the chat, oldest first.
+     */
+    private void showFirstPage(List<Message> page) {
+        if (stopped) return;
+        reachedStart = page.size() < PAGE_SIZE;
+        firstPageLoaded = true;
+        localStore.saveMessages(page);
+
+        List<Message> previous = new ArrayList<>(messages);
+        messages.clear();
+        messages.addAll(page);
+        addPendingMessages();
+        if (!previous.isEmpty()) {
+            dispatchDiff(previous);
+        } else if (!messages.isEmpty()) {
+            notifier.notifyAdapterItemRangeInserted(0, messages.size());
+        }
+        loading = false;
+
+        attachLiveListener(page.isEmpty() ? null : page.get(page.size() - 1).getId());
+    }
+
+    /**
+     * Fetches the page of messages immediately preceding the oldest message in the window and
+     * prepends it. Calls made while a page is already loading, or once the start of the chat has
+     * been reached, are ignored, so this is safe to call from every scroll event.
+     */
+    public void loadOlder() {
+        if (stopped || loading || reachedStart || messages.isEmpty()) return;
+        loading = true;
+
+        String oldestKey = messages.getId(0);
+        // endAt is inclusive, so ask for one extra message and drop the one we already have
+        messagesRef.orderByKey().endAt(oldestKey).limitToLast(PAGE_SIZE + 1)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                        if (stopped) return;
+                        decoder.decodeChildren(dataSnapshot, messageDecoder, oldestKey, page -> {
+                            if (stopped) return;
+                            reachedStart = page.size() < PAGE_SIZE;
+                            localStore.saveMessages(page);
+                            if (!page.isEmpty()) {
+                                messages.addAll(0, page);
+                                notifier.notifyAdapterItemRangeInserted(0, page.size());
+                            }
+                            loading = false;
+                        });
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError databaseError) {
+                        loading = false;
+                        Log.w("MessagePager", "loadOlder:onCancelled", databaseError.toException());
+                    }
+                });
+    }
+
+    /**
+     * Returns whether the first message of the chat is already part of the window.
+     *
+     * @return true if there are no older pages left to load.
+     */
+    public boolean hasReachedStart() {
+        return reachedStart;
+    }
+
+    /**
+     * Detaches the live listener and drops live events not applied yet. The backing list is left
+     * untouched.
+     */
+    public void stop() {
+        stopped = true;
+        notifier.cancel();
+        if (outboxListener != null) {
+            outbox.removeListener(outboxListener);
+            outboxListener = null;
+        }
+        if (liveRegistration != null) {
+            liveRegistration.remove();
+            liveRegistration = null;
+        }
+    }
+
+    /**
+     * Attaches a child listener for every message at or after {@code newestKey}. The message with
+     * {@code newestKey} itself is already in the window and is skipped when it is replayed.
+     *
+     * @param newestKey Key of the newest message in the initial page, or null for an empty chat.
+     */
+    private void attachLiveListener(@Nullable String newestKey) {
+        Query liveQuery = newestKey == null ? messagesRef.orderByKey() : messagesRef.orderByKey().startAt(newestKey);
+        ChildEventListener liveListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                decoder.decode(snapshot, messageDecoder, decoded -> {
+                    if (!stopped && !decoded.isEmpty()) notifier.post(() -> onMessageAdded(decoded.get(0)));
+                });
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                decoder.decode(snapshot, messageDecoder, decoded -> {
+                    if (!stopped && !decoded.isEmpty()) notifier.post(() -> onMessageChanged(decoded.get(0)));
+                });
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                // Queued behind the decodes still pending, so a removal never overtakes its own add
+                decoder.decode(snapshot, DataSnapshot::getKey, keys -> {
+                    if (!stopped && !keys.isEmpty()) notifier.post(() -> onMessageRemoved(keys.get(0)));
+                });
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                // Messages are ordered by key, which never changes
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                Log.w("MessagePager", "live:onCancelled", databaseError.toException());
+            }
+        };
+        liveRegistration = ListenerRegistry.getInstance().addChildEventListener(liveQuery, liveListener);
+    }
+
+    /**
+     * Adds a message received from the live listener to the window.
+     *
+     * @param message The decoded message.
+     */
+    private void onMessageAdded(Message message) {
+        localStore.saveMessage(message);
+
+        int position = indexOfKey(message.getId());
+        if (position != -1) {
+            // The echo of a message we sent replaces its pending row
+            if (messages.isPending(position)) {
+                message.setPending(outbox.isPending(message.getId()));
+                messages.set(position, message);
+                notifier.notifyAdapterItemChanged(position);
+            }
+            return;
+        }
+
+        position = insertionPointFor(message.getId());
+        messages.add(position, message);
+        notifier.notifyAdapterItemRangeInserted(position, 1);
+    }
+
+    /**
+     * Replaces a message in the window with its changed version from the live listener.
+     *
+     * @param message The decoded message.
+     */
+    private void onMessageChanged(Message message) {
+        localStore.saveMessage(message);
+        int position = indexOfKey(message.getId());
+        if (position != -1) {
+            message.setPending(outbox.isPending(message.getId()));
+            messages.set(position, message);
+            notifier.notifyAdapterItemChanged(position);
+        }
+    }
+
+    /**
+     * Removes a message deleted on the server from the window.
+     *
+     * @param key The key of the removed message.
+     */
+    private void onMessageRemoved(String key) {
+        // A failed write is reverted locally, but the outbox still holds the message for a retry
+        if (outbox.isPending(key)) return;
+        localStore.removeMessage(messagesRef.getKey(), key);
+        int position = indexOfKey(key);
+        if (position != -1) {
+            messages.remove(position);
+            notifier.notifyAdapterItemRemoved(position);
+        }
+    }
+
+    /**
+     * Listens to the outbox so that messages sent from this chat appear immediately, stop being
+     * pending once acknowledged and disappear if they are rejected.
+     */
+    private void attachOutboxListener() {
+        String chatId = messagesRef.getKey();
+        outboxListener = new MessageOutbox.OutboxListener() {
+            @Override
+            public void onMessageQueued(Message message) {
+                if (!message.getChatId().equals(chatId) || indexOfKey(message.getId()) != -1) return;
+                int position = insertionPointFor(message.getId());
+                messages.add(position, message);
+                notifier.notifyAdapterItemRangeInserted(position, 1);
+            }
+
+            @Override
+            public void onMessageSent(Message message) {
+                if (!message.getChatId().equals(chatId)) return;
+                int position = indexOfKey(message.getId());
+                if (position != -1 && messages.isPending(position)) {
+                    messages.setPending(position, false);
+                    notifier.notifyAdapterItemChanged(position, MessageAdapter.PAYLOAD_PENDING);
+                }
+            }
+
+            @Override
+            public void onMessageFailed(Message message) {
+                if (!message.getChatId().equals(chatId)) return;
+                int position = indexOfKey(message.getId());
+                if (position != -1) {
+                    messages.remove(position);
+                    notifier.notifyAdapterItemRemoved(position);
+                }
+            }
+        };
+        outbox.addListener(outboxListener);
+    }
+
+    /**
+     * Inserts the outbox's pending messages for this chat that are not in the window yet.
+     */
+    private void addPendingMessages() {
+        for (Message message : outbox.getPendingMessages(messagesRef.getKey())) {
+            if (indexOfKey(message.getId()) == -1) {
+                messages.add(insertionPointFor(message.getId()), message);
+            }
+        }
+    }
+
+    /**
+     * Reports the difference between the messages shown before a change to the window and the
+     * messages it holds now.
+     *
+     * @param previous The messages of the window before the change.
+     */
+    private void dispatchDiff(List<Message> previous) {
+        DiffUtil.DiffResult diff = AdapterDiffs.calculate(previous, new ArrayList<>(messages), MessageAdapter.DIFF_CALLBACK);
+        diff.dispatchUpdatesTo(AdapterDiffs.updateCallback(notifier));
+    }
+
+    /**
+     * Finds the position of the message with the given key. The search starts from the newest
+     * message because live events almost always concern the tail of the window.
+     *
+     * @param key The message key.
+     * @return The position of the message, or -1 if it is not in the window.
+     */
+    private int indexOfKey(String key) {
+        return messages.lastIndexOfId(key);
+    }
+
+    /**
+     * Finds where a message with the given key belongs so that the window stays in key order.
+     * New messages normally belong at the end, which is checked first.
+     *
+     * @param key The key of the message being inserted.
+     * @return The insertion position.
+     */
+    private int insertionPointFor(String key) {
+        int position = messages.size();
+        while (position > 0 && messages.getId(position - 1).compareTo(key) > 0) {
+            position--;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,260 @@
+package edu.northeastern.cs5520_lab6.api;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.DataSnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.northeastern.cs5520_lab6.contacts.User;
+import edu.northeastern.cs5520_lab6.messages.Chat;
+import edu.northeastern.cs5520_lab6.messages.Message;
+import edu.northeastern.cs5520_lab6.messages.Timestamps;
+import edu.northeastern.cs5520_lab6.stickers.Sticker;
+
+/**
+ * Hand-written mappers between the database representation and the model classes. The Firebase
+ * bean mapper discovers getters, setters and fields through reflection for every object it maps,
+ * which is one of the most expensive steps in loading a chat; these mappers read and write the
+ * same properties directly.
+ *
+ * The output is the same as the bean mapper's: {@code toMap} produces the same keys, including
+ * null values, and {@code fromSnapshot} sets the same fields from well-formed data. Where the bean
+ * mapper would throw on a value of the wrong type, these mappers treat the property as missing.
+ * When a property is added to one of the models it has to be added here as well.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public final class ModelMapper {
+    private ModelMapper() { }
+
+    // Message
+
+    /**
+     * Maps a {@code messages/{chatId}/{messageId}} snapshot to a message.
+     *
+     * @param snapshot The snapshot.
+     * @return The message, or null if the snapshot holds no message.
+     */
+    @Nullable
+    public static Message messageFromSnapshot(DataSnapshot snapshot) {
+        Map<?, ?> map = asMap(snapshot.getValue());
+        if (map == null) return null;
+        return new Message(
+                string(map, "chatId"),
+                string(map, "id"),
+                string(map, "text"),
+                string(map, "senderId"),
+                Timestamps.parse(map.get("timestamp")),
+                string(map, "messageType"),
+                string(map, "stickerId"));
+    }
+
+    /**
+     * Maps a message to the values stored for it. An unassigned timestamp is written as the server
+     * timestamp placeholder.
+     *
+     * @param message The message.
+     * @return The stored properties of the message.
+     */
+    public static Map<String, Object> toMap(Message message) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("chatId", message.getChatId());
+        map.put("id", message.getId());
+        map.put("text", message.getText());
+        map.put("senderId", message.getSenderId());
+        map.put("timestamp", message.getTimestampValue());
+        map.put("messageType", message.getMessageType());
+        map.put("stickerId", message.getStickerId());
+        return map;
+    }
+
+    // Chat
+
+    /**
+     * Maps a {@code chats/{chatId}} snapshot to a chat.
+     *
+     * @param snapshot The snapshot.
+     * @return The chat, or null if the snapshot holds no chat.
+     */
+    @Nullable
+    public static Chat chatFromSnapshot(DataSnapshot snapshot) {
+        Map<?, ?> map = asMap(snapshot.getValue());
+        if (map == null) return null;
+        Chat chat = new Chat(
+                string(map, "id"),
+                stringList(map.get("userIds")),
+                string(map, "name"),
+                string(map, "lastMessage"),
+                Timestamps.parse(map.get("timestamp")),
+                string(map, "avatarUrl"));
+        chat.setLastSenderId(string(map, "lastSenderId"));
+        chat.setLastSenderName(string(map, "lastSenderName"));
+        return chat;
+    }
+
+    /**
+     * Maps a chat to the values stored for it. An unassigned timestamp is written as the server
+     * timestamp placeholder.
+     *
+     * @param chat The chat.
+     * @return The stored properties of the chat.
+     */
+    public static Map<String, Object> toMap(Chat chat) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", chat.getId());
+        map.put("userIds", chat.getUserIds() == null ? null : new ArrayList<>(chat.getUserIds()));
+        map.put("name", chat.getName());
+        map.put("lastMessage", chat.getLastMessage());
+        map.put("timestamp", chat.getTimestampValue());
+        map.put("avatarUrl", chat.getAvatarUrl());
+        map.put("lastSenderId", chat.getLastSenderId());
+        map.put("lastSenderName", chat.getLastSenderName());
+        return map;
+    }
+
+    // User
+
+    /**
+     * Maps a {@code users/{uid}} snapshot to a user. The contacts stored under the user are not
+     * part of the profile; they are read through {@code FirebaseApi.loadContactData}.
+     *
+     * @param snapshot The snapshot.
+     * @return The user, or null if the snapshot holds no user.
+     */
+    @Nullable
+    public static User userFromSnapshot(DataSnapshot snapshot) {
+        Map<?, ?> map = asMap(snapshot.getValue());
+        if (map == null) return null;
+        User user = new User(
+                string(map, "userId"),
+                string(map, "name"),
+                string(map, "username"),
+                string(map, "email"),
+                string(map, "welcomeMessage"),
+                string(map, "imageUrl"));
+
+        Object stickers = map.get("stickers");
+        if (stickers instanceof List) {
+            List<Sticker> stickerList = new ArrayList<>();
+            for (Object sticker : (List<?>) stickers) {
+                stickerList.add(stickerFromValue(sticker));
+            }
+            user.setStickers(stickerList);
+        }
+
+        Map<?, ?> counts = asMap(map.get("stickerCounts"));
+        if (counts != null) {
+            Map<String, Long> stickerCounts = new HashMap<>();
+            for (Map.Entry<?, ?> entry : counts.entrySet()) {
+                Object count = entry.getValue();
+                stickerCounts.put(String.valueOf(entry.getKey()), count instanceof Number ? ((Number) count).longValue() : null);
+            }
+            user.setStickerCounts(stickerCounts);
+        }
+        return user;
+    }
+
+    /**
+     * Maps a user to the values stored for it. The contacts are excluded, as they are stored as
+     * separate entries.
+     *
+     * @param user The user.
+     * @return The stored properties of the user.
+     */
+    public static Map<String, Object> toMap(User user) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("userId", user.getUserId());
+        map.put("name", user.getName());
+        map.put("username", user.getUsername());
+        map.put("email", user.getEmail());
+        map.put("welcomeMessage", user.getWelcomeMessage());
+        map.put("imageUrl", user.getImageUrl());
+        List<Object> stickers = null;
+        if (user.getStickers() != null) {
+            stickers = new ArrayList<>();
+            for (Sticker sticker : user.getStickers()) {
+                stickers.add(sticker == null ? null : toMap(sticker));
+            }
+        }
+        map.put("stickers", stickers);
+        map.put("stickerCounts", user.getStickerCounts() == null ? null : new HashMap<>(user.getStickerCounts()));
+        return map;
+    }
+
+    // Sticker
+
+    /**
+     * Maps a stored sticker value, as returned by {@code getValue()} of a snapshot or of mutable
+     * transaction data, to a sticker.
+     *
+     * @param value The raw value.
+     * @return The sticker, or null if the value holds no sticker.
+     */
+    @Nullable
+    public static Sticker stickerFromValue(@Nullable Object value) {
+        Map<?, ?> map = asMap(value);
+        if (map == null) return null;
+        Object count = map.get("count");
+        return new Sticker(string(map, "id"), count instanceof Number ? ((Number) count).intValue() : 0);
+    }
+
+    /**
+     * Maps a sticker to the values stored for it.
+     *
+     * @param sticker The sticker.
+     * @return The stored properties of the sticker.
+     */
+    public static Map<String, Object> toMap(Sticker sticker) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", sticker.getId());
+        map.put("count", sticker.getCount());
+        return map;
+    }
+
+    // Raw values
+
+    /**
+     * Returns a raw value as a map.
+     *
+     * @param value The raw value.
+     * @return The value if it is a map, otherwise null.
+     */
+    @Nullable
+    private static Map<?, ?> asMap(@Nullable Object value) {
+        return value instanceof Map ? (Map<?, ?>) value : null;
+    }
+
+    /**
+     * Reads a string property.
+     *
+     * @param map The raw properties.
+     * @param key The property name.
+     * @return The string, or null if it is missing or not a string.
+     */
+    @Nullable
+    private static String string(Map<?, ?> map, String key) {
+        Object value = map.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    /**
+     * Reads a list of strings.
+     *
+     * @param value The raw value.
+     * @return The strings, or null if the value is not a list.
+     */
+    @Nullable
+    private static List<String> stringList(@Nullable Object value) {
+        if (!(value instanceof List)) return null;
+        List<String> strings = new ArrayList<>();
+        for (Object item : (List<?>) value) {
+            strings.add(item instanceof String ? (String) item : null);
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,185 @@
+package edu.northeastern.cs5520_lab6.api;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.DataSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Turns raw {@link DataSnapshot}s into model objects away from the main thread. Mapping a snapshot
+ * onto a model class walks every child and field, which for a page of messages or a long chat list
+ * takes long enough to drop frames. Listeners therefore hand their snapshots to this decoder, which
+ * maps them on a single background thread, normally with a {@link ModelMapper}, and posts the
+ * finished, unmodifiable lists back to the main thread.
+ *
+ * Work is decoded in the order it was submitted and results are delivered in that same order, so
+ * events of one listener, such as the child events of a chat, are never reordered. Snapshots are
+ * immutable, so reading them from the decoder thread is safe.
+ *
+ * Every decode is wrapped in a {@link Trace} section named {@code SnapshotDecoder}, so its cost can
+ * be seen in a system trace next to the frames it no longer blocks, and large decodes are logged
+ * with their duration.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class SnapshotDecoder {
+    /**
+     * Maps a single snapshot onto a model object.
+     *
+     * @param <T> The model type.
+     */
+    public interface Decoder<T> {
+        /**
+         * Maps a snapshot. Called on the decoder thread.
+         *
+         * @param snapshot The snapshot.
+         * @return The model object, or null if the snapshot does not hold one.
+         */
+        @Nullable
+        T decode(DataSnapshot snapshot);
+    }
+
+    /**
+     * Receives decoded objects on the main thread.
+     *
+     * @param <T> The model type.
+     */
+    public interface DecodeCallback<T> {
+        /**
+         * Called on the main thread once decoding has finished.
+         *
+         * @param items The decoded objects, in snapshot order; the list cannot be modified.
+         */
+        void onDecoded(List<T> items);
+    }
+
+    /**
+     * Decodes taking at least this long are logged.
+     */
+    private static final long SLOW_DECODE_MILLIS = 8;
+
+    private static SnapshotDecoder instance;
+
+    private final ExecutorService decodeExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Returns the shared decoder.
+     *
+     * @return The process-wide decoder.
+     */
+    public static synchronized SnapshotDecoder getInstance() {
+        if (instance == null) {
+            instance = new SnapshotDecoder();
+        }
+        return instance;
+    }
+
+    /**
+     * Decodes every child of a snapshot.
+     *
+     * @param parent     The snapshot whose children are decoded.
+     * @param decoder    Maps each child.
+     * @param excludeKey Key of a child to skip, or null.
+     * @param callback   Receives the decoded children in key order on the main thread.
+     * @param <T>        The model type.
+     */
+    public <T> void decodeChildren(DataSnapshot parent, Decoder<T> decoder, @Nullable String excludeKey, DecodeCallback<T> callback) {
+        decodeExecutor.execute(() -> {
+            long startedAt = SystemClock.elapsedRealtime();
+            List<T> items = new ArrayList<>((int) parent.getChildrenCount());
+            Trace.beginSection("SnapshotDecoder");
+            try {
+                for (DataSnapshot snapshot : parent.getChildren()) {
+                    if (snapshot.getKey() != null && snapshot.getKey().equals(excludeKey)) continue;
+                    T item = decodeSafely(decoder, snapshot);
+                    if (item != null) items.add(item);
+                }
+            } finally {
+                Trace.endSection();
+            }
+            logIfSlow(parent, items.size(), startedAt);
+            post(Collections.unmodifiableList(items), callback);
+        });
+    }
+
+    /**
+     * Decodes a single snapshot.
+     *
+     * @param snapshot The snapshot.
+     * @param decoder  Maps the snapshot.
+     * @param callback Receives a list holding the decoded object, or an empty list if the snapshot
+     *                 does not hold one, on the main thread.
+     * @param <T>      The model type.
+     */
+    public <T> void decode(DataSnapshot snapshot, Decoder<T> decoder, DecodeCallback<T> callback) {
+        decodeExecutor.execute(() -> {
+            long startedAt = SystemClock.elapsedRealtime();
+            T item;
+            Trace.beginSection("SnapshotDecoder");
+            try {
+                item = decodeSafely(decoder, snapshot);
+            } finally {
+                Trace.endSection();
+            }
+            logIfSlow(snapshot, item == null ? 0 : 1, startedAt);
+            post(item == null ? Collections.<T>emptyList() : Collections.singletonList(item), callback);
+        });
+    }
+
+    /**
+     * Maps one snapshot, treating data that does not fit the model as absent rather than letting
+     * the exception kill the decoder thread.
+     *
+     * @param decoder  Maps the snapshot.
+     * @param snapshot The snapshot.
+     * @param <T>      The model type.
+     * @return The model object, or null.
+     */
+    @Nullable
+    private static <T> T decodeSafely(Decoder<T> decoder, DataSnapshot snapshot) {
+        try {
+            return decoder.decode(snapshot);
+        } catch (RuntimeException e) {
+            Log.w("SnapshotDecoder", "Could not decode " + snapshot.getRef(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Hands decoded objects to their callback on the main thread.
+     *
+     * @param items    The decoded objects.
+     * @param callback The callback.
+     * @param <T>      The model type.
+     */
+    private <T> void post(List<T> items, DecodeCallback<T> callback) {
+        mainHandler.post(() -> callback.onDecoded(items));
+    }
+
+    /**
+     * Logs decodes that took long enough to have cost a frame had they run on the main thread.
+     *
+     * @param snapshot  The decoded snapshot.
+     * @param count     The number of objects decoded.
+     * @param startedAt When decoding started, in {@link SystemClock#elapsedRealtime()} time.
+     */
+    private static void logIfSlow(DataSnapshot snapshot, int count, long startedAt) {
+        long elapsed = SystemClock.elapsedRealtime() - startedAt;
+        if (elapsed >= SLOW_DECODE_MILLIS) {
+            Log.d("SnapshotDecoder", "decoded " + count + " objects from " + snapshot.getKey() + " in " + elapsed + " ms off the main thread");
+        }
+    }
+}
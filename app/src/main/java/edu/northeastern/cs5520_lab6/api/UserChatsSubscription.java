@@ -0,0 +1,239 @@
+package edu.northeastern.cs5520_lab6.api;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import edu.northeastern.cs5520_lab6.messages.Chat;
+
+/**
+ * Follows the chats of a single user through the {@code userChats/{uid}} index. For every chat id
+ * in the index a value listener is attached to {@code chats/{chatId}}, so the client only
+ * downloads and is woken up by the conversations the user actually takes part in, rather than
+ * by every chat in the database.
+ *
+ * The index is maintained by {@link FirebaseApi#findOrCreateChatWithUsers} and
+ * {@link FirebaseApi#sendMessage}. Users whose chats predate the index have it rebuilt once
+ * from the {@code chats} node the first time they subscribe; the rebuild then sets the
+ * {@code users/{uid}/chatIndexBuilt} marker, which new users are given at sign-up, so the
+ * {@code chats} node is scanned at most once per user rather than on every start of a user
+ * without chats.
+ *
+ * Index entries hold the server time of the chat's last update, so the index is followed in
+ * order of recency; entries written as {@code true} by earlier versions sort first.
+ *
+ * Chat snapshots are mapped by the {@link SnapshotDecoder} off the main thread; the listener is
+ * called on the main thread once a chat has been decoded.
+ *
+ * Every listener is attached through the {@link ListenerRegistry}; {@link FirebaseApi} ties the
+ * subscription to the lifecycle of the screen that created it.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class UserChatsSubscription {
+    /**
+     * Callback interface for changes to the chats of the subscribed user.
+     */
+    public interface ChatChangeListener {
+        /**
+         * Called when a chat is first loaded and every time it changes afterwards.
+         *
+         * @param chat The current state of the chat, with its id set.
+         */
+        void onChatChanged(Chat chat);
+
+        /**
+         * Called when a chat is removed from the user's index.
+         *
+         * @param chatId The id of the removed chat.
+         */
+        default void onChatRemoved(String chatId) { }
+    }
+
+    // Maps a chat node to a chat with its id set
+    private static final SnapshotDecoder.Decoder<Chat> CHAT_DECODER = snapshot -> {
+        Chat chat = ModelMapper.chatFromSnapshot(snapshot);
+        if (chat != null) chat.setId(snapshot.getKey());
+        return chat;
+    };
+
+    /**
+     * Key of the marker under {@code users/{uid}} set once the user's index is known to be complete.
+     */
+    static final String INDEX_BUILT_KEY = "chatIndexBuilt";
+
+    // Users whose index has already been checked for a legacy backfill in this process
+    private static final Set<String> backfillChecked = new HashSet<>();
+
+    private final DatabaseReference rootRef;
+    private final String userId;
+    private final ChatChangeListener listener;
+    private final ListenerRegistry registry = ListenerRegistry.getInstance();
+    private final SnapshotDecoder decoder = SnapshotDecoder.getInstance();
+    private final Map<String, ListenerRegistry.Registration> chatRegistrations = new HashMap<>(); // chatId -> listener
+    private ListenerRegistry.Registration indexRegistration;
+    private boolean stopped;
+
+    /**
+     * Creates a subscription for the given user. Nothing is attached until {@link #start()}.
+     *
+     * @param rootRef  Reference to the database root.
+     * @param userId   The user whose chats are followed.
+     * @param listener Receives chat changes.
+     */
+    UserChatsSubscription(DatabaseReference rootRef, String userId, ChatChangeListener listener) {
+        this.rootRef = rootRef;
+        this.userId = userId;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts following the user's chat index, rebuilding it first if this user has never had one.
+     */
+    void start() {
+        if (stopped) return;
+        if (backfillChecked.add(userId)) {
+            backfillIndexIfMissing();
+        }
+        ChildEventListener indexListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                attachChat(snapshot.getKey());
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                // The chat node itself is observed directly; nothing to do here
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                detachChat(snapshot.getKey());
+                listener.onChatRemoved(snapshot.getKey());
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) { }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                Log.w("UserChatsSubscription", "index:onCancelled", databaseError.toException());
+            }
+        };
+        indexRegistration = registry.addChildEventListener(rootRef.child("userChats").child(userId).orderByValue(), indexListener);
+    }
+
+    /**
+     * Detaches the index listener and every per-chat listener.
+     */
+    public void stop() {
+        stopped = true;
+        if (indexRegistration != null) {
+            indexRegistration.remove();
+            indexRegistration = null;
+        }
+        for (String chatId : new HashSet<>(chatRegistrations.keySet())) {
+            detachChat(chatId);
+        }
+    }
+
+    /**
+     * Attaches a value listener to a single chat node.
+     *
+     * @param chatId The chat to observe.
+     */
+    private void attachChat(String chatId) {
+        if (stopped || chatId == null || chatRegistrations.containsKey(chatId)) return;
+        ValueEventListener chatListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                decoder.decode(snapshot, CHAT_DECODER, chats -> {
+                    // Skip chats that were detached while they were being decoded
+                    if (!chats.isEmpty() && chatRegistrations.containsKey(chatId)) {
+                        listener.onChatChanged(chats.get(0));
+                    }
+                });
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                Log.w("UserChatsSubscription", "chat:onCancelled", databaseError.toException());
+            }
+        };
+        chatRegistrations.put(chatId, registry.addValueEventListener(rootRef.child("chats").child(chatId), chatListener));
+    }
+
+    /**
+     * Removes the value listener from a single chat node.
+     *
+     * @param chatId The chat to stop observing.
+     */
+    private void detachChat(String chatId) {
+        ListenerRegistry.Registration chatRegistration = chatRegistrations.remove(chatId);
+        if (chatRegistration != null) {
+            chatRegistration.remove();
+        }
+    }
+
+    /**
+     * Rebuilds the user's index from the {@code chats} node unless the user's marker says it is
+     * complete. This is a one-time migration for chats created before the index was introduced:
+     * the index entries and the marker are written in one update, so the scan is not repeated,
+     * and the entries are picked up by the index listener like any other new entry.
+     */
+    private void backfillIndexIfMissing() {
+        DatabaseReference markerRef = rootRef.child("users").child(userId).child(INDEX_BUILT_KEY);
+        markerRef.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot markerSnapshot) {
+                if (!markerSnapshot.exists()) backfillIndex();
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                Log.w("UserChatsSubscription", "backfill:onCancelled", databaseError.toException());
+            }
+        });
+    }
+
+    /**
+     * Scans the {@code chats} node for the user's chats and writes their index entries together
+     * with the marker.
+     */
+    private void backfillIndex() {
+        rootRef.child("chats").addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot chatsSnapshot) {
+                Map<String, Object> updates = new HashMap<>();
+                for (DataSnapshot snapshot : chatsSnapshot.getChildren()) {
+                    Chat chat = ModelMapper.chatFromSnapshot(snapshot);
+                    if (chat != null && chat.getUserIds() != null && chat.getUserIds().contains(userId)) {
+                        // Legacy timestamps are parsed into epoch millis, so recency ordering holds
+                        updates.put("userChats/" + userId + "/" + snapshot.getKey(),
+                                chat.getTimestamp() > 0 ? (Object) chat.getTimestamp() : true);
+                    }
+                }
+                updates.put("users/" + userId + "/" + INDEX_BUILT_KEY, true);
+                rootRef.updateChildren(updates);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                Log.w("UserChatsSubscription", "backfill:onCancelled", databaseError.toException());
+            }
+        });
+    }
+}
@@ -0,0 +1,272 @@
+package edu.northeastern.cs5520_lab6.api;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.northeastern.cs5520_lab6.contacts.User;
+
+/**
+ * Process-wide cache of {@link User} profiles keyed by user id. Chat name resolution, contact
+ * loading and chat creation all need the same handful of profiles over and over; this cache
+ * serves repeated lookups from memory and makes sure that concurrent lookups for the same user
+ * share a single database read.
+ *
+ * Entries are evicted in least-recently-used order once {@link #MAX_ENTRIES} is reached and are
+ * considered stale after {@link #TTL_MILLIS}. Code that writes a profile calls
+ * {@link #invalidate(String)} so that the next lookup reads the new version. Hit and miss counters
+ * are kept so the effectiveness of the cache can be checked.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class UserProfileCache {
+    /**
+     * Callback interface for a single profile lookup.
+     */
+    public interface UserCallback {
+        /**
+         * Called once the profile is available.
+         *
+         * @param user The profile, or null if the user does not exist or could not be read.
+         */
+        void onUserLoaded(@Nullable User user);
+    }
+
+    /**
+     * Callback interface for a batch of profile lookups.
+     */
+    public interface UsersCallback {
+        /**
+         * Called once every requested profile has been resolved.
+         *
+         * @param users The profiles that could be loaded, keyed by user id.
+         */
+        void onUsersLoaded(Map<String, User> users);
+    }
+
+    /**
+     * Maximum number of profiles kept in memory.
+     */
+    public static final int MAX_ENTRIES = 500;
+
+    /**
+     * Time after which a cached profile is fetched again.
+     */
+    public static final long TTL_MILLIS = 5 * 60 * 1000;
+
+    private static UserProfileCache instance;
+
+    private final DatabaseReference usersRef;
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<String, List<UserCallback>> inFlight = new HashMap<>(); // userId -> waiting callbacks
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * A cached profile together with the time it was loaded.
+     */
+    private static class Entry {
+        final User user;
+        final long loadedAt;
+
+        Entry(User user, long loadedAt) {
+            this.user = user;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * Returns the shared cache instance.
+     *
+     * @return The process-wide profile cache.
+     */
+    public static synchronized UserProfileCache getInstance() {
+        if (instance == null) {
+            instance = new UserProfileCache(FirebaseDatabase.getInstance().getReference("users"));
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a cache reading profiles from the given {@code users} node.
+     *
+     * @param usersRef Reference to the {@code users} node.
+     */
+    UserProfileCache(DatabaseReference usersRef) {
+        this.usersRef = usersRef;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+
+    /**
+     * Looks up a single profile, reading it from the database only if it is not cached. If a read
+     * for the same user is already in flight the callback joins it instead of issuing another.
+     *
+     * @param userId   The user id.
+     * @param callback Receives the profile.
+     */
+    public void getUser(String userId, UserCallback callback) {
+        Entry entry;
+        boolean startFetch = false;
+        synchronized (this) {
+            entry = entries.get(userId);
+            if (isFresh(entry)) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+                entry = null;
+                List<UserCallback> waiting = inFlight.get(userId);
+                if (waiting == null) {
+                    waiting = new ArrayList<>();
+                    inFlight.put(userId, waiting);
+                    startFetch = true;
+                }
+                waiting.add(callback);
+            }
+        }
+        if (entry != null) {
+            callback.onUserLoaded(entry.user);
+        } else if (startFetch) {
+            fetch(userId);
+        }
+    }
+
+    /**
+     * Looks up a batch of profiles. Duplicate ids are resolved once, cached profiles are served
+     * immediately and the remaining ones are read in parallel. The callback is invoked exactly once,
+     * after every id has been resolved.
+     *
+     * @param userIds  The user ids to resolve.
+     * @param callback Receives every profile that could be loaded.
+     */
+    public void getUsers(Collection<String> userIds, UsersCallback callback) {
+        Set<String> distinctIds = new LinkedHashSet<>(userIds);
+        Map<String, User> result = new HashMap<>();
+        if (distinctIds.isEmpty()) {
+            callback.onUsersLoaded(result);
+            return;
+        }
+        int[] remaining = {distinctIds.size()};
+        for (String userId : distinctIds) {
+            getUser(userId, user -> {
+                synchronized (result) {
+                    if (user != null) result.put(userId, user);
+                    if (--remaining[0] > 0) return;
+                }
+                Log.d("UserProfileCache", "batch resolved: " + result.size() + " users, hits=" + getHitCount() + " misses=" + getMissCount());
+                callback.onUsersLoaded(result);
+            });
+        }
+    }
+
+    /**
+     * Stores a profile that was read elsewhere, for example as part of a search result.
+     *
+     * @param user The profile to cache.
+     */
+    public synchronized void put(User user) {
+        if (user != null && user.getUserId() != null) {
+            entries.put(user.getUserId(), new Entry(user, SystemClock.elapsedRealtime()));
+        }
+    }
+
+    /**
+     * Drops the cached profile of a single user so the next lookup reads it again.
+     *
+     * @param userId The user id.
+     */
+    public synchronized void invalidate(String userId) {
+        entries.remove(userId);
+    }
+
+    /**
+     * Returns how many lookups were served from memory.
+     *
+     * @return The hit count.
+     */
+    public long getHitCount() { return hits.get(); }
+
+    /**
+     * Returns how many lookups had to wait for a database read, including ones that joined a read
+     * already in flight.
+     *
+     * @return The miss count.
+     */
+    public long getMissCount() { return misses.get(); }
+
+    /**
+     * Returns whether an entry can still be served.
+     *
+     * @param entry The entry, possibly null.
+     * @return true if the entry exists and has not expired.
+     */
+    private boolean isFresh(@Nullable Entry entry) {
+        return entry != null
+                && SystemClock.elapsedRealtime() - entry.loadedAt < TTL_MILLIS;
+    }
+
+    /**
+     * Reads a profile from the database and completes every callback waiting for it.
+     *
+     * @param userId The user id.
+     */
+    private void fetch(String userId) {
+        usersRef.child(userId).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                SnapshotDecoder.getInstance().decode(snapshot, ModelMapper::userFromSnapshot, users -> {
+                    User user = users.isEmpty() ? null : users.get(0);
+                    put(user);
+                    complete(userId, user);
+                });
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                Log.w("UserProfileCache", "fetch:onCancelled", databaseError.toException());
+                complete(userId, null);
+            }
+        });
+    }
+
+    /**
+     * Hands a loaded profile to every callback that was waiting for it.
+     *
+     * @param userId The user id.
+     * @param user   The loaded profile, or null.
+     */
+    private void complete(String userId, @Nullable User user) {
+        List<UserCallback> waiting;
+        synchronized (this) {
+            waiting = inFlight.remove(userId);
+        }
+        if (waiting != null) {
+            for (UserCallback callback : waiting) {
+                callback.onUserLoaded(user);
+            }
+        }
+    }
+}
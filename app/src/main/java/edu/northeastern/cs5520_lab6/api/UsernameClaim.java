@@ -0,0 +1,227 @@
+package edu.northeastern.cs5520_lab6.api;
+
+import java.util.Map;
+
+import edu.northeastern.cs5520_lab6.contacts.User;
+
+/**
+ * Registers a user under a unique username. The registration runs in three steps:
+ *
+ * <ol>
+ * <li>The {@code users} node is checked for a user from before the {@code usernames} registry
+ * who already has the name. Such users are only reserved in the registry once they sign in
+ * again, so without this check a new sign-up could take their name. Names are compared by their
+ * registry key, so "Alice" and " alice" are the same name. New users are only ever created
+ * through the registry, so the set of these users no longer grows and checking it before the
+ * claim is race-free.</li>
+ * <li>The name is claimed in {@code usernames/{key}}, in a transaction that only succeeds while
+ * the entry is free or already belongs to the user, so of two sign-ups racing for the same name
+ * exactly one wins.</li>
+ * <li>The profile is written. If that fails the claim is released again, so the name does not
+ * stay reserved for a user that does not exist.</li>
+ * </ol>
+ *
+ * The database is reached through a {@link Registry}, which {@link FirebaseApi} implements over
+ * the Firebase Realtime Database.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class UsernameClaim {
+    /**
+     * The outcome of claiming a registry entry.
+     */
+    public enum ClaimResult { CLAIMED, TAKEN, FAILED }
+
+    /**
+     * Whether a username can still be registered, as far as could be checked.
+     */
+    public enum Availability { AVAILABLE, TAKEN, UNKNOWN }
+
+    /**
+     * Callback interface for a single asynchronous database step.
+     *
+     * @param <T> The type of the result.
+     */
+    public interface Step<T> {
+        /**
+         * Called with the result of the step.
+         *
+         * @param result The result.
+         */
+        void onDone(T result);
+    }
+
+    /**
+     * The database operations a registration is made of.
+     */
+    public interface Registry {
+        /**
+         * Finds the users that may hold a username outside the registry. The result may include
+         * users whose name only differs from it in case or spacing, or not at all; the claim
+         * compares the names itself.
+         *
+         * @param username The username.
+         * @param step     Receives the stored usernames keyed by user id, or null if they could not
+         *                 be read.
+         */
+        void findLegacyOwners(String username, Step<Map<String, String>> step);
+
+        /**
+         * Sets {@code usernames/{key}} to a user id, unless it holds another user's id, deciding
+         * with {@link UsernameClaim#canClaim(Object, String)} inside a transaction on the entry.
+         *
+         * @param key    The registry key of the username.
+         * @param userId The user claiming the name.
+         * @param step   Receives the outcome.
+         */
+        void claim(String key, String userId, Step<ClaimResult> step);
+
+        /**
+         * Removes {@code usernames/{key}}.
+         *
+         * @param key The registry key of the username.
+         */
+        void release(String key);
+
+        /**
+         * Writes the profile of a user.
+         *
+         * @param user The user.
+         * @param step Receives whether the profile was written.
+         */
+        void writeProfile(User user, Step<Boolean> step);
+    }
+
+    /**
+     * Callback interface for the outcome of a registration.
+     */
+    public interface Listener {
+        /**
+         * Called once the name is reserved and the profile written.
+         */
+        void onRegistered();
+
+        /**
+         * Called if the name belongs to another user; nothing has been written.
+         */
+        void onUsernameTaken();
+
+        /**
+         * Called if the registration failed; the name is not left reserved.
+         */
+        void onFailed();
+    }
+
+    private final Registry registry;
+
+    /**
+     * Creates a registration over a registry.
+     *
+     * @param registry The database operations.
+     */
+    public UsernameClaim(Registry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Registers a user under their username.
+     *
+     * @param user     The user, with their id and username set.
+     * @param listener Receives the outcome.
+     */
+    public void register(User user, Listener listener) {
+        String key = UsernameSearch.usernameKey(user.getUsername());
+        registry.findLegacyOwners(user.getUsername(), owners -> {
+            if (owners == null) {
+                listener.onFailed();
+            } else if (isOwnedByOther(owners, key, user.getUserId())) {
+                listener.onUsernameTaken();
+            } else {
+                registry.claim(key, user.getUserId(), result -> onClaimed(user, key, result, listener));
+            }
+        });
+    }
+
+    /**
+     * Returns whether a username is free, checking both the registry answer and the users from
+     * before the registry.
+     *
+     * @param username The username.
+     * @param reserved Whether the registry has an entry for the name.
+     * @param step     Receives whether the name is free, or {@link Availability#UNKNOWN} if the
+     *                 users from before the registry could not be read.
+     */
+    public void checkAvailable(String username, boolean reserved, Step<Availability> step) {
+        if (reserved) {
+            step.onDone(Availability.TAKEN);
+            return;
+        }
+        String key = UsernameSearch.usernameKey(username);
+        registry.findLegacyOwners(username, owners -> {
+            if (owners == null) {
+                step.onDone(Availability.UNKNOWN);
+            } else {
+                step.onDone(isOwnedByOther(owners, key, null) ? Availability.TAKEN : Availability.AVAILABLE);
+            }
+        });
+    }
+
+    /**
+     * Decides a claim on a registry entry: it may be taken while free, and confirmed by the user
+     * already holding it. Runs inside the transaction of {@link Registry#claim}, where it is
+     * retried with the current value whenever another client wrote the entry first.
+     *
+     * @param currentOwner The value of the entry, null if it is free.
+     * @param userId       The user claiming the name.
+     * @return true if the entry may be set to the user's id.
+     */
+    public static boolean canClaim(Object currentOwner, String userId) {
+        return currentOwner == null || userId.equals(currentOwner);
+    }
+
+    /**
+     * Writes the profile once the claim holds, or reports why it does not.
+     *
+     * @param user     The user being registered.
+     * @param key      The registry key of the username.
+     * @param result   The outcome of the claim.
+     * @param listener Receives the outcome of the registration.
+     */
+    private void onClaimed(User user, String key, ClaimResult result, Listener listener) {
+        switch (result) {
+            case CLAIMED:
+                registry.writeProfile(user, written -> {
+                    if (written) {
+                        listener.onRegistered();
+                    } else {
+                        registry.release(key);
+                        listener.onFailed();
+                    }
+                });
+                break;
+            case TAKEN:
+                listener.onUsernameTaken();
+                break;
+            default:
+                listener.onFailed();
+                break;
+        }
+    }
+
+    /**
+     * Returns whether another user holds a name outside the registry.
+     *
+     * @param owners The stored usernames of the users found, keyed by user id.
+     * @param key    The registry key of the name.
+     * @param userId The user registering, or null to count every holder.
+     * @return true if the name belongs to someone else.
+     */
+    private static boolean isOwnedByOther(Map<String, String> owners, String key, String userId) {
+        for (Map.Entry<String, String> owner : owners.entrySet()) {
+            if (owner.getKey().equals(userId) || owner.getValue() == null) continue;
+            if (UsernameSearch.usernameKey(owner.getValue()).equals(key)) return true;
+        }
+        return false;
+    }
+}
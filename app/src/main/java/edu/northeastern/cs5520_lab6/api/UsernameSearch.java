@@ -0,0 +1,242 @@
+package edu.northeastern.cs5520_lab6.api;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import edu.northeastern.cs5520_lab6.contacts.NewContactActivity;
+import edu.northeastern.cs5520_lab6.contacts.User;
+
+/**
+ * Type-ahead username search for a single screen. Usernames are looked up by prefix in the
+ * {@code usernames/{key}: uid} index, where the key is the lower-cased username, with an
+ * {@code orderByKey().startAt(prefix).endAt(prefix + "\uf8ff")} range query. Key queries are
+ * served from the database's built-in key index, so no users are scanned.
+ *
+ * Input is debounced by {@link #DEBOUNCE_MILLIS}. A new search cancels the one in flight, so a
+ * slow answer to an old prefix can never overwrite the results of a newer one. Every result is
+ * added to a process-wide {@link UsernameTrie}: prefixes that extend a fully fetched prefix are
+ * answered locally, and any others show the locally known matches while the query runs.
+ *
+ * Users that signed up before the index existed reserve their name in it the next time they sign
+ * in. Until then they are only found by {@link #submit}: when the index has no entry for exactly
+ * the submitted name, an exact username match on the {@code users} node is tried as well and
+ * listed first. Type-ahead never runs that query.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class UsernameSearch {
+    /**
+     * Time the input has to stay unchanged before a search is started.
+     */
+    public static final long DEBOUNCE_MILLIS = 250;
+
+    /**
+     * Maximum number of users returned for one prefix.
+     */
+    public static final int MAX_RESULTS = 20;
+
+    private static final String PREFIX_END = "\uf8ff"; // Sorts after every other key character
+
+    private static final UsernameTrie trie = new UsernameTrie(); // Shared by every search screen
+
+    private final DatabaseReference usernamesRef;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private Runnable pendingSearch; // Debounced search waiting to start
+    private Query activeQuery; // Query of the search in flight
+    private ValueEventListener activeListener;
+    private int generation; // Incremented by every search; older answers are dropped
+
+    /**
+     * Creates a search over the {@code usernames} index.
+     */
+    public UsernameSearch() {
+        this.usernamesRef = FirebaseDatabase.getInstance().getReference("usernames");
+    }
+
+    /**
+     * Returns the index key of a username: the username lower-cased, with the characters Firebase
+     * does not allow in keys percent-encoded.
+     *
+     * @param username The username.
+     * @return The key of the username in the {@code usernames} index.
+     */
+    public static String usernameKey(String username) {
+        String lower = username.trim().toLowerCase(Locale.ROOT);
+        StringBuilder key = new StringBuilder(lower.length());
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (c == '.' || c == '#' || c == '$' || c == '[' || c == ']' || c == '/' || c == '%') {
+                key.append('%').append(String.format(Locale.ROOT, "%02X", (int) c));
+            } else {
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Searches for a prefix once the input has settled for {@link #DEBOUNCE_MILLIS}. Calling this
+     * again before then replaces the pending search.
+     *
+     * @param prefix   The username prefix typed so far.
+     * @param callback Receives the matching users.
+     */
+    public void searchDebounced(String prefix, NewContactActivity.UserSearchCallback callback) {
+        if (pendingSearch != null) handler.removeCallbacks(pendingSearch);
+        pendingSearch = () -> {
+            pendingSearch = null;
+            search(prefix, false, callback);
+        };
+        handler.postDelayed(pendingSearch, DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Searches for a submitted username straight away, cancelling any search in flight. If the
+     * index has no entry for exactly that name, it is also looked up among the users from before
+     * the index.
+     *
+     * @param username The username as submitted.
+     * @param callback Receives the matching users, possibly twice: first the locally known
+     *                 matches, then the complete answer.
+     */
+    public void submit(String username, NewContactActivity.UserSearchCallback callback) {
+        search(username, true, callback);
+    }
+
+    /**
+     * Searches for a prefix straight away, cancelling any search in flight.
+     *
+     * @param prefix    The username prefix.
+     * @param submitted Whether the prefix was submitted as a whole username.
+     * @param callback  Receives the matching users, first the locally known ones.
+     */
+    private void search(String prefix, boolean submitted, NewContactActivity.UserSearchCallback callback) {
+        cancel();
+        int searchGeneration = ++generation;
+        String key = usernameKey(prefix);
+        if (key.isEmpty()) {
+            callback.onSearchResults(new ArrayList<>());
+            return;
+        }
+
+        List<String> localMatches = trie.userIdsWithPrefix(key, MAX_RESULTS);
+        if (trie.isComplete(key)) {
+            finish(prefix, key, submitted, localMatches, searchGeneration, callback);
+            return;
+        }
+        if (!localMatches.isEmpty()) {
+            deliver(localMatches, searchGeneration, callback);
+        }
+
+        activeQuery = usernamesRef.orderByKey().startAt(key).endAt(key + PREFIX_END).limitToFirst(MAX_RESULTS);
+        activeListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                activeQuery = null;
+                activeListener = null;
+                List<String> userIds = new ArrayList<>();
+                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
+                    String userId = snapshot.getValue(String.class);
+                    if (userId != null) {
+                        trie.put(snapshot.getKey(), userId);
+                        userIds.add(userId);
+                    }
+                }
+                if (dataSnapshot.getChildrenCount() < MAX_RESULTS) {
+                    trie.markComplete(key);
+                }
+                if (searchGeneration != generation) return;
+                finish(prefix, key, submitted, userIds, searchGeneration, callback);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                activeQuery = null;
+                activeListener = null;
+                Log.w("UsernameSearch", "search:onCancelled", databaseError.toException());
+            }
+        };
+        activeQuery.addListenerForSingleValueEvent(activeListener);
+    }
+
+    /**
+     * Drops the pending debounced search and detaches the search in flight, if any.
+     */
+    public void cancel() {
+        if (pendingSearch != null) {
+            handler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+        if (activeQuery != null && activeListener != null) {
+            activeQuery.removeEventListener(activeListener);
+        }
+        activeQuery = null;
+        activeListener = null;
+        generation++;
+    }
+
+    /**
+     * Delivers the index matches of a search. For a submitted name the index does not have, the
+     * name is first looked up as the exact username of a user from before the index.
+     *
+     * @param prefix           The username prefix as typed.
+     * @param key              The index key of the prefix.
+     * @param submitted        Whether the prefix was submitted as a whole username.
+     * @param userIds          The matching user ids from the index, in key order.
+     * @param searchGeneration The generation of the search the ids belong to.
+     * @param callback         Receives the profiles.
+     */
+    private void finish(String prefix, String key, boolean submitted, List<String> userIds, int searchGeneration,
+                        NewContactActivity.UserSearchCallback callback) {
+        if (!submitted || trie.containsKey(key)) {
+            deliver(userIds, searchGeneration, callback);
+            return;
+        }
+        FirebaseApi.searchLegacyUsersByUsername(prefix.trim(), legacyUsers -> {
+            if (searchGeneration != generation) return;
+            List<String> merged = new ArrayList<>();
+            for (User user : legacyUsers) {
+                merged.add(user.getUserId()); // The exact match goes first
+            }
+            for (String userId : userIds) {
+                if (!merged.contains(userId)) merged.add(userId);
+            }
+            deliver(merged, searchGeneration, callback);
+        });
+    }
+
+    /**
+     * Resolves user ids to profiles through the {@link UserProfileCache} and delivers them in the
+     * order of the ids, unless a newer search has started in the meantime.
+     *
+     * @param userIds          The matching user ids, in key order.
+     * @param searchGeneration The generation of the search the ids belong to.
+     * @param callback         Receives the profiles.
+     */
+    private void deliver(List<String> userIds, int searchGeneration, NewContactActivity.UserSearchCallback callback) {
+        UserProfileCache.getInstance().getUsers(userIds, users -> {
+            if (searchGeneration != generation) return;
+            List<User> results = new ArrayList<>();
+            for (String userId : userIds) {
+                User user = users.get(userId);
+                if (user != null) results.add(user);
+            }
+            callback.onSearchResults(results);
+        });
+    }
+}
@@ -0,0 +1,146 @@
+package edu.northeastern.cs5520_lab6.api;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory prefix tree of username index entries returned by earlier searches. Besides the
+ * entries themselves it remembers which prefixes were fetched completely, that is, whose query
+ * returned fewer results than its limit. Any extension of such a prefix can then be answered from
+ * the tree alone, so typing further characters costs no round trip.
+ *
+ * The whole tree is dropped after {@link #TTL_MILLIS} so that newly registered users show up.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+class UsernameTrie {
+    /**
+     * Time after which the cached entries are discarded.
+     */
+    static final long TTL_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * A node of the tree; children are kept in character order so results come out sorted.
+     */
+    private static class Node {
+        final Map<Character, Node> children = new TreeMap<>();
+        String userId; // Set if a username key ends at this node
+    }
+
+    private Node root = new Node();
+    private final Set<String> completePrefixes = new HashSet<>();
+    private long createdAt = SystemClock.elapsedRealtime();
+
+    /**
+     * Adds a username index entry.
+     *
+     * @param key    The index key of the username.
+     * @param userId The id of the user owning the username.
+     */
+    synchronized void put(String key, String userId) {
+        expireIfStale();
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            Node child = node.children.get(key.charAt(i));
+            if (child == null) {
+                child = new Node();
+                node.children.put(key.charAt(i), child);
+            }
+            node = child;
+        }
+        node.userId = userId;
+    }
+
+    /**
+     * Records that every entry starting with a prefix has been added.
+     *
+     * @param prefix The prefix whose query returned all of its matches.
+     */
+    synchronized void markComplete(String prefix) {
+        expireIfStale();
+        completePrefixes.add(prefix);
+    }
+
+    /**
+     * Returns whether the tree holds every entry starting with a prefix, either because the prefix
+     * itself or one of its own prefixes was fetched completely.
+     *
+     * @param prefix The prefix being searched.
+     * @return true if the prefix can be answered locally.
+     */
+    synchronized boolean isComplete(String prefix) {
+        expireIfStale();
+        for (int length = 0; length <= prefix.length(); length++) {
+            if (completePrefixes.contains(prefix.substring(0, length))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the tree holds an entry for exactly a key.
+     *
+     * @param key The index key of a username.
+     * @return true if the username is in the tree.
+     */
+    synchronized boolean containsKey(String key) {
+        expireIfStale();
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.children.get(key.charAt(i));
+        }
+        return node != null && node.userId != null;
+    }
+
+    /**
+     * Returns the user ids of the entries starting with a prefix, in key order.
+     *
+     * @param prefix The prefix.
+     * @param limit  The maximum number of ids returned.
+     * @return The matching user ids.
+     */
+    synchronized List<String> userIdsWithPrefix(String prefix, int limit) {
+        expireIfStale();
+        List<String> userIds = new ArrayList<>();
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        if (node != null) {
+            collect(node, userIds, limit);
+        }
+        return userIds;
+    }
+
+    /**
+     * Collects the user ids below a node in key order.
+     *
+     * @param node    The node to start from.
+     * @param userIds Receives the ids.
+     * @param limit   The maximum number of ids collected.
+     */
+    private static void collect(Node node, List<String> userIds, int limit) {
+        if (userIds.size() >= limit) return;
+        if (node.userId != null) userIds.add(node.userId);
+        for (Node child : node.children.values()) {
+            collect(child, userIds, limit);
+        }
+    }
+
+    /**
+     * Drops every entry once the tree has outlived its time to live.
+     */
+    private void expireIfStale() {
+        if (SystemClock.elapsedRealtime() - createdAt > TTL_MILLIS) {
+            root = new Node();
+            completePrefixes.clear();
+            createdAt = SystemClock.elapsedRealtime();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package edu.northeastern.cs5520_lab6.contacts;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import java.util.List;
+
+/**
+ * Helpers for reporting list changes as the smallest set of adapter notifications. A list that is
+ * replaced as a whole is diffed against its previous contents with {@link DiffUtil}, keyed on the
+ * item ids compared by an {@link DiffUtil.ItemCallback}, and the result is dispatched to a
+ * {@link GenericAdapterNotifier} as inserts, removals, moves and changes with payloads.
+ *
+ * Adapters whose whole list is replaced on the main thread use {@link androidx.recyclerview.widget.AsyncListDiffer},
+ * which runs the same diff on a background thread. {@link #calculate} is meant for lists that are
+ * mutated in place on the main thread, where the size of the list is bounded.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public final class AdapterDiffs {
+    private AdapterDiffs() { }
+
+    /**
+     * Diffs two lists.
+     *
+     * @param oldItems The items before the change.
+     * @param newItems The items after the change.
+     * @param callback Identifies items and compares their contents.
+     * @param <T>      The item type.
+     * @return The changes turning {@code oldItems} into {@code newItems}.
+     */
+    public static <T> DiffUtil.DiffResult calculate(List<T> oldItems, List<T> newItems, DiffUtil.ItemCallback<T> callback) {
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldItems.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newItems.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return callback.areItemsTheSame(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return callback.areContentsTheSame(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+            }
+
+            @Nullable
+            @Override
+            public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+                return callback.getChangePayload(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+            }
+        });
+    }
+
+    /**
+     * Returns a {@link ListUpdateCallback} that forwards diff results to a notifier.
+     *
+     * @param notifier The adapter to be notified.
+     * @return The callback to dispatch a {@link DiffUtil.DiffResult} to.
+     */
+    public static ListUpdateCallback updateCallback(GenericAdapterNotifier notifier) {
+        return new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                notifier.notifyAdapterItemRangeInserted(position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                notifier.notifyAdapterItemRangeRemoved(position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                notifier.notifyAdapterItemMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, @Nullable Object payload) {
+                notifier.notifyAdapterItemRangeChanged(position, count, payload);
+            }
+        };
+    }
+}
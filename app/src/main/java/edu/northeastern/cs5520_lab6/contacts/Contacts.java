@@ -1,63 +1,92 @@
 package edu.northeastern.cs5520_lab6.contacts;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents a collection of contacts by storing their unique user IDs. This class provides
- * functionality to manage a list of user IDs, allowing for operations such as adding a new
- * user ID to the list or setting the list to a new collection of user IDs. It serves as a
- * foundational component in managing user contacts within the application.
+ * functionality to manage a set of user IDs, allowing for operations such as adding a new
+ * user ID or checking whether a user is already a contact. It serves as a foundational
+ * component in managing user contacts within the application.
+ *
+ * The IDs are kept in an insertion-ordered set, so membership checks take constant time no
+ * matter how many contacts a user has. In the database each contact is stored as its own
+ * {@code users/{uid}/contacts/{contactId}: true} entry.
  *
  * @author Tony Wilson
- * @version 1.0
+ * @version 2.0
  */
 public class Contacts {
-    // Stores the user IDs of contacts.
-    private List<String> userIDs;
+    // Stores the user IDs of contacts, in the order they were added.
+    private final Set<String> userIDs = new LinkedHashSet<>();
 
     /**
-     * Default constructor initializes an empty list of user IDs.
+     * Default constructor initializes an empty set of user IDs.
      */
     public Contacts () { }
 
     /**
-     * Constructs a Contacts object with a single user ID, initializing the list with this ID.
+     * Constructs a Contacts object with a single user ID.
      *
-     * @param userId The user ID to be added to the contacts list.
+     * @param userId The user ID to be added to the contacts.
      */
     public Contacts (String userId) {
-        this.userIDs = new ArrayList<>();
         this.userIDs.add(userId);
     }
 
     /**
-     * Constructs a Contacts object with a provided list of user IDs.
+     * Constructs a Contacts object with the provided user IDs. Duplicates are dropped.
      *
-     * @param userIDs The list of user IDs to initialize the contacts list with.
+     * @param userIDs The user IDs to initialize the contacts with.
      */
-    public Contacts (List<String> userIDs) { this.userIDs = new ArrayList<String>(userIDs); }
+    public Contacts (Collection<String> userIDs) { this.userIDs.addAll(userIDs); }
 
+    /**
+     * Returns the user IDs of the contacts in the order they were added.
+     *
+     * @return A copy of the user IDs as a list.
+     */
+    public List<String> getUserIDs() { return new ArrayList<>(userIDs); }
+
+    /**
+     * Replaces the contacts with a new collection of user IDs.
+     *
+     * @param userIDs The new user IDs.
+     */
+    public void setUserIDs(Collection<String> userIDs) {
+        this.userIDs.clear();
+        this.userIDs.addAll(userIDs);
+    }
 
-    public List<String> getUserIDs() { return userIDs; }
+    /**
+     * Adds a new user ID to the contacts.
+     *
+     * @param userID The user ID to add.
+     * @return true if the user was not a contact yet.
+     */
+    public boolean addUserID(String userID) {
+        return this.userIDs.add(userID);
+    }
 
     /**
-     * Sets the contacts list to a new list of user IDs.
+     * Checks whether a user is one of the contacts.
      *
-     * @param userIDs The new list of user IDs to replace the current list.
+     * @param userID The user ID to look up.
+     * @return true if the user is a contact.
      */
-    public void setUserIDs(List<String> userIDs) { this.userIDs = new ArrayList<String>(userIDs); }
+    public boolean contains(String userID) {
+        return this.userIDs.contains(userID);
+    }
 
     /**
-     * Adds a new user ID to the contacts list. If the list is null, initializes it before adding
-     * the new user ID. This ensures the contacts list is always in a valid state for addition.
+     * Returns the number of contacts.
      *
-     * @param userID The user ID to add to the contacts list.
+     * @return The number of user IDs.
      */
-    public void addUserID(String userID) {
-        if (this.userIDs ==null) {
-            this.userIDs = new ArrayList<>();
-        }
-        this.userIDs.add(userID);
+    public int size() {
+        return this.userIDs.size();
     }
-}
\ No newline at end of file
+}
@@ -13,7 +13,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 import edu.northeastern.cs5520_lab6.R;
+import edu.northeastern.cs5520_lab6.api.ContactHydrator;
 import edu.northeastern.cs5520_lab6.api.FirebaseApi;
+import edu.northeastern.cs5520_lab6.api.ListenerRegistry;
 
 /**
  * Manages the display of contacts in the application, offering navigation to activities for creating
@@ -30,10 +32,12 @@ import edu.northeastern.cs5520_lab6.api.FirebaseApi;
 public class ContactsActivity extends AppCompatActivity {
     private List<User> contacts = new ArrayList<>();
     private ContactsAdapter adapter;
+    private ContactHydrator contactLoad; // The load currently filling the contacts list
 
     /**
      * Initializes the activity, sets up the toolbar, populates the users list, and configures
-     * button listeners for creating new groups and adding new users.
+     * button listeners for creating new groups and adding new users. The contact load running
+     * when the activity is destroyed is cancelled; this is bound here once, not on every resume.
      *
      * @param savedInstanceState Contains data supplied in onSaveInstanceState(Bundle) if the activity
      *                           is being re-initialized after previously being shut down.
@@ -46,48 +50,41 @@ public class ContactsActivity extends AppCompatActivity {
         setupToolbar();
         setupRecyclerView();
         setupInteractionButtons();
+        ListenerRegistry.getInstance().bindToLifecycle(this, this::cancelContactLoad);
     }
 
     /**
      * Ensures the contacts list is refreshed every time the activity resumes from a paused state.
-     * This method clears any existing contacts data and fetches the latest list from Firebase,
-     * reflecting any changes made while the activity was not in the foreground. It guarantees that
-     * the displayed contacts are always up-to-date, enhancing the user experience by providing
-     * current information.
+     * This method fetches the latest list from Firebase, reflecting any changes made while the
+     * activity was not in the foreground. It guarantees that the displayed contacts are always
+     * up-to-date, enhancing the user experience by providing current information.
      */
     @Override
     protected void onResume() {
         super.onResume();
         // Immediately refresh the contacts list when the activity resumes to reflect any changes.
         loadContactData();
-        // Additionally, ensure the RecyclerView is updated to display the latest data.
-        if (adapter != null) {
-            adapter.notifyDataSetChanged();
-        }
     }
 
     /**
-     * Fetches the updated list of contacts from Firebase and refreshes the RecyclerView
-     * adapter to display the latest data. This method ensures the contacts list is always
-     * current, reflecting any changes made to the user's contacts.
+     * Fetches the updated list of contacts from Firebase. The adapter is notified of every change
+     * as it is merged into the list. A load that is still running is cancelled first, so resuming
+     * quickly never shows a contact twice.
      */
     private void loadContactData() {
-        // Clear the existing contacts list
-        contacts.clear();
-
-        // Fetch the updated contacts list from Firebase
-        FirebaseApi.loadContactData(contacts, new GenericAdapterNotifier() {
-            @Override
-            public void notifyAdapterDataSetChanged() {
-                // This callback should be triggered once the contacts list is updated
-                // Now, notify the adapter to refresh the UI
-                if (adapter != null) {
-                    adapter.notifyDataSetChanged();
-                }
-            }
-        });
+        cancelContactLoad();
+        contactLoad = FirebaseApi.loadContactData(contacts, adapter);
     }
 
+    /**
+     * Cancels the contact load that is running, if any.
+     */
+    private void cancelContactLoad() {
+        if (contactLoad != null) {
+            contactLoad.cancel();
+            contactLoad = null;
+        }
+    }
 
     /**
      * Sets up the toolbar with a back button and a title.
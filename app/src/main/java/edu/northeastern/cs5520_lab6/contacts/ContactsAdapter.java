@@ -8,9 +8,11 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.List;
+import java.util.Objects;
 
 import edu.northeastern.cs5520_lab6.R;
 
@@ -24,9 +26,29 @@ import edu.northeastern.cs5520_lab6.R;
  * @author Tony Wilson
  */
 public class ContactsAdapter extends RecyclerView.Adapter<ContactsAdapter.ContactViewHolder> implements GenericAdapterNotifier{
+    /**
+     * Identifies contacts by user id and compares the profile fields the contact lists display.
+     * Shared by every adapter that shows users.
+     */
+    public static final DiffUtil.ItemCallback<User> USER_DIFF = new DiffUtil.ItemCallback<User>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull User oldUser, @NonNull User newUser) {
+            return Objects.equals(oldUser.getUserId(), newUser.getUserId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull User oldUser, @NonNull User newUser) {
+            return Objects.equals(oldUser.getName(), newUser.getName())
+                    && Objects.equals(oldUser.getUsername(), newUser.getUsername())
+                    && Objects.equals(oldUser.getWelcomeMessage(), newUser.getWelcomeMessage())
+                    && Objects.equals(oldUser.getImageUrl(), newUser.getImageUrl());
+        }
+    };
+
     private List<User> users;
     private LayoutInflater inflater;
     private ContactClickListener contactClickListener;
+    private final StableIds stableIds = new StableIds();
 
     /**
      * Constructs a ContactsAdapter with the specified context, a list of users, and a listener.
@@ -41,6 +63,7 @@ public class ContactsAdapter extends RecyclerView.Adapter<ContactsAdapter.Contac
         this.inflater = LayoutInflater.from(context);
         this.users = users;
         this.contactClickListener = contactClickListener;
+        setHasStableIds(true);
     }
 
     /**
@@ -90,6 +113,17 @@ public class ContactsAdapter extends RecyclerView.Adapter<ContactsAdapter.Contac
         return users.size();
     }
 
+    /**
+     * Returns the stable id of the contact at a position, derived from its user id.
+     *
+     * @param position The position of the contact.
+     * @return The stable id of the contact.
+     */
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idOf(users.get(position).getUserId());
+    }
+
     /**
      * ViewHolder for individual contact items in the RecyclerView. Holds the text views
      * for displaying the contact's name and welcome message, and an image view for the contact's
@@ -139,4 +173,52 @@ public class ContactsAdapter extends RecyclerView.Adapter<ContactsAdapter.Contac
     public void notifyAdapterDataSetChanged() {
         notifyDataSetChanged();
     }
-}
\ No newline at end of file
+
+    /**
+     * Forwards a range insert from FirebaseApi so only the new rows are bound.
+     */
+    @Override
+    public void notifyAdapterItemRangeInserted(int positionStart, int itemCount) {
+        notifyItemRangeInserted(positionStart, itemCount);
+    }
+
+    /**
+     * Forwards a changed row from FirebaseApi so only that row is rebound.
+     */
+    @Override
+    public void notifyAdapterItemChanged(int position) {
+        notifyItemChanged(position);
+    }
+
+    /**
+     * Forwards a removed row from FirebaseApi.
+     */
+    @Override
+    public void notifyAdapterItemRemoved(int position) {
+        notifyItemRemoved(position);
+    }
+
+    /**
+     * Forwards changed rows from a diff so only those rows are rebound.
+     */
+    @Override
+    public void notifyAdapterItemRangeChanged(int positionStart, int itemCount, Object payload) {
+        notifyItemRangeChanged(positionStart, itemCount, payload);
+    }
+
+    /**
+     * Forwards removed rows from a diff.
+     */
+    @Override
+    public void notifyAdapterItemRangeRemoved(int positionStart, int itemCount) {
+        notifyItemRangeRemoved(positionStart, itemCount);
+    }
+
+    /**
+     * Forwards a moved row from FirebaseApi so it is animated to its new position.
+     */
+    @Override
+    public void notifyAdapterItemMoved(int fromPosition, int toPosition) {
+        notifyItemMoved(fromPosition, toPosition);
+    }
+}
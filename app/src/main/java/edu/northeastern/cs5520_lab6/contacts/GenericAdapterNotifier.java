@@ -19,4 +19,83 @@ public interface GenericAdapterNotifier {
      * Notifies that the data set has been changed and any View reflecting the data set should refresh itself.
      */
     void notifyAdapterDataSetChanged();
+
+    /**
+     * Notifies that {@code itemCount} items were inserted starting at {@code positionStart}.
+     * Implementations that can animate or rebind selectively should override this; the default
+     * falls back to a full data set refresh.
+     *
+     * @param positionStart Position of the first inserted item.
+     * @param itemCount     Number of items inserted.
+     */
+    default void notifyAdapterItemRangeInserted(int positionStart, int itemCount) {
+        notifyAdapterDataSetChanged();
+    }
+
+    /**
+     * Notifies that the item at {@code position} has changed. The default falls back to a full
+     * data set refresh.
+     *
+     * @param position Position of the changed item.
+     */
+    default void notifyAdapterItemChanged(int position) {
+        notifyAdapterDataSetChanged();
+    }
+
+    /**
+     * Notifies that the item previously at {@code position} was removed. The default falls back
+     * to a full data set refresh.
+     *
+     * @param position Position the removed item used to occupy.
+     */
+    default void notifyAdapterItemRemoved(int position) {
+        notifyAdapterDataSetChanged();
+    }
+
+    /**
+     * Notifies that the item at {@code position} has changed, with a payload describing which
+     * part of it changed so the row can be partially rebound. The default ignores the payload.
+     *
+     * @param position Position of the changed item.
+     * @param payload  What changed, or null for a full rebind.
+     */
+    default void notifyAdapterItemChanged(int position, Object payload) {
+        notifyAdapterItemChanged(position);
+    }
+
+    /**
+     * Notifies that {@code itemCount} items starting at {@code positionStart} have changed. The
+     * default reports every item separately.
+     *
+     * @param positionStart Position of the first changed item.
+     * @param itemCount     Number of items changed.
+     * @param payload       What changed, or null for a full rebind.
+     */
+    default void notifyAdapterItemRangeChanged(int positionStart, int itemCount, Object payload) {
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+            notifyAdapterItemChanged(i, payload);
+        }
+    }
+
+    /**
+     * Notifies that {@code itemCount} items starting at {@code positionStart} were removed. The
+     * default falls back to a full data set refresh.
+     *
+     * @param positionStart Position the first removed item used to occupy.
+     * @param itemCount     Number of items removed.
+     */
+    default void notifyAdapterItemRangeRemoved(int positionStart, int itemCount) {
+        notifyAdapterDataSetChanged();
+    }
+
+    /**
+     * Notifies that the item at {@code fromPosition} was moved to {@code toPosition}. The default
+     * falls back to a full data set refresh.
+     *
+     * @param fromPosition Previous position of the item.
+     * @param toPosition   New position of the item.
+     */
+    default void notifyAdapterItemMoved(int fromPosition, int toPosition) {
+        notifyAdapterDataSetChanged();
+    }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package edu.northeastern.cs5520_lab6.contacts;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.MenuItem;
 import android.widget.Button;
 import android.widget.EditText;
@@ -20,6 +22,7 @@ import java.util.List;
 import edu.northeastern.cs5520_lab6.LogInActivity;
 import edu.northeastern.cs5520_lab6.R;
 import edu.northeastern.cs5520_lab6.api.FirebaseApi;
+import edu.northeastern.cs5520_lab6.api.UsernameSearch;
 
 /**
  * Facilitates the creation of a new contact by providing a user interface for inputting contact
@@ -36,9 +39,10 @@ import edu.northeastern.cs5520_lab6.api.FirebaseApi;
  * - Display of search results with an option to add users as contacts directly from the search
  *   results.
  * - Automated return to the ContactsActivity upon successful addition of a new contact.
+ * - Type-ahead search: results update as a username prefix is typed.
  *
  * @author Tony Wilson
- * @version 1.1
+ * @version 1.2
  */
 public class NewContactActivity extends AppCompatActivity {
 
@@ -46,7 +50,7 @@ public class NewContactActivity extends AppCompatActivity {
     private Button saveContactButton;
     private RecyclerView searchResultsRecyclerView;
     private NewContactAdapter newContactAdapter;
-    private List<User> searchResults = new ArrayList<>();
+    private final UsernameSearch usernameSearch = new UsernameSearch();
     private String currentUserId;
 
     /**
@@ -102,6 +106,19 @@ public class NewContactActivity extends AppCompatActivity {
         lastNameEditText = findViewById(R.id.lastNameEditText);
         usernameEditText = findViewById(R.id.usernameEditText);
         emailEditText = findViewById(R.id.emailEditText);
+
+        usernameEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) { }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) { }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                usernameSearch.searchDebounced(s.toString(), users -> showSearchResults(users));
+            }
+        });
     }
 
     /**
@@ -110,7 +127,7 @@ public class NewContactActivity extends AppCompatActivity {
     private void setupRecyclerView() {
         RecyclerView recyclerView = findViewById(R.id.searchResultsRecyclerView);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        newContactAdapter = new NewContactAdapter(this, searchResults, new NewContactAdapter.ContactClickListener() {
+        newContactAdapter = new NewContactAdapter(this, new NewContactAdapter.ContactClickListener() {
             @Override
             public void onContactClick(String contactId) {
                 FirebaseApi.addContactToUser(NewContactActivity.this, currentUserId, contactId, new FirebaseApi.ContactAddedCallback() {
@@ -145,19 +162,28 @@ public class NewContactActivity extends AppCompatActivity {
         String email = emailEditText.getText().toString();
 
         // Validate input...
-        // Save the contact information to your database or server...
-        // Intent to go back to the ContactsActivity or display success message
-        FirebaseApi.searchUsersByUsername(username, new UserSearchCallback() {
-            @Override
-            public void onSearchResults(List<User> users) {
-                searchResults.clear();
-                if(users != null) {
-                    searchResults.addAll(users);
-                    newContactAdapter.notifyDataSetChanged(); // Refresh search results in UI
-                }
+        // Search right away instead of waiting for the typing debounce, including users whose
+        // name is not in the index yet
+        usernameSearch.submit(username, users -> showSearchResults(users));
+    }
 
-            }
-        });
+    /**
+     * Replaces the displayed search results.
+     *
+     * @param users The users matching the current search, or null if there are none.
+     */
+    private void showSearchResults(List<User> users) {
+        // Diffed against the shown results, so only the rows that changed are rebound
+        newContactAdapter.submitList(users == null ? new ArrayList<>() : new ArrayList<>(users));
+    }
+
+    /**
+     * Cancels any search still pending or in flight when the activity is destroyed.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        usernameSearch.cancel();
     }
 
     /**
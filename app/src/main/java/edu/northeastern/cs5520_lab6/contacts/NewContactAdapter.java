@@ -7,6 +7,7 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.recyclerview.widget.AsyncListDiffer;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.List;
@@ -28,13 +29,16 @@ import edu.northeastern.cs5520_lab6.R;
  * Version updates include:
  * - Adaptation to display search results with usernames and welcome messages.
  * - Implementation of click listeners on search results for direct contact addition.
+ * - Results are replaced through {@link #submitList(List)}, which diffs them against the shown
+ *   results on a background thread, so refining a search only rebinds the rows that changed.
  *
  * @author Tony Wilson
- * @version 1.1
+ * @version 1.2
  */
 public class NewContactAdapter extends RecyclerView.Adapter<NewContactAdapter.ViewHolder> implements GenericAdapterNotifier{
 
-    private List<User> users;
+    private final AsyncListDiffer<User> differ = new AsyncListDiffer<>(this, ContactsAdapter.USER_DIFF);
+    private final StableIds stableIds = new StableIds();
     private LayoutInflater inflater;
     private Context context;
     private ContactClickListener contactClickListener;
@@ -45,13 +49,22 @@ public class NewContactAdapter extends RecyclerView.Adapter<NewContactAdapter.Vi
      * a way of interacting with the itemView object in the activity.
      *
      * @param context  The current context, used to inflate layout files.
-     * @param users The list of User objects to be displayed in the RecyclerView.
      * @param contactClickListener A listener for click events on contact items.
      */
-    public NewContactAdapter(Context context, List<User> users, ContactClickListener contactClickListener) {
+    public NewContactAdapter(Context context, ContactClickListener contactClickListener) {
         this.inflater = LayoutInflater.from(context);
-        this.users = users;
         this.contactClickListener = contactClickListener;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Replaces the displayed search results. The new results are diffed against the current ones
+     * by user id off the main thread, and only the rows that differ are updated.
+     *
+     * @param users The new results; the list must not be modified afterwards.
+     */
+    public void submitList(List<User> users) {
+        differ.submitList(users);
     }
 
     /**
@@ -78,7 +91,7 @@ public class NewContactAdapter extends RecyclerView.Adapter<NewContactAdapter.Vi
      */
     @Override
     public void onBindViewHolder(NewContactAdapter.ViewHolder holder, int position) {
-        User user = users.get(position);
+        User user = differ.getCurrentList().get(position);
         holder.nameTextView.setText(user.getUsername());
         holder.messageTextView.setText(user.getWelcomeMessage());
         // Set other views as needed
@@ -91,7 +104,18 @@ public class NewContactAdapter extends RecyclerView.Adapter<NewContactAdapter.Vi
      */
     @Override
     public int getItemCount() {
-        return users.size();
+        return differ.getCurrentList().size();
+    }
+
+    /**
+     * Returns the stable id of the result at a position, derived from its user id.
+     *
+     * @param position The position of the result.
+     * @return The stable id of the result.
+     */
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idOf(differ.getCurrentList().get(position).getUserId());
     }
 
     /**
@@ -116,7 +140,7 @@ public class NewContactAdapter extends RecyclerView.Adapter<NewContactAdapter.Vi
                     if (contactClickListener != null) {
                         int position = getAdapterPosition();
                         if (position != RecyclerView.NO_POSITION) {
-                            contactClickListener.onContactClick(users.get(position).getUserId());
+                            contactClickListener.onContactClick(differ.getCurrentList().get(position).getUserId());
                         }
                     }
                 }
@@ -55,7 +55,7 @@ public class NewGroupActivity extends AppCompatActivity {
 
         initializeToolbar();
         setupRecyclerViews();
-        FirebaseApi.loadContactData(contacts, newGroupAdapter);
+        FirebaseApi.loadContactData(this, contacts, newGroupAdapter);
         configureConfirmationButton();
     }
 
@@ -93,7 +93,7 @@ public class NewGroupActivity extends AppCompatActivity {
             @Override
             public void onContactClick(int contactId) {
                 selectedUsers.add(contacts.get(contactId));
-                selectedContactsAdapter.notifyDataSetChanged();
+                selectedContactsAdapter.notifyItemInserted(selectedUsers.size() - 1);
             }
         });
 
@@ -30,6 +30,7 @@ public class NewGroupAdapter extends RecyclerView.Adapter<NewGroupAdapter.Contac
     private List<User> users;
     private LayoutInflater inflater;
     private ContactClickListener contactClickListener;
+    private final StableIds stableIds = new StableIds();
 
     /**
      * Constructs a NewGroupAdapter with the provided context, user list, and a callback listener
@@ -43,6 +44,7 @@ public class NewGroupAdapter extends RecyclerView.Adapter<NewGroupAdapter.Contac
         this.inflater = LayoutInflater.from(context);
         this.users = users;
         this.contactClickListener = contactClickListener;
+        setHasStableIds(true);
     }
 
     /**
@@ -88,6 +90,17 @@ public class NewGroupAdapter extends RecyclerView.Adapter<NewGroupAdapter.Contac
         return users.size();
     }
 
+    /**
+     * Returns the stable id of the contact at a position, derived from its user id.
+     *
+     * @param position The position of the contact.
+     * @return The stable id of the contact.
+     */
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idOf(users.get(position).getUserId());
+    }
+
     /**
      * ViewHolder class for contact items within the RecyclerView. Holds references to the
      * TextViews for the contact's name and welcome message, and an ImageView for the contact's
@@ -143,4 +156,52 @@ public class NewGroupAdapter extends RecyclerView.Adapter<NewGroupAdapter.Contac
     public void notifyAdapterDataSetChanged() {
         notifyDataSetChanged();
     }
-}
\ No newline at end of file
+
+    /**
+     * Forwards a range insert from FirebaseApi so only the new rows are bound.
+     */
+    @Override
+    public void notifyAdapterItemRangeInserted(int positionStart, int itemCount) {
+        notifyItemRangeInserted(positionStart, itemCount);
+    }
+
+    /**
+     * Forwards a changed row from FirebaseApi so only that row is rebound.
+     */
+    @Override
+    public void notifyAdapterItemChanged(int position) {
+        notifyItemChanged(position);
+    }
+
+    /**
+     * Forwards a removed row from FirebaseApi.
+     */
+    @Override
+    public void notifyAdapterItemRemoved(int position) {
+        notifyItemRemoved(position);
+    }
+
+    /**
+     * Forwards changed rows from a diff so only those rows are rebound.
+     */
+    @Override
+    public void notifyAdapterItemRangeChanged(int positionStart, int itemCount, Object payload) {
+        notifyItemRangeChanged(positionStart, itemCount, payload);
+    }
+
+    /**
+     * Forwards removed rows from a diff.
+     */
+    @Override
+    public void notifyAdapterItemRangeRemoved(int positionStart, int itemCount) {
+        notifyItemRangeRemoved(positionStart, itemCount);
+    }
+
+    /**
+     * Forwards a moved row from FirebaseApi so it is animated to its new position.
+     */
+    @Override
+    public void notifyAdapterItemMoved(int fromPosition, int toPosition) {
+        notifyItemMoved(fromPosition, toPosition);
+    }
+}
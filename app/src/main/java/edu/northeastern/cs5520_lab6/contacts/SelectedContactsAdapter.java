@@ -30,6 +30,7 @@ public class SelectedContactsAdapter extends RecyclerView.Adapter<SelectedContac
 
     private List<User> selectedUsers;
     private LayoutInflater inflater;
+    private final StableIds stableIds = new StableIds();
 
     /**
      * Initializes a new SelectedContactsAdapter with the provided context and list of selected
@@ -41,6 +42,7 @@ public class SelectedContactsAdapter extends RecyclerView.Adapter<SelectedContac
     public SelectedContactsAdapter(Context context, List<User> selectedUsers) {
         this.inflater = LayoutInflater.from(context);
         this.selectedUsers = selectedUsers;
+        setHasStableIds(true);
     }
 
     /**
@@ -81,6 +83,17 @@ public class SelectedContactsAdapter extends RecyclerView.Adapter<SelectedContac
         return selectedUsers.size();
     }
 
+    /**
+     * Returns the stable id of the selected contact at a position, derived from its user id.
+     *
+     * @param position The position of the contact.
+     * @return The stable id of the contact.
+     */
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idOf(selectedUsers.get(position).getUserId());
+    }
+
     /**
      * ViewHolder class for the selected contacts. It contains an ImageView for displaying the
      * contact's avatar and a TextView for the contact's name. This setup facilitates easy
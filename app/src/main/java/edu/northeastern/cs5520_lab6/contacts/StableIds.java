@@ -0,0 +1,36 @@
+package edu.northeastern.cs5520_lab6.contacts;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out stable RecyclerView item ids for string keys such as message, chat, user or sticker
+ * ids. Each key is given the next free number the first time it is seen and keeps it for the life
+ * of the adapter, so unlike a hash of the key two different keys can never share an id.
+ *
+ * With stable ids RecyclerView can tell which rows a change kept, so even a full refresh reuses
+ * the views of rows that are still there instead of rebinding every visible row. Not thread-safe;
+ * adapters only ask for ids on the main thread.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class StableIds {
+    private final Map<String, Long> ids = new HashMap<>();
+
+    /**
+     * Returns the stable id of a key.
+     *
+     * @param key The key of an item, or null for an item without one.
+     * @return The id of the key; every null key gets {@code RecyclerView.NO_ID}.
+     */
+    public long idOf(String key) {
+        if (key == null) return -1; // RecyclerView.NO_ID
+        Long id = ids.get(key);
+        if (id == null) {
+            id = (long) ids.size();
+            ids.put(key, id);
+        }
+        return id;
+    }
+}
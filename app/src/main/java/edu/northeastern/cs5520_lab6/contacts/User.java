@@ -1,7 +1,11 @@
 package edu.northeastern.cs5520_lab6.contacts;
 
+import com.google.firebase.database.Exclude;
+
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import edu.northeastern.cs5520_lab6.stickers.Sticker;
 /**
@@ -21,7 +25,8 @@ public class User {
     private String welcomeMessage; // User set welcome message
     private String imageUrl; // URL of the contact's image
     private Contacts contacts; // List of contacts associated with the user
-    private List<Sticker> stickers;
+    private List<Sticker> stickers; // Legacy sticker usage list, migrated into stickerCounts
+    private Map<String, Long> stickerCounts; // Sticker usage counts keyed by sticker id
 
     /**
      * Default constructor for creating a User instance without setting any initial values.
@@ -86,19 +91,30 @@ public class User {
     public String getImageUrl() { return imageUrl; }
 
     /**
-     * Retrieves the list of contacts associated with the user.
+     * Retrieves the contacts associated with the user. Contacts are stored as individual
+     * {@code contacts/{contactId}} entries and read through {@code FirebaseApi.loadContactData},
+     * so they are never written or read as part of the whole profile.
      *
      * @return The user's contacts.
      */
+    @Exclude
     public Contacts getContacts() { return contacts; }
 
     /**
-     * Retrieves the list of stickers the user has interacted with.
+     * Retrieves the legacy list of stickers the user has interacted with. Usage is now recorded in
+     * {@link #getStickerCounts()}; this list is only kept until it has been migrated.
      *
-     * @return A list of stickers.
+     * @return A list of stickers, or null once migrated.
      */
     public List<Sticker> getStickers() { return stickers; }
 
+    /**
+     * Retrieves how many times the user has sent each sticker.
+     *
+     * @return The usage counts keyed by sticker id.
+     */
+    public Map<String, Long> getStickerCounts() { return stickerCounts; }
+
 
     // Setters
 
@@ -107,34 +123,20 @@ public class User {
      *
      * @param contacts The new contacts to be set.
      */
+    @Exclude
     public void setContacts(Contacts contacts) { this.contacts = contacts; }
 
     /**
-     * Sets the list of stickers the user has interacted with.
+     * Sets the legacy list of stickers the user has interacted with.
      *
      * @param stickers The new list of stickers.
      */
-    public void setStickers(List<Sticker> stickers) { this.stickers = new ArrayList<Sticker>(stickers); }
+    public void setStickers(List<Sticker> stickers) { this.stickers = stickers == null ? null : new ArrayList<Sticker>(stickers); }
 
     /**
-     * Adds a sticker to the user's list of interacted stickers. If the sticker already exists,
-     * increments its count; otherwise, adds it to the list.
+     * Sets the sticker usage counts.
      *
-     * @param newSticker The sticker to be added or incremented.
+     * @param stickerCounts The usage counts keyed by sticker id.
      */
-    public void addSticker(Sticker newSticker) {
-        if (this.stickers == null) {
-            this.stickers = new ArrayList<Sticker>();
-        }
-        if(this.stickers.contains(newSticker)) {
-            for (Sticker sticker : this.stickers) {
-                if (sticker.equals(newSticker)) {
-                    sticker.incrementCount();
-                    return;
-                }
-            }
-        } else {
-            this.stickers.add(newSticker);
-        }
-    }
+    public void setStickerCounts(Map<String, Long> stickerCounts) { this.stickerCounts = stickerCounts == null ? null : new HashMap<>(stickerCounts); }
 }
\ No newline at end of file
@@ -8,41 +8,94 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import java.util.List;
+import java.util.Objects;
 
 import edu.northeastern.cs5520_lab6.R;
+import edu.northeastern.cs5520_lab6.contacts.StableIds;
 import edu.northeastern.cs5520_lab6.messages.Chat;
-import edu.northeastern.cs5520_lab6.stickers.StickerEnum;
+import edu.northeastern.cs5520_lab6.messages.Timestamps;
+import edu.northeastern.cs5520_lab6.stickers.StickerImageLoader;
 
 /**
  * Adapter class for a RecyclerView that displays a list of chat sessions. Each chat session is
  * represented by a {@link Chat} object and displayed using a custom layout. This adapter is
  * responsible for managing chat data and binding these data to the view holders.
  *
- * @version 1.1
+ * The chats are kept in a {@link RecentChats} list owned by the adapter, most recently active
+ * first. Rows have stable ids derived from the chat ids. A new message in a chat only changes its
+ * preview, so such changes are reported with {@link #PAYLOAD_PREVIEW} and rebind just the last
+ * message and timestamp of the row, along with a move of the row to the top.
+ *
+ * @version 1.3
  * @author Tony Wilson
  */
 public class ChatsAdapter extends RecyclerView.Adapter<ChatsAdapter.ChatViewHolder> {
     /**
-     * The list of chat messages that the adapter will use to bind to the ViewHolders.
+     * Payload of a change that only affects the last message preview and timestamp of a chat.
+     */
+    public static final Object PAYLOAD_PREVIEW = new Object();
+
+    /**
+     * Identifies chats by id and compares the fields a row displays. Its change payload is
+     * {@link #PAYLOAD_PREVIEW} when only the preview changed, or null for a full rebind.
+     */
+    public static final DiffUtil.ItemCallback<Chat> DIFF_CALLBACK = new DiffUtil.ItemCallback<Chat>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Chat oldChat, @NonNull Chat newChat) {
+            return Objects.equals(oldChat.getId(), newChat.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Chat oldChat, @NonNull Chat newChat) {
+            return isSameHeader(oldChat, newChat)
+                    && Objects.equals(oldChat.getLastMessage(), newChat.getLastMessage())
+                    && oldChat.getTimestamp() == newChat.getTimestamp();
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Chat oldChat, @NonNull Chat newChat) {
+            return isSameHeader(oldChat, newChat) ? PAYLOAD_PREVIEW : null;
+        }
+
+        private boolean isSameHeader(Chat oldChat, Chat newChat) {
+            return Objects.equals(oldChat.getName(), newChat.getName())
+                    && Objects.equals(oldChat.getAvatarUrl(), newChat.getAvatarUrl());
+        }
+    };
+
+    /**
+     * The chats that the adapter will use to bind to the ViewHolders, by last activity.
      */
-    private List<Chat> chatList;
+    private final RecentChats chats = new RecentChats(this);
 
     /**
      * The listen for clicking on a chat.
      */
     private  ChatItemClickListener chatItemClickListener;
 
+    private final StableIds stableIds = new StableIds();
+
     /**
      * Constructs a new ChatsAdapter instance.
      *
-     * @param chatList A list of {@link Chat} objects to be displayed in the RecyclerView.
      * @param chatItemClickListener Listener for handling clicks on chat items.
      */
-    public ChatsAdapter(List<Chat> chatList, ChatItemClickListener chatItemClickListener) {
-        this.chatList = chatList;
+    public ChatsAdapter(ChatItemClickListener chatItemClickListener) {
         this.chatItemClickListener = chatItemClickListener;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Returns the chats displayed by the adapter. Changes made to them are reported to the
+     * adapter automatically.
+     *
+     * @return The chats, most recently active first.
+     */
+    public RecentChats getChats() {
+        return chats;
     }
 
     /**
@@ -72,11 +125,28 @@ public class ChatsAdapter extends RecyclerView.Adapter<ChatsAdapter.ChatViewHold
      */
     @Override
     public void onBindViewHolder(@NonNull ChatViewHolder holder, int position) {
-        Chat chat = chatList.get(position);
+        Chat chat = chats.get(position);
         holder.binder(chat);
         // Load avatar image using stickerId
     }
 
+    /**
+     * Called by RecyclerView to rebind a row after a change. If every pending change only
+     * affected the preview, only the last message and timestamp are rebound.
+     *
+     * @param holder   The ViewHolder which should be updated.
+     * @param position The position of the item within the adapter's data set.
+     * @param payloads The payloads of the changes since the row was last bound.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull ChatViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty() || payloads.contains(null)) {
+            onBindViewHolder(holder, position);
+        } else {
+            holder.bindPreview(chats.get(position));
+        }
+    }
+
     /**
      * Returns the total number of items in the data set held by the adapter.
      *
@@ -84,7 +154,18 @@ public class ChatsAdapter extends RecyclerView.Adapter<ChatsAdapter.ChatViewHold
      */
     @Override
     public int getItemCount() {
-        return chatList.size();
+        return chats.size();
+    }
+
+    /**
+     * Returns the stable id of the chat at a position, derived from its chat id.
+     *
+     * @param position The position of the chat.
+     * @return The stable id of the chat.
+     */
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idOf(chats.get(position).getId());
     }
 
     /**
@@ -120,7 +201,7 @@ public class ChatsAdapter extends RecyclerView.Adapter<ChatsAdapter.ChatViewHold
                     if (chatItemClickListener != null) {
                         int position = getAdapterPosition();
                         if (position != RecyclerView.NO_POSITION) {
-                            chatItemClickListener.onChatClick(chatList.get(position).getId());
+                            chatItemClickListener.onChatClick(chats.get(position));
                         }
                     }
                 }
@@ -139,20 +220,24 @@ public class ChatsAdapter extends RecyclerView.Adapter<ChatsAdapter.ChatViewHold
          */
         void binder(Chat chat) {
             nameTextView.setText(chat.getName());
-            timestampTextView.setText(chat.getTimestamp());
+            bindPreview(chat);
+        }
+
+        /**
+         * Binds the timestamp and the last message or sticker of a chat, leaving the rest of the
+         * row as it is.
+         *
+         * @param chat The chat whose preview is displayed.
+         */
+        void bindPreview(Chat chat) {
+            timestampTextView.setText(Timestamps.format(chat.getTimestamp()));
             if (chat.getLastMessage().startsWith("%sticker%:")) {
                 // This is a sticker message, extract the sticker ID
                 String stickerId = chat.getLastMessage().substring(10); // Remove the "%sticker%:" part
                 // Now, use stickerId to display the sticker image
                 lastMessageTextView.setVisibility(View.GONE);
                 stickerImageView.setVisibility(View.VISIBLE);
-                int stickerResId = StickerEnum.getResourceIdById(stickerId);
-                if (stickerResId != -1) {
-                    stickerImageView.setImageResource(stickerResId);
-                } else {
-                    // Handle unknown sticker
-                    stickerImageView.setImageResource(R.drawable.default_sticker);
-                }
+                StickerImageLoader.getInstance().load(stickerId, stickerImageView);
             } else {
                 // This is a regular text message, display it as such
                 lastMessageTextView.setVisibility(View.VISIBLE);
@@ -169,8 +254,8 @@ public class ChatsAdapter extends RecyclerView.Adapter<ChatsAdapter.ChatViewHold
         /**
          * Called when a chat item is clicked.
          *
-         * @param chatId The ID of the clicked chat.
+         * @param chat The clicked chat.
          */
-        void onChatClick(String chatId);
+        void onChatClick(Chat chat);
     }
 }
\ No newline at end of file
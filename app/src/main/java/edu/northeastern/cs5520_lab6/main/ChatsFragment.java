@@ -18,7 +18,6 @@ import android.view.ViewGroup;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.List;
 import java.util.ArrayList;
 
 import edu.northeastern.cs5520_lab6.R;
@@ -41,7 +40,6 @@ public class ChatsFragment extends Fragment {
 
     private RecyclerView recyclerView;
     private ChatsAdapter adapter;
-    private List<Chat> chatList;
     public boolean onStartUp = false;
     private int count = 0;
 
@@ -71,12 +69,12 @@ public class ChatsFragment extends Fragment {
         View view = inflater.inflate(R.layout.fragment_chats, container, false);
 
         // Initialize components of activity
-        chatList = new ArrayList<>();
         initializeRecyclerView(view);
 
-        FirebaseApi.loadChatData(chatList, adapter);
+        // Both subscriptions are detached automatically when this view is destroyed
+        FirebaseApi.loadChatData(getViewLifecycleOwner(), adapter);
 
-        FirebaseApi.attachChatListener(new FirebaseApi.DataLoadListener() {
+        FirebaseApi.attachChatListener(getViewLifecycleOwner(), new FirebaseApi.DataLoadListener() {
             @Override
             public void onDataLoaded(Chat chat) {
                 // Actions to take after data is loaded, e.g., hide a loading spinner
@@ -123,11 +121,14 @@ public class ChatsFragment extends Fragment {
     private void initializeRecyclerView(View view) {
         recyclerView = view.findViewById(R.id.chatsRecyclerView);
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
-        adapter = new ChatsAdapter(chatList, new ChatsAdapter.ChatItemClickListener() {
+        adapter = new ChatsAdapter(new ChatsAdapter.ChatItemClickListener() {
             @Override
-            public void onChatClick(String chatId) {
+            public void onChatClick(Chat chat) {
                 Intent intent = new Intent(getContext(), MessageActivity.class);
-                intent.putExtra("chatId", chatId);
+                intent.putExtra("chatId", chat.getId());
+                if (chat.getUserIds() != null) {
+                    intent.putStringArrayListExtra("userIds", new ArrayList<>(chat.getUserIds()));
+                }
                 startActivity(intent);
             }
         });
@@ -162,7 +163,7 @@ public class ChatsFragment extends Fragment {
 
     /**
      * Constructs a detailed notification for a new message in a specific chat. The notification
-     * includes a title derived from the chat's name, a prompt to view the message, and an action
+     * includes a title naming the sender of the last message, as stored on the chat, a prompt to view the message, and an action
      * that opens the chat in the app when the notification is tapped. This method is crucial for
      * alerting users about new messages in a manner that is accessible and actionable directly
      * from the notification itself.
@@ -176,7 +177,9 @@ public class ChatsFragment extends Fragment {
         notificationIntent.putExtra("chatId", chat.getId()); // Pass chat ID to handle in MainActivity
         PendingIntent pendingIntent = PendingIntent.getActivity(requireContext(), 0, notificationIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
 
-        String notificationTitle = "New message from " + chat.getName(); // Customize title with chat name
+        // The sender's name is stored on the chat with the message, so no lookup is needed here
+        String senderName = chat.getLastSenderName() != null ? chat.getLastSenderName() : chat.getName();
+        String notificationTitle = "New message from " + senderName;
         String notificationContent = "Tap to view"; // Customize content as needed
 
         // Ensure a notification channel is set up with this id
@@ -7,12 +7,16 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import java.util.List;
+import java.util.Objects;
 
 import edu.northeastern.cs5520_lab6.R;
+import edu.northeastern.cs5520_lab6.contacts.StableIds;
 import edu.northeastern.cs5520_lab6.stickers.Cost;
-import edu.northeastern.cs5520_lab6.stickers.StickerEnum;
+import edu.northeastern.cs5520_lab6.stickers.StickerImageLoader;
 
 /**
  * Manages the display of sticker costs in a list format within a RecyclerView. Utilizes a
@@ -22,19 +26,50 @@ import edu.northeastern.cs5520_lab6.stickers.StickerEnum;
  * This adapter is intended to be used in a context where showing a detailed breakdown of costs
  * to the user is necessary, providing both a visual and a numerical representation of expenses.
  *
+ * New lists are handed over through {@link #submitList(List)} and diffed by sticker id on a
+ * background thread, so reloading the costs only rebinds the stickers whose usage changed.
+ *
  * @author Tony Wilson
- * @version 1.0
+ * @version 1.1
  */
 public class CostsAdapter extends RecyclerView.Adapter<CostsAdapter.CostViewHolder> {
-    private List<Cost> costList;
+    /**
+     * Identifies costs by sticker id and compares their count and price.
+     */
+    private static final DiffUtil.ItemCallback<Cost> DIFF_CALLBACK = new DiffUtil.ItemCallback<Cost>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Cost oldCost, @NonNull Cost newCost) {
+            return Objects.equals(oldCost.getStickerId(), newCost.getStickerId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Cost oldCost, @NonNull Cost newCost) {
+            return oldCost.getCount() == newCost.getCount()
+                    && oldCost.getCostPerUse() == newCost.getCostPerUse();
+        }
+    };
+
+    private final AsyncListDiffer<Cost> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private final StableIds stableIds = new StableIds();
 
     /**
      * Constructs a CostsAdapter with a specified list of costs.
      *
-     * @param costList The list of Cost objects to be displayed by the adapter.
+     * @param costList The initial list of Cost objects to be displayed by the adapter.
      */
     public CostsAdapter(List<Cost> costList) {
-        this.costList = costList;
+        setHasStableIds(true);
+        submitList(costList);
+    }
+
+    /**
+     * Replaces the displayed costs. The new list is diffed against the current one off the main
+     * thread, and only the rows that differ are updated.
+     *
+     * @param costList The new costs; the list must not be modified afterwards.
+     */
+    public void submitList(List<Cost> costList) {
+        differ.submitList(costList);
     }
 
     /**
@@ -60,7 +95,7 @@ public class CostsAdapter extends RecyclerView.Adapter<CostsAdapter.CostViewHold
      */
     @Override
     public void onBindViewHolder(@NonNull CostViewHolder holder, int position) {
-        Cost cost = costList.get(position);
+        Cost cost = differ.getCurrentList().get(position);
         holder.bind(cost);
     }
 
@@ -71,7 +106,18 @@ public class CostsAdapter extends RecyclerView.Adapter<CostsAdapter.CostViewHold
      */
     @Override
     public int getItemCount() {
-        return costList.size();
+        return differ.getCurrentList().size();
+    }
+
+    /**
+     * Returns the stable id of the cost at a position, derived from its sticker id.
+     *
+     * @param position The position of the cost.
+     * @return The stable id of the cost.
+     */
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idOf(differ.getCurrentList().get(position).getStickerId());
     }
 
     /**
@@ -103,13 +149,7 @@ public class CostsAdapter extends RecyclerView.Adapter<CostsAdapter.CostViewHold
          * @param cost The cost object containing details about a specific sticker's usage and cost.
          */
         void bind(Cost cost) {
-            int stickerResId = StickerEnum.getResourceIdById(cost.getStickerId());
-            if (stickerResId != -1) {
-                stickerImageView.setImageResource(stickerResId);
-            } else {
-                // Handle unknown sticker by displaying a default sticker image
-                stickerImageView.setImageResource(R.drawable.default_sticker);
-            }
+            StickerImageLoader.getInstance().load(cost.getStickerId(), stickerImageView);
             countTextView.setText(String.valueOf(cost.getCount()));
             totalCostTextView.setText(String.format("$%.2f", cost.getTotalCost()));
         }
@@ -80,9 +80,6 @@ public class CostsFragment extends Fragment {
                 stickerList.addAll(updatedStickers);
                 buildCost();
                 updateTotalCost();
-                if(adapter != null) {
-                    adapter.notifyDataSetChanged(); // Now the data is fully synchronized
-                }
             }
         });
 
@@ -93,15 +90,16 @@ public class CostsFragment extends Fragment {
      * Iterates over the list of stickers and creates a corresponding {@link Cost} object for each
      * one. This method is used to generate a list of costs associated with the use of stickers,
      * based on their usage count and predefined cost per use. After building the cost list,
-     * it notifies the adapter to refresh the display, ensuring the UI reflects the most current
-     * sticker cost data.
+     * it submits a copy to the adapter, which diffs it against the displayed costs so only the
+     * stickers whose usage changed are rebound.
      */
     private void buildCost() {
+        costList.clear(); // Stickers may be delivered more than once, first from disk then from the network
         for(Sticker sticker : stickerList) {
             Cost cost = new Cost(sticker);
             costList.add(cost);
         }
-        adapter.notifyDataSetChanged();
+        adapter.submitList(new ArrayList<>(costList));
     }
 
     /**
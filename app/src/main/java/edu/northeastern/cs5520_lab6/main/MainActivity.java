@@ -17,6 +17,7 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.tabs.TabLayout;
 
 import edu.northeastern.cs5520_lab6.R;
+import edu.northeastern.cs5520_lab6.api.FirebaseApi;
 import edu.northeastern.cs5520_lab6.contacts.ContactsActivity;
 
 /**
@@ -80,6 +81,9 @@ public class MainActivity extends AppCompatActivity {
         setupViewPager(viewPager);
         tabLayout.setupWithViewPager(viewPager);
 
+        // Users from before the username registry reserve their name in it once
+        FirebaseApi.reserveOwnUsernameIfMissing();
+
         fab.setOnClickListener(view -> {
             // Open contact selection activity
             Intent intent = new Intent(MainActivity.this, ContactsActivity.class);
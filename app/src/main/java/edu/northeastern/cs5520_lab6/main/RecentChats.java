@@ -0,0 +1,169 @@
+package edu.northeastern.cs5520_lab6.main;
+
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.SortedList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.northeastern.cs5520_lab6.messages.Chat;
+
+/**
+ * The chats shown on the chat list, kept in order of last activity, most recent first. The chats
+ * are held in a {@link SortedList}, and a map from chat id to the chat currently in the list lets
+ * an update find the old entry by binary search instead of scanning the list.
+ *
+ * When a chat receives a new message, its entry is replaced and moved to its new position in one
+ * step, which the adapter sees as a single change of the row's preview and a single move; no other
+ * row is re-sorted or rebound. Every change is reported to the adapter, or the update callback,
+ * the list was created for.
+ *
+ * Chats must not be modified once they have been added; a changed chat is passed to
+ * {@link #put(Chat)} as a new object. Not thread-safe; used on the main thread only.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class RecentChats {
+    /**
+     * Display order of chats: the chat with the newest message first, then by chat id, so that
+     * chats with equal timestamps still have a fixed position.
+     */
+    static final Comparator<Chat> BY_RECENCY = (first, second) -> {
+        int byTime = Long.compare(second.getTimestamp(), first.getTimestamp());
+        return byTime != 0 ? byTime : first.getId().compareTo(second.getId());
+    };
+
+    private final SortedList<Chat> chats;
+    private final Map<String, Chat> chatsById = new HashMap<>(); // The entry of every chat in the list
+
+    /**
+     * Creates an empty list that reports its changes to an adapter.
+     *
+     * @param adapter The adapter displaying the chats.
+     */
+    RecentChats(RecyclerView.Adapter<?> adapter) {
+        this(new AdapterListUpdateCallback(adapter));
+    }
+
+    /**
+     * Creates an empty list that reports its changes to a callback.
+     *
+     * @param updates Receives the position of every insert, removal, move and change.
+     */
+    RecentChats(ListUpdateCallback updates) {
+        chats = new SortedList<>(Chat.class, new SortedList.Callback<Chat>() {
+            @Override
+            public int compare(Chat first, Chat second) {
+                return BY_RECENCY.compare(first, second);
+            }
+
+            @Override
+            public boolean areContentsTheSame(Chat oldChat, Chat newChat) {
+                return ChatsAdapter.DIFF_CALLBACK.areContentsTheSame(oldChat, newChat);
+            }
+
+            @Override
+            public boolean areItemsTheSame(Chat first, Chat second) {
+                return ChatsAdapter.DIFF_CALLBACK.areItemsTheSame(first, second);
+            }
+
+            @Override
+            public Object getChangePayload(Chat oldChat, Chat newChat) {
+                return ChatsAdapter.DIFF_CALLBACK.getChangePayload(oldChat, newChat);
+            }
+
+            @Override
+            public void onInserted(int position, int count) {
+                updates.onInserted(position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                updates.onRemoved(position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                updates.onMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count) {
+                updates.onChanged(position, count, null);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                updates.onChanged(position, count, payload);
+            }
+        });
+    }
+
+    /**
+     * Returns the number of chats.
+     *
+     * @return The number of chats in the list.
+     */
+    public int size() {
+        return chats.size();
+    }
+
+    /**
+     * Returns the chat at a position.
+     *
+     * @param position The position, 0 being the most recently active chat.
+     * @return The chat.
+     */
+    public Chat get(int position) {
+        return chats.get(position);
+    }
+
+    /**
+     * Adds a chat, or replaces the entry of a chat already in the list and moves it to the
+     * position its last activity now gives it.
+     *
+     * @param chat The new or changed chat.
+     */
+    public void put(Chat chat) {
+        Chat existing = chatsById.put(chat.getId(), chat);
+        if (existing == null) {
+            chats.add(chat);
+        } else {
+            chats.updateItemAt(chats.indexOf(existing), chat);
+        }
+    }
+
+    /**
+     * Adds the chats that are not in the list yet, as one batch. Chats already in the list are
+     * left as they are.
+     *
+     * @param newChats The chats to add.
+     */
+    public void putAbsent(Collection<Chat> newChats) {
+        List<Chat> absent = new ArrayList<>();
+        for (Chat chat : newChats) {
+            if (!chatsById.containsKey(chat.getId())) {
+                chatsById.put(chat.getId(), chat);
+                absent.add(chat);
+            }
+        }
+        if (!absent.isEmpty()) chats.addAll(absent);
+    }
+
+    /**
+     * Removes a chat.
+     *
+     * @param chatId The id of the chat.
+     */
+    public void remove(String chatId) {
+        Chat existing = chatsById.remove(chatId);
+        if (existing != null) chats.remove(existing);
+    }
+}
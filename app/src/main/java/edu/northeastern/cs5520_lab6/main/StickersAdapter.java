@@ -7,12 +7,16 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import java.util.List;
+import java.util.Objects;
 
 import edu.northeastern.cs5520_lab6.R;
+import edu.northeastern.cs5520_lab6.contacts.StableIds;
 import edu.northeastern.cs5520_lab6.stickers.Sticker;
-import edu.northeastern.cs5520_lab6.stickers.StickerEnum;
+import edu.northeastern.cs5520_lab6.stickers.StickerImageLoader;
 
 /**
  * Adapter for displaying a list of stickers in a RecyclerView. Each sticker item shows an image
@@ -20,18 +24,61 @@ import edu.northeastern.cs5520_lab6.stickers.StickerEnum;
  * updates to the sticker list, allowing the display to refresh as new stickers are added or counts
  * are updated.
  *
+ * New lists are handed over through {@link #submitList(List)} and diffed by sticker id on a
+ * background thread. A sticker whose count alone changed is rebound with {@link #PAYLOAD_COUNT},
+ * which only updates its count instead of reloading the image.
+ *
  * @author Tony Wilson
- * @version 1.0
+ * @version 1.1
  */
 public class StickersAdapter extends RecyclerView.Adapter<StickersAdapter.StickerViewHolder> {
-    private List<Sticker> stickerList;
+    /**
+     * Payload of a change that only affects a sticker's usage count.
+     */
+    static final Object PAYLOAD_COUNT = new Object();
+
+    /**
+     * Identifies stickers by id and compares their usage counts.
+     */
+    private static final DiffUtil.ItemCallback<Sticker> DIFF_CALLBACK = new DiffUtil.ItemCallback<Sticker>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Sticker oldSticker, @NonNull Sticker newSticker) {
+            return Objects.equals(oldSticker.getId(), newSticker.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Sticker oldSticker, @NonNull Sticker newSticker) {
+            return oldSticker.getCount() == newSticker.getCount();
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Sticker oldSticker, @NonNull Sticker newSticker) {
+            return PAYLOAD_COUNT; // The id, and with it the image, is the same
+        }
+    };
+
+    private final AsyncListDiffer<Sticker> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private final StableIds stableIds = new StableIds();
 
     /**
      * Constructs the StickersAdapter with a specified list of Sticker objects.
      *
      * @param stickerList The initial list of stickers to display.
      */
-    public StickersAdapter(List<Sticker> stickerList) { this.stickerList = stickerList; }
+    public StickersAdapter(List<Sticker> stickerList) {
+        setHasStableIds(true);
+        submitList(stickerList);
+    }
+
+    /**
+     * Replaces the displayed stickers. The new list is diffed against the current one off the main
+     * thread, and only the rows that differ are updated.
+     *
+     * @param stickerList The new stickers; the list must not be modified afterwards.
+     */
+    public void submitList(List<Sticker> stickerList) {
+        differ.submitList(stickerList);
+    }
 
     /**
      * Creates new views (invoked by the layout manager) for each item in the stickerList.
@@ -56,11 +103,27 @@ public class StickersAdapter extends RecyclerView.Adapter<StickersAdapter.Sticke
      */
     @Override
     public void onBindViewHolder(@NonNull StickerViewHolder holder, int position) {
-        Sticker sticker = stickerList.get(position);
+        Sticker sticker = differ.getCurrentList().get(position);
         holder.bind(sticker);
         // Load sticker image using stickerId
     }
 
+    /**
+     * Rebinds a sticker item, updating only its count if that is all that changed.
+     *
+     * @param holder   The StickerViewHolder to update.
+     * @param position The position of the sticker item within the adapter's data set.
+     * @param payloads The payloads of the changes since the item was last bound.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull StickerViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            holder.bindCount(differ.getCurrentList().get(position));
+        }
+    }
+
     /**
      * Returns the total number of stickers in the list (invoked by the layout manager).
      *
@@ -68,7 +131,18 @@ public class StickersAdapter extends RecyclerView.Adapter<StickersAdapter.Sticke
      */
     @Override
     public int getItemCount() {
-        return stickerList.size();
+        return differ.getCurrentList().size();
+    }
+
+    /**
+     * Returns the stable id of the sticker at a position, derived from its sticker id.
+     *
+     * @param position The position of the sticker.
+     * @return The stable id of the sticker.
+     */
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idOf(differ.getCurrentList().get(position).getId());
     }
 
     /**
@@ -98,14 +172,17 @@ public class StickersAdapter extends RecyclerView.Adapter<StickersAdapter.Sticke
          * @param sticker The sticker object containing the information to be displayed.
          */
         void bind(Sticker sticker) {
+            bindCount(sticker);
+            StickerImageLoader.getInstance().load(sticker.getId(), stickerImageView);
+        }
+
+        /**
+         * Updates only the usage count of the sticker.
+         *
+         * @param sticker The sticker object containing the count to be displayed.
+         */
+        void bindCount(Sticker sticker) {
             countTextView.setText(String.valueOf(sticker.getCount()));
-            int stickerResId = StickerEnum.getResourceIdById(sticker.getId());
-            if (stickerResId != -1) {
-                stickerImageView.setImageResource(stickerResId);
-            } else {
-                // Handle unknown sticker
-                stickerImageView.setImageResource(R.drawable.default_sticker);
-            }
         }
     }
 }
\ No newline at end of file
@@ -80,7 +80,7 @@ public class StickersFragment extends Fragment {
             public void onStickersLoaded(List<Sticker> updatedStickers) {
                 stickerList.clear();
                 stickerList.addAll(updatedStickers);
-                adapter.notifyDataSetChanged(); // Now the data is fully synchronized
+                adapter.submitList(new ArrayList<>(stickerList)); // Diffed, so only changed counts are rebound
             }
         });
 
@@ -105,7 +105,7 @@ public class StickersFragment extends Fragment {
             public void onStickersLoaded(List<Sticker> updatedStickers) {
                 stickerList.clear();
                 stickerList.addAll(updatedStickers);
-                adapter.notifyDataSetChanged(); // Now the data is fully synchronized
+                adapter.submitList(new ArrayList<>(stickerList)); // Diffed, so only changed counts are rebound
             }
         });
     }
@@ -1,5 +1,9 @@
 package edu.northeastern.cs5520_lab6.messages;
 
+import com.google.firebase.database.Exclude;
+import com.google.firebase.database.PropertyName;
+import com.google.firebase.database.ServerValue;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,8 +24,10 @@ public class Chat {
     private List<String> userIds; // Identifiers for all users participating in the chat
     private String name; // Display name for the chat, often based on participants' names
     private String lastMessage; // Content of the last message sent within the chat
-    private String timestamp; // Timestamp for when the last message was sent
+    private long timestamp; // Epoch millis at which the last message was sent; 0 until assigned
     private String avatarUrl; // URL to an avatar image associated with the chat
+    private String lastSenderId; // Identifier of the user who sent the last message
+    private String lastSenderName; // Display name of that user at the time of sending
 
     /**
      * Default constructor for creating an empty Chat instance. This is used primarily
@@ -38,12 +44,12 @@ public class Chat {
      * @param userIds List of user identifiers who are participants of the chat.
      * @param name Display name for the chat.
      * @param lastMessage Content of the last message exchanged.
-     * @param timestamp Timestamp for the last message exchange.
+     * @param timestamp Epoch millis of the last message exchange, or 0 to let the server assign them.
      * @param avatarUrl URL to an optional avatar image for the chat.
      */
-    public Chat(String id, List<String> userIds, String name, String lastMessage, String timestamp, String avatarUrl) {
+    public Chat(String id, List<String> userIds, String name, String lastMessage, long timestamp, String avatarUrl) {
         this.chatId = id;
-        this.userIds = new ArrayList<>(userIds);
+        this.userIds = userIds == null ? null : new ArrayList<>(userIds);
         this.name = name;
         this.lastMessage = lastMessage;
         this.timestamp = timestamp;
@@ -82,12 +88,23 @@ public class Chat {
 
     /**
      * Returns the timestamp of the last message.
-     * @return The timestamp as a String.
+     * @return The timestamp in epoch millis, or 0 if it is not known.
      */
-    public String getTimestamp() {
+    @Exclude
+    public long getTimestamp() {
         return timestamp;
     }
 
+    /**
+     * Returns the timestamp as it is written to the database. An unassigned timestamp is written
+     * as {@link ServerValue#TIMESTAMP} so that the server fills in its own clock.
+     * @return The epoch millis, or the server timestamp placeholder.
+     */
+    @PropertyName("timestamp")
+    public Object getTimestampValue() {
+        return timestamp > 0 ? (Object) timestamp : ServerValue.TIMESTAMP;
+    }
+
     /**
      * Returns the URL for the avatar image of the other party, if available.
      * @return The avatar URL as a String, or null if not set.
@@ -96,6 +113,22 @@ public class Chat {
         return avatarUrl;
     }
 
+    /**
+     * Returns the id of the user who sent the last message, written alongside the message itself.
+     * @return The sender id, or null for chats whose last message predates this field.
+     */
+    public String getLastSenderId() {
+        return lastSenderId;
+    }
+
+    /**
+     * Returns the display name of the user who sent the last message.
+     * @return The sender name, or null if it was not known when the message was sent.
+     */
+    public String getLastSenderName() {
+        return lastSenderName;
+    }
+
 
 
     // Mutator methods if modification of chat details is required after initial construction
@@ -114,4 +147,24 @@ public class Chat {
      * @param name The new name to be set.
      */
     public void setName(String name) { this.name=name; }
+
+    /**
+     * Sets the timestamp from the value read from the database, which is epoch millis for current
+     * chats and a "ddMMM HH:mm" string for chats written by earlier versions.
+     * @param value The stored timestamp.
+     */
+    @PropertyName("timestamp")
+    public void setTimestampValue(Object value) { this.timestamp = Timestamps.parse(value); }
+
+    /**
+     * Sets the id of the user who sent the last message.
+     * @param lastSenderId The sender id.
+     */
+    public void setLastSenderId(String lastSenderId) { this.lastSenderId = lastSenderId; }
+
+    /**
+     * Sets the display name of the user who sent the last message.
+     * @param lastSenderName The sender name.
+     */
+    public void setLastSenderName(String lastSenderName) { this.lastSenderName = lastSenderName; }
 }
\ No newline at end of file
@@ -1,5 +1,11 @@
 package edu.northeastern.cs5520_lab6.messages;
 
+import com.google.firebase.database.Exclude;
+import com.google.firebase.database.PropertyName;
+import com.google.firebase.database.ServerValue;
+
+import java.util.List;
+
 /**
  * Encapsulates the details of a message exchanged in a chat conversation. This class includes
  * information about the message's content, the sender's identifier, the chat it belongs to, and
@@ -14,9 +20,11 @@ public class Message {
     private String id;      // Unique identifier of the message within its chat
     private String text;    // Text content of the message
     private String senderId; // Identifier of the user who sent the message
-    private String timestamp;  // Epoch timestamp indicating when the message was sent
+    private long timestamp;  // Epoch millis at which the server received the message; 0 until assigned
     private String messageType; // "text" or "sticker"
     private String stickerId; // Used if messageType is "sticker"
+    private boolean pending; // True while the message is waiting in the outbox; never stored in Firebase
+    private List<String> chatUserIds; // Participants of the chat, for the outbox; never stored in Firebase
 
     /**
      * Default constructor for creating an instance of Message. This is particularly used
@@ -32,11 +40,11 @@ public class Message {
      * @param id The unique message ID within the chat.
      * @param text The message's text content.
      * @param senderId The ID of the user sending this message.
-     * @param timestamp The timestamp indicating when the message was sent.
+     * @param timestamp The epoch millis at which the message was sent, or 0 to let the server assign them.
      * @param messageType The type of the message, distinguishing between text and sticker messages.
      * @param stickerId The ID of the sticker, relevant for sticker messages.
      */
-    public Message(String chatId, String id, String text, String senderId, String timestamp, String messageType, String stickerId) {
+    public Message(String chatId, String id, String text, String senderId, long timestamp, String messageType, String stickerId) {
         this.chatId = chatId;
         this.id = id;
         this.text = text;
@@ -77,9 +85,19 @@ public class Message {
     /**
      * Retrieves the timestamp when the message was sent.
      *
-     * @return The timestamp when the message was sent.
+     * @return The epoch millis at which the message was sent, or 0 if the server has not assigned them yet.
      */
-    public String getTimestamp() { return timestamp; }
+    @Exclude
+    public long getTimestamp() { return timestamp; }
+
+    /**
+     * Returns the timestamp as it is written to the database. An unassigned timestamp is written
+     * as {@link ServerValue#TIMESTAMP} so that the server fills in its own clock.
+     *
+     * @return The epoch millis, or the server timestamp placeholder.
+     */
+    @PropertyName("timestamp")
+    public Object getTimestampValue() { return timestamp > 0 ? (Object) timestamp : ServerValue.TIMESTAMP; }
 
     /**
      * Retrieves the type of the message, indicating whether it is a text message or a sticker.
@@ -95,6 +113,23 @@ public class Message {
      */
     public String getStickerId() { return stickerId; }
 
+    /**
+     * Indicates whether the message has been queued locally but not yet acknowledged by the server.
+     *
+     * @return true if the message is still pending.
+     */
+    @Exclude
+    public boolean isPending() { return pending; }
+
+    /**
+     * Retrieves the participants of the chat, which the outbox lists the chat for when it writes
+     * the message.
+     *
+     * @return The participant ids, or null if they are not known.
+     */
+    @Exclude
+    public List<String> getChatUserIds() { return chatUserIds; }
+
 
 
 
@@ -121,9 +156,19 @@ public class Message {
      * Sets the timestamp for when the message was sent. This method allows adjusting the
      * timestamp after the message has been created.
      *
-     * @param timestamp The new timestamp for the message.
+     * @param timestamp The new timestamp for the message, in epoch millis.
      */
-    public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
+    @Exclude
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+
+    /**
+     * Sets the timestamp from the value read from the database, which is epoch millis for current
+     * messages and a "ddMMM HH:mm" string for messages written by earlier versions.
+     *
+     * @param value The stored timestamp.
+     */
+    @PropertyName("timestamp")
+    public void setTimestampValue(Object value) { this.timestamp = Timestamps.parse(value); }
 
     /**
      * Sets the type of the message. This method allows changing the message's type after it has
@@ -140,4 +185,20 @@ public class Message {
      * @param stickerId The new sticker ID to be set.
      */
     public void setStickerId(String stickerId) { this.stickerId = stickerId; }
+
+    /**
+     * Marks the message as pending or acknowledged.
+     *
+     * @param pending true while the message is waiting to be acknowledged by the server.
+     */
+    @Exclude
+    public void setPending(boolean pending) { this.pending = pending; }
+
+    /**
+     * Sets the participants of the chat the message is sent to.
+     *
+     * @param chatUserIds The participant ids.
+     */
+    @Exclude
+    public void setChatUserIds(List<String> chatUserIds) { this.chatUserIds = chatUserIds; }
 }
\ No newline at end of file
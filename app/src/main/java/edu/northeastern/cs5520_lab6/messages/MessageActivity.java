@@ -2,12 +2,16 @@ package edu.northeastern.cs5520_lab6.messages;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.Toast;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -23,10 +27,16 @@ import java.util.List;
 import edu.northeastern.cs5520_lab6.LogInActivity;
 import edu.northeastern.cs5520_lab6.R;
 import edu.northeastern.cs5520_lab6.api.FirebaseApi;
+import edu.northeastern.cs5520_lab6.api.MessageOutbox;
+import edu.northeastern.cs5520_lab6.api.MessagePager;
 import edu.northeastern.cs5520_lab6.contacts.GenericAdapterNotifier;
 import edu.northeastern.cs5520_lab6.stickers.Sticker;
 import edu.northeastern.cs5520_lab6.stickers.StickerAdapter;
-import edu.northeastern.cs5520_lab6.stickers.StickerEnum;
+import edu.northeastern.cs5520_lab6.stickers.StickerCatalog;
+import edu.northeastern.cs5520_lab6.stickers.StickerImageLoader;
+import edu.northeastern.cs5520_lab6.stickers.StickerPackFile;
+import edu.northeastern.cs5520_lab6.stickers.StickerPackStore;
+import edu.northeastern.cs5520_lab6.stickers.StickerRanking;
 
 /**
  * Provides an interactive interface for users to view and send messages within a specific chat.
@@ -38,16 +48,25 @@ import edu.northeastern.cs5520_lab6.stickers.StickerEnum;
  * @author Tony Wilson
  */
 public class MessageActivity extends AppCompatActivity {
+    private static final int OLDER_PAGE_THRESHOLD = 5; // Rows from the top at which the previous page is requested
+    private static final int PREFETCH_STICKERS = 8; // Leading picker stickers decoded when the chat opens
     private EditText messageEditText; // Input field for new messages
     private Button sendMessageButton; // Button to initiate message sending
     private RecyclerView messagesRecyclerView; // Displays the history of messages
     private MessageAdapter messageAdapter; // Adapter for rendering messages in RecyclerView
-    private List<Message> messages = new ArrayList<>(); // Message history for the current session
+    private MessageStore messages; // Message history for the current session
+    private MessagePager messagePager; // Sliding window over the chat's messages
+    private MessageOutbox.OutboxListener outboxListener; // Reports messages the server rejected
     private String chatId; // Identifier for the current chat
+    private List<String> chatUserIds; // Participants of the current chat, if the caller passed them
     private String currentUserId; // User ID of the message sender
     private FloatingActionButton fabStickers; // Button for sticker selection
     private RecyclerView stickersRecyclerView; // Displays sticker choices
-    private List<Sticker> stickers = new ArrayList<>(); // Stores stickers
+    private List<Sticker> stickers = new ArrayList<>(); // Stores stickers, in catalog order
+    private StickerAdapter stickerAdapter; // Shows the stickers in ranked order
+    private StickerRanking stickerRanking; // Orders the picker by the user's recent sticker use
+    private long openedAt; // Time the activity was created, for measuring time to first message
+    private boolean firstMessagesShown; // True once the first messages have been rendered
 
     /**
      * Initializes the activity, setting up UI components and loading existing messages for the
@@ -58,6 +77,7 @@ public class MessageActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        openedAt = SystemClock.elapsedRealtime();
         setContentView(R.layout.activity_message);
 
         // Initialize FirebaseAuth instance
@@ -73,31 +93,129 @@ public class MessageActivity extends AppCompatActivity {
             startActivity(intent_login);
         }
 
+        Bundle extras = getIntent().getExtras();
+        if (extras != null) {
+            this.chatId = extras.getString("chatId", null);
+            this.chatUserIds = extras.getStringArrayList("userIds");
+        }
+        messages = new MessageStore(chatId);
+
         initializeToolbar();
         setupMessageRecyclerView();
         setupStickersRecyclerView();
         setupMessageInput();
 
         // Load the data after the recyclerview and adapter is initialized
-        Bundle extras = getIntent().getExtras();
         if (extras != null) {
-            this.chatId = extras.getString("chatId", null);
-
             // Load appropriate messages based on chatId
             if (chatId != null) {
-                FirebaseApi.loadMessagesForChat(chatId, messages, new GenericAdapterNotifier() {
+                messagePager = FirebaseApi.loadMessagesForChat(this, chatId, messages, new GenericAdapterNotifier() {
                     @Override
                     public void notifyAdapterDataSetChanged() {
+                        boolean atBottom = isAtBottom();
                         messageAdapter.notifyDataSetChanged();
-                        if (!messages.isEmpty()) {
-                            messagesRecyclerView.smoothScrollToPosition(messages.size() - 1); // Scroll to the last message
+                        logFirstMessagesShown();
+                        if (atBottom) scrollToLastMessage();
+                    }
+
+                    @Override
+                    public void notifyAdapterItemRangeInserted(int positionStart, int itemCount) {
+                        // Checked before the adapter is told, while the layout still shows the old rows
+                        boolean atBottom = isAtBottom();
+                        messageAdapter.notifyItemRangeInserted(positionStart, itemCount);
+                        logFirstMessagesShown();
+                        // Only follow the conversation when rows were appended, not when an older page was
+                        // prepended, and not while the user is reading further up
+                        if (atBottom && positionStart + itemCount == messages.size()) {
+                            scrollToLastMessage();
                         }
                     }
+
+                    @Override
+                    public void notifyAdapterItemChanged(int position) {
+                        messageAdapter.notifyItemChanged(position);
+                    }
+
+                    @Override
+                    public void notifyAdapterItemChanged(int position, Object payload) {
+                        messageAdapter.notifyItemChanged(position, payload);
+                    }
+
+                    @Override
+                    public void notifyAdapterItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                        messageAdapter.notifyItemRangeChanged(positionStart, itemCount, payload);
+                    }
+
+                    @Override
+                    public void notifyAdapterItemRemoved(int position) {
+                        messageAdapter.notifyItemRemoved(position);
+                    }
+
+                    @Override
+                    public void notifyAdapterItemRangeRemoved(int positionStart, int itemCount) {
+                        messageAdapter.notifyItemRangeRemoved(positionStart, itemCount);
+                    }
+
+                    @Override
+                    public void notifyAdapterItemMoved(int fromPosition, int toPosition) {
+                        messageAdapter.notifyItemMoved(fromPosition, toPosition);
+                    }
                 });
+
+                // Queued messages are retried until they are sent; only a rejection is worth telling the user about
+                outboxListener = new MessageOutbox.OutboxListener() {
+                    @Override
+                    public void onMessageFailed(Message message) {
+                        if (chatId.equals(message.getChatId())) {
+                            Toast.makeText(MessageActivity.this, "Failed to send message", Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                };
+                MessageOutbox.getInstance().addListener(outboxListener);
             }
         }
     }
 
+    /**
+     * Detaches the outbox listener once the activity is gone. The message pager is tied to this
+     * activity's lifecycle and stops by itself.
+     */
+    @Override
+    protected void onDestroy() {
+        if (outboxListener != null) {
+            MessageOutbox.getInstance().removeListener(outboxListener);
+        }
+        super.onDestroy();
+    }
+
+    /**
+     * Logs how long it took from opening the chat until its first messages were shown, once per
+     * activity. This is the time the on-device message store is meant to keep short.
+     */
+    private void logFirstMessagesShown() {
+        if (firstMessagesShown || messages.isEmpty()) return;
+        firstMessagesShown = true;
+        Log.d("MessageActivity", "First messages shown after " + (SystemClock.elapsedRealtime() - openedAt) + " ms");
+    }
+
+    /**
+     * Returns whether the message list is scrolled all the way down, or too short to scroll.
+     *
+     * @return true if the most recent message is fully visible.
+     */
+    private boolean isAtBottom() {
+        return !messagesRecyclerView.canScrollVertically(1);
+    }
+
+    /**
+     * Scrolls the message list to the most recent message, if there is one.
+     */
+    private void scrollToLastMessage() {
+        if (!messages.isEmpty()) {
+            messagesRecyclerView.smoothScrollToPosition(messages.size() - 1); // Scroll to the last message
+        }
+    }
+
     /**
      * Initializes the toolbar with navigation and title settings.
      */
@@ -120,6 +238,17 @@ public class MessageActivity extends AppCompatActivity {
         messagesRecyclerView.setLayoutManager(layoutManager);
         messageAdapter = new MessageAdapter(messages, currentUserId);
         messagesRecyclerView.setAdapter(messageAdapter);
+
+        // Fetch the previous page of history when the user scrolls close to the oldest loaded message
+        messagesRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy < 0 && messagePager != null
+                        && layoutManager.findFirstVisibleItemPosition() <= OLDER_PAGE_THRESHOLD) {
+                    messagePager.loadOlder();
+                }
+            }
+        });
     }
 
     /**
@@ -128,7 +257,7 @@ public class MessageActivity extends AppCompatActivity {
     private void setupStickersRecyclerView() {
         // Initialize our stickers List
         stickers.clear(); // Clear existing stickers if any
-        stickers = StickerEnum.getAllStickers();
+        stickers = StickerCatalog.getInstance().getAllStickers();
 
         stickersRecyclerView = findViewById(R.id.message_stickerRecyclerView);
 
@@ -136,8 +265,43 @@ public class MessageActivity extends AppCompatActivity {
         stickersRecyclerView.setLayoutManager(new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false));
 
         // StickerAdapter is our adapter for stickers
-        StickerAdapter adapter = new StickerAdapter(stickers, this::onStickerSelected);
-        stickersRecyclerView.setAdapter(adapter);
+        stickerAdapter = new StickerAdapter(stickers, this::onStickerSelected);
+        stickersRecyclerView.setAdapter(stickerAdapter);
+
+        // Shown in catalog order until the stored scores are read
+        if (currentUserId != null) {
+            stickerRanking = new StickerRanking(currentUserId);
+            stickerRanking.load(this::rankStickers);
+        }
+    }
+
+    /**
+     * Reloads the stickers from the catalog, so that stickers of a newly installed pack are shown,
+     * and orders them again.
+     */
+    private void refreshStickers() {
+        stickers = StickerCatalog.getInstance().getAllStickers();
+        if (stickerRanking != null) {
+            rankStickers();
+        } else {
+            stickerAdapter.setStickers(stickers);
+        }
+    }
+
+    /**
+     * Orders the sticker picker by the user's recent sticker use and decodes the leading
+     * stickers, so that they show without a decode when the picker is first opened.
+     */
+    private void rankStickers() {
+        if (isDestroyed()) return;
+        List<Sticker> ranked = stickerRanking.rank(stickers);
+        stickerAdapter.setStickers(ranked);
+
+        List<String> leading = new ArrayList<>();
+        for (int i = 0; i < Math.min(PREFETCH_STICKERS, ranked.size()); i++) {
+            leading.add(ranked.get(i).getId());
+        }
+        StickerImageLoader.getInstance().prefetch(leading, getResources());
     }
 
     /**
@@ -167,33 +331,25 @@ public class MessageActivity extends AppCompatActivity {
 
     /**
      * Handles sending messages or stickers based on the input field content or sticker selection.
+     * The message is queued in the outbox and shown as pending right away, so the input is cleared
+     * without waiting for the server.
      */
     private void sendMessage() {
         String messageText = messageEditText.getText().toString().trim();
         //long timestamp = System.currentTimeMillis();
         if (!messageText.isEmpty()) {
-            FirebaseApi.sendMessage(chatId, messageText, 0, "text", new FirebaseApi.MessageSendCallback() {
-                @Override
-                public void onSuccess(Message message) {
-                    // Update UI and clear input field...
-                    runOnUiThread(() -> {
-                        messageEditText.setText("");
-                    });
-                }
-
-                @Override
-                public void onFailure() {
-                    // Handle sending failure, e.g., show a toast message
-                    runOnUiThread(() -> {
-                        Toast.makeText(MessageActivity.this, "Failed to send message", Toast.LENGTH_SHORT).show();
-                    });
-                }
-            });
+            if (FirebaseApi.sendMessage(chatId, chatUserIds, messageText, "text") != null) {
+                messageEditText.setText("");
+                scrollToLastMessage(); // Show the message just sent even if the user had scrolled up
+            } else {
+                Toast.makeText(MessageActivity.this, "Failed to send message", Toast.LENGTH_SHORT).show();
+            }
         }
     }
 
     /**
-     * Callback for when a sticker is selected. Sends the sticker as a message.
+     * Callback for when a sticker is selected. Sends the sticker as a message and records the use
+     * in the picker ranking.
      * @param sticker The selected Sticker object.
      */
     private void onStickerSelected(Sticker sticker) {
@@ -201,24 +357,85 @@ public class MessageActivity extends AppCompatActivity {
         //long timestamp = System.currentTimeMillis();
 
         // Send sticker as a message
-        FirebaseApi.sendMessage(chatId, stickerId, sticker.getCount(), "sticker", new FirebaseApi.MessageSendCallback() {
+        if (FirebaseApi.sendMessage(chatId, chatUserIds, stickerId, "sticker") != null) {
+            if (stickerRanking != null) {
+                stickerRanking.recordUse(stickerId);
+                stickerAdapter.setStickers(stickerRanking.rank(stickers)); // Reordered while the picker is hidden
+            }
+            toggleStickersVisibility();
+            scrollToLastMessage(); // Show the sticker just sent even if the user had scrolled up
+        } else {
+            Toast.makeText(MessageActivity.this, "Failed to send sticker", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /**
+     * Lists the packs offered by the sticker pack origin and installs the one the user picks.
+     */
+    private void showStickerPacks() {
+        StickerPackStore.getInstance().listAvailable(new StickerPackStore.ListingCallback() {
             @Override
-            public void onSuccess(Message message) {
-                runOnUiThread(() -> {
-                    // Update your UI
-                    toggleStickersVisibility();
-                });
+            public void onListed(List<String> packIds) {
+                if (isDestroyed()) return;
+                if (packIds.isEmpty()) {
+                    Toast.makeText(MessageActivity.this, "No sticker packs available", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                String[] labels = new String[packIds.size()];
+                for (int i = 0; i < labels.length; i++) {
+                    boolean installed = StickerPackStore.getInstance().getPack(packIds.get(i)) != null;
+                    labels[i] = installed ? packIds.get(i) + " (installed)" : packIds.get(i);
+                }
+                new AlertDialog.Builder(MessageActivity.this)
+                        .setTitle("Sticker packs")
+                        .setItems(labels, (dialog, which) -> installStickerPack(packIds.get(which)))
+                        .show();
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (isDestroyed()) return;
+                Toast.makeText(MessageActivity.this, "Failed to load sticker packs", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * Downloads a sticker pack, or updates the installed copy, and adds its stickers to the picker.
+     *
+     * @param packId The id of the pack.
+     */
+    private void installStickerPack(String packId) {
+        StickerPackStore.getInstance().install(packId, new StickerPackStore.InstallCallback() {
+            @Override
+            public void onInstalled(StickerPackFile pack) {
+                if (isDestroyed()) return;
+                refreshStickers();
+                Toast.makeText(MessageActivity.this, "Installed " + pack.getPackId(), Toast.LENGTH_SHORT).show();
             }
 
             @Override
-            public void onFailure() {
-                runOnUiThread(() -> Toast.makeText(MessageActivity.this, "Failed to send sticker", Toast.LENGTH_SHORT).show());
+            public void onFailed(String packId, Exception e) {
+                if (isDestroyed()) return;
+                Toast.makeText(MessageActivity.this, "Failed to install " + packId, Toast.LENGTH_SHORT).show();
             }
         });
     }
 
     /**
-     * Handles navigation item selections in the toolbar, specifically the home/up button.
+     * Adds the sticker pack action to the toolbar.
+     *
+     * @param menu The options menu in which items are placed.
+     * @return true for the menu to be displayed.
+     */
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.message_menu, menu);
+        return true;
+    }
+
+    /**
+     * Handles item selections in the toolbar: the home/up button and the sticker pack list.
      *
      * @param item The menu item that was selected.
      * @return boolean Return false to allow normal menu processing to proceed, true to consume it here.
@@ -229,6 +446,9 @@ public class MessageActivity extends AppCompatActivity {
             onBackPressed();
             finish();
             return true;
+        } else if (item.getItemId() == R.id.action_sticker_packs) {
+            showStickerPacks();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
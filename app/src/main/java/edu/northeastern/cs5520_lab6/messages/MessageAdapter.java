@@ -7,15 +7,18 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.gms.common.server.converter.StringToIntConverter;
 
 import java.util.List;
+import java.util.Objects;
 
 import edu.northeastern.cs5520_lab6.R;
 import edu.northeastern.cs5520_lab6.contacts.GenericAdapterNotifier;
-import edu.northeastern.cs5520_lab6.stickers.StickerEnum;
+import edu.northeastern.cs5520_lab6.contacts.StableIds;
+import edu.northeastern.cs5520_lab6.stickers.StickerImageLoader;
 
 /**
  * Adapter responsible for managing and binding message data within a {@link RecyclerView} in
@@ -24,22 +27,60 @@ import edu.northeastern.cs5520_lab6.stickers.StickerEnum;
  * This differentiation is achieved through layout inflation based on the sender's identity,
  * enhancing the user experience with a visually distinct chat interface.
  *
- * @version 1.1
+ * Rows have stable ids derived from the message ids. A message leaving the outbox is reported with
+ * {@link #PAYLOAD_PENDING}, which only restores the opacity of its row.
+ *
+ * @version 1.2
  * @author Tony Wilson
  */
 public class MessageAdapter extends RecyclerView.Adapter<MessageAdapter.MessageViewHolder> implements GenericAdapterNotifier {
-    private List<Message> messages; // List of message objects to display
+    /**
+     * Payload of a change that only affects whether a message is pending.
+     */
+    public static final Object PAYLOAD_PENDING = new Object();
+
+    /**
+     * Identifies messages by id and compares everything a row displays. Its change payload is
+     * {@link #PAYLOAD_PENDING} when only the pending state changed, or null for a full rebind.
+     */
+    public static final DiffUtil.ItemCallback<Message> DIFF_CALLBACK = new DiffUtil.ItemCallback<Message>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Message oldMessage, @NonNull Message newMessage) {
+            return Objects.equals(oldMessage.getId(), newMessage.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Message oldMessage, @NonNull Message newMessage) {
+            return isSameContent(oldMessage, newMessage) && oldMessage.isPending() == newMessage.isPending();
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Message oldMessage, @NonNull Message newMessage) {
+            return isSameContent(oldMessage, newMessage) ? PAYLOAD_PENDING : null;
+        }
+
+        private boolean isSameContent(Message oldMessage, Message newMessage) {
+            return Objects.equals(oldMessage.getText(), newMessage.getText())
+                    && Objects.equals(oldMessage.getSenderId(), newMessage.getSenderId())
+                    && Objects.equals(oldMessage.getMessageType(), newMessage.getMessageType())
+                    && Objects.equals(oldMessage.getStickerId(), newMessage.getStickerId());
+        }
+    };
+
+    private MessageStore messages; // Messages to display
     private String currentUserId; // ID of the current user to differentiate messages
+    private final StableIds stableIds = new StableIds();
 
     /**
      * Constructs a new MessageAdapter instance.
      *
-     * @param messages List of {@link Message} objects representing the chat history.
+     * @param messages The {@link MessageStore} holding the chat history.
      * @param currentUserId The unique identifier of the current user.
      */
-    public MessageAdapter(List<Message> messages, String currentUserId) {
+    public MessageAdapter(MessageStore messages, String currentUserId) {
         this.messages = messages;
         this.currentUserId = currentUserId;
+        setHasStableIds(true);
     }
 
     /**
@@ -54,9 +95,8 @@ public class MessageAdapter extends RecyclerView.Adapter<MessageAdapter.MessageV
      */
     @Override
     public int getItemViewType(int position) {
-        // Determine the view type based on the sender
-        Message message = messages.get(position);
-        if (message.getSenderId().equals(currentUserId)) {
+        // Determine the view type based on the sender, read straight from the store
+        if (currentUserId != null && currentUserId.equals(messages.getSenderId(position))) {
             return R.layout.item_message_user; // This layout is for the user's messages
         } else {
             return R.layout.item_message_contact; // This layout is for the contact's messages
@@ -94,6 +134,23 @@ public class MessageAdapter extends RecyclerView.Adapter<MessageAdapter.MessageV
         holder.bind(message);
     }
 
+    /**
+     * Rebinds a message after a change. If every pending change only affected the pending state,
+     * only the opacity is updated, read straight from the store without building a message.
+     *
+     * @param holder   The ViewHolder which should be updated.
+     * @param position The position of the item within the adapter's data set.
+     * @param payloads The payloads of the changes since the row was last bound.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull MessageViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty() || payloads.contains(null)) {
+            onBindViewHolder(holder, position);
+        } else {
+            holder.bindPending(messages.isPending(position));
+        }
+    }
+
     /**
      * Returns the total number of messages in the data set held by the adapter.
      * This method allows the RecyclerView to determine the number of items it should display.
@@ -105,12 +162,24 @@ public class MessageAdapter extends RecyclerView.Adapter<MessageAdapter.MessageV
         return messages.size();
     }
 
+    /**
+     * Returns the stable id of the message at a position, derived from its message id.
+     *
+     * @param position The position of the message.
+     * @return The stable id of the message.
+     */
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idOf(messages.getId(position));
+    }
+
     /**
      * ViewHolder class for displaying individual message items within the RecyclerView. This class
      * efficiently manages view references, reducing the overhead of frequent layout inflation
      * and enabling smoother scrolling performance.
      */
     static class MessageViewHolder extends RecyclerView.ViewHolder {
+        private static final float PENDING_ALPHA = 0.5f; // Opacity of messages still in the outbox
         TextView messageTextView;
         ImageView stickerImageView; // ImageView for displaying stickers
 
@@ -122,11 +191,13 @@ public class MessageAdapter extends RecyclerView.Adapter<MessageAdapter.MessageV
 
         /**
          * Binds a {@link Message} object to this ViewHolder, displaying either the text content
-         * or the corresponding sticker image based on the message type.
+         * or the corresponding sticker image based on the message type. Messages that have not
+         * been acknowledged by the server yet are drawn faded.
          *
          * @param message The message object to be displayed.
          */
         void bind(Message message) {
+            bindPending(message.isPending());
             if ("text".equals(message.getMessageType())) {
                 messageTextView.setVisibility(View.VISIBLE);
                 stickerImageView.setVisibility(View.GONE);
@@ -134,16 +205,19 @@ public class MessageAdapter extends RecyclerView.Adapter<MessageAdapter.MessageV
             } else if ("sticker".equals(message.getMessageType())) {
                 messageTextView.setVisibility(View.GONE);
                 stickerImageView.setVisibility(View.VISIBLE);
-                // Use the enum to map sticker ID to drawable resource
-                int stickerResId = StickerEnum.getResourceIdById(message.getStickerId());
-                if (stickerResId != -1) {
-                    stickerImageView.setImageResource(stickerResId);
-                } else {
-                    // Handle unknown sticker
-                    stickerImageView.setImageResource(R.drawable.default_sticker);
-                }
+                // Decoded off the main thread and cached; unknown ids show the default sticker
+                StickerImageLoader.getInstance().load(message.getStickerId(), stickerImageView);
             }
         }
+
+        /**
+         * Draws the message faded while it is pending and opaque once it has been sent.
+         *
+         * @param isPending Whether the message is still in the outbox.
+         */
+        void bindPending(boolean isPending) {
+            itemView.setAlpha(isPending ? PENDING_ALPHA : 1f);
+        }
     }
 
     /**
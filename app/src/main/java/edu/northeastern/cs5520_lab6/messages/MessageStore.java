@@ -0,0 +1,374 @@
+package edu.northeastern.cs5520_lab6.messages;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Memory-lean list of the messages of a single chat. Instead of one {@link Message} object per
+ * message, with its own copies of the chat id, sender id, type and sticker id strings, the store
+ * keeps each property in a column:
+ * - the chat id once for the whole store,
+ * - sender ids and sticker ids interned in small per-store pools and referenced by index,
+ * - the message type as a byte and the timestamp as a primitive long,
+ * - only the message id and text as one string each per message.
+ *
+ * The store is a {@link List} of messages, so the adapter and the pager can use it like any other
+ * list; {@link #get(int)} builds a short-lived {@link Message} view of a row, and changes are made by
+ * passing messages to {@link #set(int, Message)}, {@link #add(int, Message)} and {@link #remove(int)}.
+ * Modifying a message returned by {@code get} does not change the store. Hot paths that only need
+ * one property, such as looking up a message id or a sender, read the columns directly.
+ *
+ * Every message read back carries the store's chat id. Message types other than "text" and
+ * "sticker" are not kept; such messages are read back without a type. Not thread-safe; the store
+ * is only used on the main thread.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class MessageStore extends AbstractList<Message> implements RandomAccess {
+    private static final byte TYPE_NONE = 0;
+    private static final byte TYPE_TEXT = 1;
+    private static final byte TYPE_STICKER = 2;
+
+    private static final int NO_STICKER = -1; // The "-1" sticker id text messages are stored with
+    private static final int NULL_STICKER = -2; // No sticker id at all
+    private static final String NO_STICKER_ID = "-1";
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final String chatId;
+
+    // Interned values referenced by index from the columns below
+    private final List<String> senderPool = new ArrayList<>();
+    private final Map<String, Integer> senderIndex = new HashMap<>();
+    private final List<String> stickerPool = new ArrayList<>();
+    private final Map<String, Integer> stickerIndex = new HashMap<>();
+
+    // One entry per message, in list order
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private String[] texts = new String[INITIAL_CAPACITY];
+    private int[] senders = new int[INITIAL_CAPACITY]; // Index into senderPool, or -1 for none
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] stickers = new int[INITIAL_CAPACITY]; // Index into stickerPool, NO_STICKER or NULL_STICKER
+    private boolean[] pending = new boolean[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Creates an empty store for one chat.
+     *
+     * @param chatId The id of the chat every message in the store belongs to.
+     */
+    public MessageStore(String chatId) {
+        this.chatId = chatId;
+    }
+
+    /**
+     * Returns the id of the chat the messages belong to.
+     *
+     * @return The chat id.
+     */
+    public String getChatId() {
+        return chatId;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Builds a view of the message at a position.
+     *
+     * @param index The position.
+     * @return A new message holding the row's values.
+     */
+    @Override
+    public Message get(int index) {
+        checkIndex(index);
+        Message message = new Message(chatId, ids[index], texts[index], getSenderId(index),
+                timestamps[index], typeName(types[index]), stickerIdOf(stickers[index]));
+        message.setPending(pending[index]);
+        return message;
+    }
+
+    /**
+     * Replaces the message at a position.
+     *
+     * @param index   The position.
+     * @param message The new message.
+     * @return The message previously at the position.
+     */
+    @Override
+    public Message set(int index, Message message) {
+        Message previous = get(index);
+        write(index, message);
+        return previous;
+    }
+
+    /**
+     * Inserts a message at a position, shifting later messages back.
+     *
+     * @param index   The position.
+     * @param message The message.
+     */
+    @Override
+    public void add(int index, Message message) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        ensureCapacity(size + 1);
+        shift(index, index + 1, size - index);
+        size++;
+        write(index, message);
+        modCount++;
+    }
+
+    /**
+     * Inserts messages at a position with a single shift of the later messages, which keeps
+     * prepending a page of older messages cheap.
+     *
+     * @param index    The position of the first inserted message.
+     * @param messages The messages, in order.
+     * @return true if any message was inserted.
+     */
+    @Override
+    public boolean addAll(int index, Collection<? extends Message> messages) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        int count = messages.size();
+        if (count == 0) return false;
+        ensureCapacity(size + count);
+        shift(index, index + count, size - index);
+        size += count;
+        int position = index;
+        for (Message message : messages) {
+            write(position++, message);
+        }
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Appends messages in order.
+     *
+     * @param messages The messages.
+     * @return true if any message was appended.
+     */
+    @Override
+    public boolean addAll(Collection<? extends Message> messages) {
+        return addAll(size, messages);
+    }
+
+    /**
+     * Removes the message at a position, shifting later messages forward.
+     *
+     * @param index The position.
+     * @return The removed message.
+     */
+    @Override
+    public Message remove(int index) {
+        Message removed = get(index);
+        shift(index + 1, index, size - index - 1);
+        size--;
+        ids[size] = null; // Let the strings of the last row be collected
+        texts[size] = null;
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Removes every message. The interned pools are kept, as the same senders and stickers usually
+     * come back when the store is refilled.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(ids, 0, size, null);
+        Arrays.fill(texts, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Returns the id of the message at a position without building a message.
+     *
+     * @param index The position.
+     * @return The message id.
+     */
+    public String getId(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    /**
+     * Returns the sender of the message at a position without building a message.
+     *
+     * @param index The position.
+     * @return The sender id, or null if the message has none.
+     */
+    public String getSenderId(int index) {
+        checkIndex(index);
+        return senders[index] < 0 ? null : senderPool.get(senders[index]);
+    }
+
+    /**
+     * Returns whether the message at a position is still waiting in the outbox.
+     *
+     * @param index The position.
+     * @return true if the message is pending.
+     */
+    public boolean isPending(int index) {
+        checkIndex(index);
+        return pending[index];
+    }
+
+    /**
+     * Marks the message at a position as pending or sent.
+     *
+     * @param index     The position.
+     * @param isPending Whether the message is pending.
+     */
+    public void setPending(int index, boolean isPending) {
+        checkIndex(index);
+        pending[index] = isPending;
+    }
+
+    /**
+     * Finds the position of a message by its id, searching from the newest message.
+     *
+     * @param messageId The message id.
+     * @return The position of the message, or -1 if it is not in the store.
+     */
+    public int lastIndexOfId(String messageId) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (ids[i].equals(messageId)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the values of a message into a row.
+     *
+     * @param index   The row.
+     * @param message The message.
+     */
+    private void write(int index, Message message) {
+        ids[index] = message.getId();
+        texts[index] = message.getText();
+        senders[index] = intern(message.getSenderId(), senderPool, senderIndex);
+        timestamps[index] = message.getTimestamp();
+        types[index] = typeCode(message.getMessageType());
+        pending[index] = message.isPending();
+        String stickerId = message.getStickerId();
+        if (stickerId == null) {
+            stickers[index] = NULL_STICKER;
+        } else if (NO_STICKER_ID.equals(stickerId)) {
+            stickers[index] = NO_STICKER;
+        } else {
+            stickers[index] = intern(stickerId, stickerPool, stickerIndex);
+        }
+    }
+
+    /**
+     * Returns the index of a value in a pool, adding it first if needed.
+     *
+     * @param value The value, possibly null.
+     * @param pool  The pool.
+     * @param index The positions of the pooled values.
+     * @return The index of the value, or -1 for null.
+     */
+    private static int intern(String value, List<String> pool, Map<String, Integer> index) {
+        if (value == null) return -1;
+        Integer position = index.get(value);
+        if (position == null) {
+            position = pool.size();
+            pool.add(value);
+            index.put(value, position);
+        }
+        return position;
+    }
+
+    /**
+     * Converts a stored sticker reference back to a sticker id.
+     *
+     * @param sticker The stored reference.
+     * @return The sticker id, "-1" for text messages, or null.
+     */
+    private String stickerIdOf(int sticker) {
+        if (sticker == NULL_STICKER) return null;
+        if (sticker == NO_STICKER) return NO_STICKER_ID;
+        return stickerPool.get(sticker);
+    }
+
+    /**
+     * Encodes a message type.
+     *
+     * @param type The message type.
+     * @return The byte code of the type.
+     */
+    private static byte typeCode(String type) {
+        if ("text".equals(type)) return TYPE_TEXT;
+        if ("sticker".equals(type)) return TYPE_STICKER;
+        return TYPE_NONE;
+    }
+
+    /**
+     * Decodes a message type.
+     *
+     * @param code The byte code of the type.
+     * @return The message type, or null.
+     */
+    private static String typeName(byte code) {
+        switch (code) {
+            case TYPE_TEXT: return "text";
+            case TYPE_STICKER: return "sticker";
+            default: return null;
+        }
+    }
+
+    /**
+     * Moves a block of rows within the columns.
+     *
+     * @param from   The first row to move.
+     * @param to     Where the first row ends up.
+     * @param length The number of rows.
+     */
+    private void shift(int from, int to, int length) {
+        if (length <= 0) return;
+        System.arraycopy(ids, from, ids, to, length);
+        System.arraycopy(texts, from, texts, to, length);
+        System.arraycopy(senders, from, senders, to, length);
+        System.arraycopy(timestamps, from, timestamps, to, length);
+        System.arraycopy(types, from, types, to, length);
+        System.arraycopy(stickers, from, stickers, to, length);
+        System.arraycopy(pending, from, pending, to, length);
+    }
+
+    /**
+     * Grows the columns so they can hold at least the given number of rows.
+     *
+     * @param capacity The number of rows needed.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) return;
+        int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, newCapacity);
+        texts = Arrays.copyOf(texts, newCapacity);
+        senders = Arrays.copyOf(senders, newCapacity);
+        timestamps = Arrays.copyOf(timestamps, newCapacity);
+        types = Arrays.copyOf(types, newCapacity);
+        stickers = Arrays.copyOf(stickers, newCapacity);
+        pending = Arrays.copyOf(pending, newCapacity);
+    }
+
+    /**
+     * Checks that a position refers to a message in the store.
+     *
+     * @param index The position.
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+}
@@ -0,0 +1,151 @@
+package edu.northeastern.cs5520_lab6.messages;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.MonthDay;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.TemporalAccessor;
+import java.util.Locale;
+
+/**
+ * Reads and formats the timestamps stored on chats and messages. Timestamps are stored as epoch
+ * milliseconds assigned by the server, so they sort and compare correctly. Data written by
+ * earlier versions of the app holds "ddMMM HH:mm" strings instead; {@link #parse(Object)} turns
+ * both forms into epoch milliseconds.
+ *
+ * Formatting for display and parsing of the legacy strings happen at bind time through formatters
+ * that are built once and cached. {@link DateTimeFormatter} is immutable, so the cached instances
+ * are safe to share between threads, unlike the {@code SimpleDateFormat} that used to be created
+ * for every message.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public final class Timestamps {
+    private static final String LEGACY_PATTERN = "ddMMM HH:mm";
+    private static final long ONE_DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final DateTimeFormatter LEGACY_ENGLISH = legacyFormatter(Locale.ENGLISH);
+
+    private static volatile Formatters formatters; // Rebuilt when the default locale changes
+
+    /**
+     * Display and legacy parsing formatters for one locale.
+     */
+    private static class Formatters {
+        final Locale locale;
+        final DateTimeFormatter time; // Used for timestamps from today
+        final DateTimeFormatter date; // Used for older timestamps
+        final DateTimeFormatter legacy; // Parses legacy strings with month names of this locale
+
+        Formatters(Locale locale) {
+            this.locale = locale;
+            this.time = DateTimeFormatter.ofPattern("HH:mm", locale);
+            this.date = DateTimeFormatter.ofPattern("dd MMM", locale);
+            this.legacy = legacyFormatter(locale);
+        }
+    }
+
+    private Timestamps() { }
+
+    /**
+     * Converts a stored timestamp to epoch milliseconds. Numbers are taken as they are; legacy
+     * "ddMMM HH:mm" strings, which carry no year, are placed in the most recent year that does not
+     * put them in the future.
+     *
+     * @param raw The value read from the database: a number, a string, or null.
+     * @return The timestamp in epoch milliseconds, or 0 if it is missing or cannot be read.
+     */
+    public static long parse(Object raw) {
+        if (raw instanceof Number) {
+            return ((Number) raw).longValue();
+        }
+        if (!(raw instanceof String)) {
+            return 0;
+        }
+        String value = ((String) raw).trim();
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ignored) {
+            // Not a number; try the legacy format below
+        }
+        Formatters current = currentFormatters();
+        long parsed = parseLegacy(value, current.legacy);
+        if (parsed == 0 && !current.locale.getLanguage().equals(Locale.ENGLISH.getLanguage())) {
+            parsed = parseLegacy(value, LEGACY_ENGLISH);
+        }
+        return parsed;
+    }
+
+    /**
+     * Formats a timestamp for display: the time of day for today, the date otherwise.
+     *
+     * @param epochMillis The timestamp in epoch milliseconds.
+     * @return The formatted timestamp, or an empty string if the timestamp is not set.
+     */
+    public static String format(long epochMillis) {
+        if (epochMillis <= 0) {
+            return "";
+        }
+        Formatters current = currentFormatters();
+        LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+        boolean today = dateTime.toLocalDate().equals(LocalDate.now());
+        return (today ? current.time : current.date).format(dateTime);
+    }
+
+    /**
+     * Returns the formatters of the default locale, building them if the locale has changed.
+     *
+     * @return The cached formatters.
+     */
+    private static Formatters currentFormatters() {
+        Formatters current = formatters;
+        Locale locale = Locale.getDefault();
+        if (current == null || !current.locale.equals(locale)) {
+            current = new Formatters(locale);
+            formatters = current;
+        }
+        return current;
+    }
+
+    /**
+     * Builds the formatter for legacy "ddMMM HH:mm" strings. The strings carry no year, so the
+     * formatter yields the month, day and time only, and is the same whatever the current year.
+     *
+     * @param locale The locale of the month names.
+     * @return The formatter.
+     */
+    private static DateTimeFormatter legacyFormatter(Locale locale) {
+        return new DateTimeFormatterBuilder()
+                .parseCaseInsensitive()
+                .appendPattern(LEGACY_PATTERN)
+                .toFormatter(locale);
+    }
+
+    /**
+     * Parses a legacy "ddMMM HH:mm" string.
+     *
+     * @param value     The string.
+     * @param formatter The legacy formatter of the locale the month name was written in.
+     * @return The timestamp in epoch milliseconds, or 0 if the string does not match.
+     */
+    private static long parseLegacy(String value, DateTimeFormatter formatter) {
+        ZoneId zone = ZoneId.systemDefault();
+        int year = LocalDate.now(zone).getYear();
+        try {
+            TemporalAccessor fields = formatter.parse(value);
+            LocalDateTime dateTime = MonthDay.from(fields).atYear(year).atTime(LocalTime.from(fields));
+            long millis = dateTime.atZone(zone).toInstant().toEpochMilli();
+            if (millis > System.currentTimeMillis() + ONE_DAY_MILLIS) {
+                millis = dateTime.minusYears(1).atZone(zone).toInstant().toEpochMilli();
+            }
+            return millis;
+        } catch (DateTimeException e) {
+            return 0;
+        }
+    }
+}
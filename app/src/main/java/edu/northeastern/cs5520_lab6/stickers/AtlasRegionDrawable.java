@@ -0,0 +1,100 @@
+package edu.northeastern.cs5520_lab6.stickers;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Draws one region of a shared atlas page bitmap. Many of these drawables share the same page,
+ * so showing a sticker costs a small object rather than a bitmap of its own. The region is drawn
+ * scaled to the bounds of the drawable, with filtering, and its intrinsic size is the size of the
+ * region, so an {@link android.widget.ImageView} scales it like a bitmap of that size.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class AtlasRegionDrawable extends Drawable {
+    private final Bitmap page;
+    private final Rect region;
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    /**
+     * Creates a drawable showing a region of an atlas page.
+     *
+     * @param page   The atlas page bitmap, shared with other drawables.
+     * @param region The pixels to draw; not modified.
+     */
+    public AtlasRegionDrawable(Bitmap page, Rect region) {
+        this.page = page;
+        this.region = region;
+    }
+
+    /**
+     * Draws the region scaled to the bounds of the drawable.
+     *
+     * @param canvas The canvas to draw into.
+     */
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        canvas.drawBitmap(page, region, getBounds(), paint);
+    }
+
+    /**
+     * Returns the width of the region.
+     *
+     * @return The width in page pixels.
+     */
+    @Override
+    public int getIntrinsicWidth() {
+        return region.width();
+    }
+
+    /**
+     * Returns the height of the region.
+     *
+     * @return The height in page pixels.
+     */
+    @Override
+    public int getIntrinsicHeight() {
+        return region.height();
+    }
+
+    /**
+     * Sets the opacity the region is drawn with.
+     *
+     * @param alpha The opacity, from 0 to 255.
+     */
+    @Override
+    public void setAlpha(int alpha) {
+        paint.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+    /**
+     * Sets the color filter the region is drawn with.
+     *
+     * @param colorFilter The filter, or null for none.
+     */
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        paint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    /**
+     * Returns the opacity of the drawable; stickers have transparent backgrounds.
+     *
+     * @return {@link PixelFormat#TRANSLUCENT}.
+     */
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
@@ -46,7 +46,7 @@ public class Cost {
     public Cost(Sticker sticker) {
         this.stickerId = sticker.getId();
         this.count = sticker.getCount();
-        this.costPerUse = StickerEnum.getCostPerSticker(stickerId);
+        this.costPerUse = StickerCatalog.getInstance().getCost(stickerId);
     }
 
 
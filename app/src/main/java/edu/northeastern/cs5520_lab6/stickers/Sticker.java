@@ -13,7 +13,7 @@ package edu.northeastern.cs5520_lab6.stickers;
  * @author Tony Wilson
  */
 public class Sticker {
-    private String id; // Unique identifier for the sticker
+    private String id; // Sticker key, pack:item or a bare id for packaged stickers; see StickerKey
     private int count; // Number of times the sticker has been used
 
     /**
@@ -77,4 +77,14 @@ public class Sticker {
         Sticker sticker = (Sticker) o;
         return id != null && id.equals(sticker.id);
     }
+
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}, based on the sticker's ID.
+     *
+     * @return The hash code of the sticker.
+     */
+    @Override
+    public int hashCode() {
+        return id == null ? 0 : id.hashCode();
+    }
 }
\ No newline at end of file
@@ -6,12 +6,15 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.List;
 import java.util.function.Consumer;
 
 import edu.northeastern.cs5520_lab6.R;
+import edu.northeastern.cs5520_lab6.contacts.AdapterDiffs;
+import edu.northeastern.cs5520_lab6.contacts.StableIds;
 
 /**
  * An adapter for displaying stickers in a RecyclerView. Each item in the RecyclerView is represented
@@ -23,8 +26,25 @@ import edu.northeastern.cs5520_lab6.R;
  */
 public class StickerAdapter extends RecyclerView.Adapter<StickerAdapter.StickerViewHolder> {
 
+    /**
+     * Identifies stickers by id. A picker row shows only the sticker image, so a sticker that is
+     * still in the list never needs rebinding, only moving.
+     */
+    private static final DiffUtil.ItemCallback<Sticker> ORDER_DIFF = new DiffUtil.ItemCallback<Sticker>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Sticker oldSticker, @NonNull Sticker newSticker) {
+            return oldSticker.getId().equals(newSticker.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Sticker oldSticker, @NonNull Sticker newSticker) {
+            return true;
+        }
+    };
+
     private List<Sticker> stickers;
     private Consumer<Sticker> onStickerClickedListener;
+    private final StableIds stableIds = new StableIds();
 
     /**
      * Constructor for StickerAdapter. Initializes the adapter with a list of stickers and a click listener.
@@ -35,6 +55,7 @@ public class StickerAdapter extends RecyclerView.Adapter<StickerAdapter.StickerV
     public StickerAdapter(List<Sticker> stickers, Consumer<Sticker> onStickerClickedListener) {
         this.stickers = stickers;
         this.onStickerClickedListener = onStickerClickedListener;
+        setHasStableIds(true);
     }
 
     /**
@@ -68,6 +89,17 @@ public class StickerAdapter extends RecyclerView.Adapter<StickerAdapter.StickerV
         holder.itemView.setOnClickListener(v -> onStickerClickedListener.accept(sticker));
     }
 
+    /**
+     * Replaces the stickers shown, animating stickers that moved to their new positions.
+     *
+     * @param newStickers The stickers in their new order.
+     */
+    public void setStickers(List<Sticker> newStickers) {
+        List<Sticker> oldStickers = stickers;
+        stickers = newStickers;
+        AdapterDiffs.calculate(oldStickers, newStickers, ORDER_DIFF).dispatchUpdatesTo(this);
+    }
+
     /**
      * Returns the total number of stickers available in the adapter.
      * This count reflects the number of stickers that will be displayed in the RecyclerView.
@@ -79,6 +111,17 @@ public class StickerAdapter extends RecyclerView.Adapter<StickerAdapter.StickerV
         return stickers.size();
     }
 
+    /**
+     * Returns the stable id of the sticker at a position, derived from its sticker id.
+     *
+     * @param position The position of the sticker.
+     * @return The stable id of the sticker.
+     */
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idOf(stickers.get(position).getId());
+    }
+
     /**
      * ViewHolder class for stickers. Holds a reference to an ImageView that displays the sticker.
      */
@@ -105,14 +148,8 @@ public class StickerAdapter extends RecyclerView.Adapter<StickerAdapter.StickerV
          * @param sticker The Sticker object to bind to this ViewHolder.
          */
         void bind(Sticker sticker) {
-            // Use the enum to map sticker ID to drawable resource
-            int stickerResId = StickerEnum.getResourceIdById(sticker.getId());
-            if (stickerResId != -1) {
-                stickerImageView.setImageResource(stickerResId);
-            } else {
-                // Handle unknown sticker
-                stickerImageView.setImageResource(R.drawable.default_sticker);
-            }
+            // Decoded off the main thread and cached; unknown ids show the default sticker
+            StickerImageLoader.getInstance().load(sticker.getId(), stickerImageView);
         }
     }
 }
\ No newline at end of file
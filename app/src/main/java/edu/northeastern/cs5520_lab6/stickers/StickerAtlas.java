@@ -0,0 +1,169 @@
+package edu.northeastern.cs5520_lab6.stickers;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Rect;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The sticker atlas packed at build time by the {@code packStickerAtlas} Gradle task. The task
+ * scales every sticker drawable down to the size stickers are shown at and lays them out side by
+ * side on a few large atlas pages, with an index giving the page and pixel region of each
+ * sticker. Every sticker row then draws from one shared page bitmap, decoded once, instead of
+ * decoding and holding a bitmap per sticker.
+ *
+ * Regions are keyed by drawable name, as listed in the sticker manifest read by
+ * {@link StickerCatalog}. When the atlas is missing, as in builds that skip the task, no sticker
+ * has a region and stickers are decoded from their drawables.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class StickerAtlas {
+    private static final String INDEX = "atlas/index.json";
+
+    private static volatile StickerAtlas instance;
+
+    private final AssetManager assets;
+    private final String[] pages; // Asset path of each page
+    private final Map<String, Region> regionsByDrawable = new HashMap<>();
+
+    /**
+     * The part of an atlas page showing one sticker.
+     */
+    public static final class Region {
+        /**
+         * The index of the atlas page holding the sticker.
+         */
+        public final int page;
+
+        /**
+         * The pixels of the sticker on its page.
+         */
+        public final Rect bounds;
+
+        Region(int page, Rect bounds) {
+            this.page = page;
+            this.bounds = bounds;
+        }
+    }
+
+    /**
+     * Reads the atlas index. Must be called once, before any sticker is shown;
+     * {@link edu.northeastern.cs5520_lab6.MessengerApplication} does so at start-up.
+     *
+     * @param context Any context; the application assets are retained.
+     */
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            instance = new StickerAtlas(context.getApplicationContext().getAssets());
+        }
+    }
+
+    /**
+     * Returns the shared atlas.
+     *
+     * @return The atlas read by {@link #init(Context)}.
+     */
+    public static StickerAtlas getInstance() {
+        StickerAtlas atlas = instance; // Read without locking; this is called in every bind
+        if (atlas == null) {
+            throw new IllegalStateException("StickerAtlas.init(Context) has not been called");
+        }
+        return atlas;
+    }
+
+    private StickerAtlas(AssetManager assets) {
+        this.assets = assets;
+        JSONObject index = readIndex(assets);
+        JSONArray pageArray = index.optJSONArray("pages");
+        pages = new String[pageArray == null ? 0 : pageArray.length()];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = pageArray.optString(i);
+        }
+
+        JSONObject regions = index.optJSONObject("regions");
+        if (regions == null) return;
+        Iterator<String> names = regions.keys();
+        while (names.hasNext()) {
+            String name = names.next();
+            JSONObject region = regions.optJSONObject(name);
+            int page = region == null ? -1 : region.optInt("page", -1);
+            if (page < 0 || page >= pages.length) {
+                Log.w("StickerAtlas", "Skipping invalid atlas region " + name);
+                continue;
+            }
+            int x = region.optInt("x");
+            int y = region.optInt("y");
+            Rect bounds = new Rect(x, y, x + region.optInt("width"), y + region.optInt("height"));
+            regionsByDrawable.put(name, new Region(page, bounds));
+        }
+        Log.d("StickerAtlas", "Loaded " + regionsByDrawable.size() + " regions on " + pages.length + " pages");
+    }
+
+    /**
+     * Returns the region showing a sticker drawable.
+     *
+     * @param drawableName The name of the drawable.
+     * @return The region, or null if the drawable is not in the atlas.
+     */
+    public Region find(String drawableName) {
+        return regionsByDrawable.get(drawableName);
+    }
+
+    /**
+     * Decodes an atlas page. Pages are large, so this must not be called on the main thread.
+     *
+     * @param page The index of the page.
+     * @return The page bitmap, or null if it could not be read.
+     */
+    public Bitmap decodePage(int page) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false; // Regions are in page pixels
+        try (InputStream in = assets.open(pages[page])) {
+            return BitmapFactory.decodeStream(in, null, options);
+        } catch (IOException e) {
+            Log.w("StickerAtlas", "decodePage:failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the atlas index.
+     *
+     * @param assets The assets holding the index.
+     * @return The index, or an empty object if there is no atlas.
+     */
+    private static JSONObject readIndex(AssetManager assets) {
+        try (InputStream in = assets.open(INDEX)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return new JSONObject(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        } catch (FileNotFoundException e) {
+            Log.d("StickerAtlas", "No sticker atlas packaged; stickers are decoded from their drawables");
+            return new JSONObject();
+        } catch (IOException | JSONException e) {
+            Log.w("StickerAtlas", "readIndex:failed", e);
+            return new JSONObject();
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package edu.northeastern.cs5520_lab6.stickers;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.northeastern.cs5520_lab6.R;
+
+/**
+ * The stickers available in the application, read once from the {@code stickers.json} manifest
+ * packaged in the assets. Each entry names a sticker id, the drawable showing it and the cost of
+ * using it:
+ *
+ * <pre>
+ * { "stickers": [ { "id": "1", "drawable": "sticker1", "cost": 0.99 }, ... ] }
+ * </pre>
+ *
+ * Adding a sticker only takes a drawable and a manifest entry. Lookups run in every bind of the
+ * message, chat, sticker and cost rows, so they are constant time and allocation free: numeric
+ * ids, which every sticker has so far, index a primitive array directly, and any other id is
+ * looked up in a hash map. Drawable names are resolved to resource ids the first time a sticker
+ * is shown and cached.
+ *
+ * Stickers of downloaded packs, keyed {@code pack:item} as described in {@link StickerKey}, are
+ * resolved through the packs installed in the {@link StickerPackStore}; the ids of the packaged
+ * stickers may also be written with the {@code builtin} pack. Unknown ids resolve to the default
+ * sticker, which costs nothing.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class StickerCatalog {
+    private static final String MANIFEST = "stickers.json";
+    private static final int MAX_DENSE_ID = 1 << 16; // Larger numeric ids are looked up by string
+    private static final int UNKNOWN_RESOURCE_ID = R.drawable.default_sticker;
+    private static final String UNKNOWN_DRAWABLE_NAME = "default_sticker";
+    private static final double UNKNOWN_COST = 0.00;
+
+    private static volatile StickerCatalog instance;
+
+    /**
+     * A sticker as listed in the manifest.
+     */
+    static class ManifestEntry {
+        final String id;
+        final String drawableName;
+        final double cost;
+
+        ManifestEntry(String id, String drawableName, double cost) {
+            this.id = id;
+            this.drawableName = drawableName;
+            this.cost = cost;
+        }
+    }
+
+    private final Resources resources;
+    private final String packageName;
+
+    // One entry per sticker, in manifest order
+    private final String[] ids;
+    private final String[] drawableNames;
+    private final int[] resourceIds; // 0 until the drawable name has been resolved
+    private final double[] costs;
+
+    private final int[] entryByNumericId; // Entry index + 1 for numeric ids, 0 for none
+    private final Map<String, Integer> entryByOtherId = new HashMap<>(); // Ids that are not small numbers
+
+    /**
+     * Loads the catalog from the packaged manifest. Must be called once, before any sticker is
+     * shown; {@link edu.northeastern.cs5520_lab6.MessengerApplication} does so at start-up.
+     *
+     * @param context Any context; the application context is retained.
+     */
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            instance = new StickerCatalog(context.getApplicationContext());
+        }
+    }
+
+    /**
+     * Returns the shared catalog.
+     *
+     * @return The catalog loaded by {@link #init(Context)}.
+     */
+    public static StickerCatalog getInstance() {
+        StickerCatalog catalog = instance; // Read without locking; this is called in every bind
+        if (catalog == null) {
+            throw new IllegalStateException("StickerCatalog.init(Context) has not been called");
+        }
+        return catalog;
+    }
+
+    private StickerCatalog(Context context) {
+        this(context.getResources(), context.getPackageName(), readManifest(context));
+    }
+
+    /**
+     * Builds the catalog from manifest entries. Entries without an id and repeated ids are skipped.
+     *
+     * @param resources   The resources holding the sticker drawables.
+     * @param packageName The package the drawables are looked up in.
+     * @param entries     The manifest entries, in manifest order; null elements are skipped.
+     */
+    StickerCatalog(Resources resources, String packageName, List<ManifestEntry> entries) {
+        this.resources = resources;
+        this.packageName = packageName;
+
+        int count = entries.size();
+        ids = new String[count];
+        drawableNames = new String[count];
+        resourceIds = new int[count];
+        costs = new double[count];
+
+        Set<String> seen = new HashSet<>();
+        int maxNumericId = -1;
+        int loaded = 0;
+        for (int i = 0; i < count; i++) {
+            ManifestEntry entry = entries.get(i);
+            if (entry == null || entry.id == null || !seen.add(entry.id)) {
+                Log.w("StickerCatalog", "Skipping invalid or duplicate manifest entry " + i);
+                continue;
+            }
+            ids[loaded] = entry.id;
+            drawableNames[loaded] = entry.drawableName;
+            costs[loaded] = entry.cost;
+            maxNumericId = Math.max(maxNumericId, numericId(entry.id));
+            loaded++;
+        }
+
+        entryByNumericId = new int[maxNumericId + 1];
+        for (int i = 0; i < loaded; i++) {
+            int numericId = numericId(ids[i]);
+            if (numericId >= 0) {
+                entryByNumericId[numericId] = i + 1;
+            } else {
+                entryByOtherId.put(ids[i], i);
+            }
+        }
+        Log.d("StickerCatalog", "Loaded " + loaded + " stickers");
+    }
+
+    /**
+     * Returns the drawable resource showing a sticker.
+     *
+     * @param id The sticker id.
+     * @return The drawable of the sticker, or the default sticker if the id is unknown.
+     */
+    public int getResourceId(String id) {
+        int entry = indexOf(id);
+        if (entry == -1) return UNKNOWN_RESOURCE_ID;
+        int resourceId = resourceIds[entry];
+        if (resourceId == 0) {
+            resourceId = resources.getIdentifier(drawableNames[entry], "drawable", packageName);
+            if (resourceId == 0) {
+                Log.w("StickerCatalog", "No drawable named " + drawableNames[entry] + " for sticker " + id);
+                resourceId = UNKNOWN_RESOURCE_ID;
+            }
+            resourceIds[entry] = resourceId;
+        }
+        return resourceId;
+    }
+
+    /**
+     * Returns the name of the drawable showing a sticker, which is also its key in the
+     * {@link StickerAtlas}.
+     *
+     * @param id The sticker id.
+     * @return The drawable name, or that of the default sticker if the id is unknown.
+     */
+    public String getDrawableName(String id) {
+        int entry = indexOf(id);
+        return entry == -1 ? UNKNOWN_DRAWABLE_NAME : drawableNames[entry];
+    }
+
+    /**
+     * Returns the cost of using a sticker.
+     *
+     * @param id The sticker id.
+     * @return The cost of the sticker, or nothing if the id is unknown.
+     */
+    public double getCost(String id) {
+        StickerPackFile pack = findPack(id);
+        if (pack != null) {
+            return Math.max(UNKNOWN_COST, pack.getCost(StickerKey.itemOf(id)));
+        }
+        int entry = indexOf(id);
+        return entry == -1 ? UNKNOWN_COST : costs[entry];
+    }
+
+    /**
+     * Returns whether a sticker id is in the catalog.
+     *
+     * @param id The sticker id.
+     * @return true if the catalog has the sticker.
+     */
+    public boolean contains(String id) {
+        StickerPackFile pack = findPack(id);
+        return pack != null ? pack.contains(StickerKey.itemOf(id)) : indexOf(id) != -1;
+    }
+
+    /**
+     * Returns every sticker in the catalog: the packaged stickers in manifest order, followed by
+     * the stickers of each installed pack, ordered by pack id.
+     *
+     * @return A new list holding one sticker per catalog entry.
+     */
+    public List<Sticker> getAllStickers() {
+        List<Sticker> stickers = new ArrayList<>();
+        for (String id : ids) {
+            if (id != null) stickers.add(new Sticker(id, 1));
+        }
+        List<StickerPackFile> packs = StickerPackStore.getInstance().getInstalledPacks();
+        Collections.sort(packs, (first, second) -> first.getPackId().compareTo(second.getPackId()));
+        for (StickerPackFile pack : packs) {
+            for (String key : pack.getStickerKeys()) {
+                stickers.add(new Sticker(key, 1));
+            }
+        }
+        return stickers;
+    }
+
+    /**
+     * Finds the installed pack a sticker belongs to.
+     *
+     * @param id The sticker key, possibly null.
+     * @return The pack, or null for packaged stickers and stickers of packs that are not installed.
+     */
+    private static StickerPackFile findPack(String id) {
+        if (id == null || StickerKey.isBuiltin(id)) return null;
+        return StickerPackStore.getInstance().getPack(StickerKey.packOf(id));
+    }
+
+    /**
+     * Finds the entry of a sticker.
+     *
+     * @param id The sticker id, possibly null or naming the built-in pack.
+     * @return The index of the entry, or -1 if the id is unknown or belongs to a downloaded pack.
+     */
+    private int indexOf(String id) {
+        if (id == null || !StickerKey.isBuiltin(id)) return -1;
+        id = StickerKey.itemOf(id); // Drops a "builtin:" prefix
+        int numericId = numericId(id);
+        if (numericId >= 0) {
+            return numericId < entryByNumericId.length ? entryByNumericId[numericId] - 1 : -1;
+        }
+        Integer entry = entryByOtherId.get(id);
+        return entry == null ? -1 : entry;
+    }
+
+    /**
+     * Reads an id as a small number without throwing for ids that are not one. Only the canonical
+     * form counts, so "01" is not the same sticker as "1", as with string comparison.
+     *
+     * @param id The sticker id.
+     * @return The number, or -1 if the id is not a number below {@link #MAX_DENSE_ID}.
+     */
+    static int numericId(String id) {
+        int length = id.length();
+        if (length == 0 || length > 5 || (length > 1 && id.charAt(0) == '0')) return -1;
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value < MAX_DENSE_ID ? value : -1;
+    }
+
+    /**
+     * Reads the sticker entries from the manifest.
+     *
+     * @param context The context whose assets hold the manifest.
+     * @return The entries, with null for entries that are not objects, or an empty list if the
+     *         manifest cannot be read.
+     */
+    private static List<ManifestEntry> readManifest(Context context) {
+        List<ManifestEntry> entries = new ArrayList<>();
+        try (InputStream in = context.getAssets().open(MANIFEST)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            JSONObject manifest = new JSONObject(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+            JSONArray stickers = manifest.optJSONArray("stickers");
+            for (int i = 0; stickers != null && i < stickers.length(); i++) {
+                JSONObject entry = stickers.optJSONObject(i);
+                entries.add(entry == null ? null : new ManifestEntry(
+                        entry.optString("id", null), entry.optString("drawable", ""), entry.optDouble("cost", UNKNOWN_COST)));
+            }
+        } catch (IOException | JSONException e) {
+            Log.w("StickerCatalog", "readManifest:failed", e);
+            entries.clear();
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,361 @@
+package edu.northeastern.cs5520_lab6.stickers;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import edu.northeastern.cs5520_lab6.R;
+
+/**
+ * Loads sticker images into the views of every sticker row. {@code setImageResource} decodes the
+ * full-resolution PNG on the main thread each time a row is bound; this loader instead decodes
+ * each sticker once per view size, off the main thread and downsampled to the size of the view,
+ * and keeps the decoded bitmaps in a memory cache bounded by their size in bytes. Stickers packed
+ * into the {@link StickerAtlas} are drawn from their atlas page instead, so one decode and one
+ * cached bitmap serve every sticker on the page. Stickers of downloaded packs are decoded from
+ * their memory-mapped {@link StickerPackFile}.
+ *
+ * A view shows the cached bitmap straight away when there is one, and the sticker placeholder
+ * while its bitmap is decoded otherwise. Each view is tagged with the bitmap it waits for, so a
+ * recycled row never shows the sticker of the message it was bound to before. Views waiting for
+ * the same bitmap share a single decode. Stickers can be decoded ahead of their first display with
+ * {@link #prefetch(List, Resources)}; a row bound while its prefetch runs joins that decode.
+ *
+ * The cache is trimmed when the system reports memory pressure through
+ * {@link #onTrimMemory(int)}. Hit rate and decode times are counted and can be read through
+ * {@link #getHitRate()} and {@link #getAverageDecodeMillis()}; they are logged every
+ * {@link #STATS_LOG_INTERVAL} decodes.
+ *
+ * All methods except the metrics must be called on the main thread.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class StickerImageLoader {
+    /**
+     * Number of decoding threads.
+     */
+    private static final int DECODE_THREADS = 2;
+
+    /**
+     * Share of the maximum heap the memory cache may use.
+     */
+    private static final int CACHE_HEAP_FRACTION = 16;
+
+    /**
+     * The metrics are logged after this many decodes.
+     */
+    private static final int STATS_LOG_INTERVAL = 50;
+
+    private static StickerImageLoader instance;
+
+    private final LruCache<String, Bitmap> memoryCache;
+    private final ExecutorService decodeExecutor = Executors.newFixedThreadPool(DECODE_THREADS);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, List<ImageView>> waitingViews = new HashMap<>(); // Views per bitmap being decoded
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong decodes = new AtomicLong();
+    private final AtomicLong decodeNanos = new AtomicLong();
+
+    /**
+     * Returns the shared loader.
+     *
+     * @return The process-wide loader.
+     */
+    public static synchronized StickerImageLoader getInstance() {
+        if (instance == null) {
+            instance = new StickerImageLoader();
+        }
+        return instance;
+    }
+
+    private StickerImageLoader() {
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / CACHE_HEAP_FRACTION);
+        memoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Shows a sticker in a view.
+     *
+     * @param stickerId The id of the sticker; unknown ids show the default sticker.
+     * @param imageView The view to show the sticker in.
+     */
+    public void load(String stickerId, ImageView imageView) {
+        request(stickerId, imageView.getResources(), targetSize(imageView, true), targetSize(imageView, false), imageView);
+    }
+
+    /**
+     * Decodes stickers into the cache ahead of their first display, at the default sticker size
+     * used by the sticker picker. Stickers already cached or being decoded are skipped.
+     *
+     * @param stickerIds The ids of the stickers, most likely to be shown first.
+     * @param resources  The resources holding the sticker drawables.
+     */
+    public void prefetch(List<String> stickerIds, Resources resources) {
+        int size = resources.getDimensionPixelSize(R.dimen.sticker_default_size);
+        for (String stickerId : stickerIds) {
+            request(stickerId, resources, size, size, null);
+        }
+    }
+
+    /**
+     * Shrinks the cache in response to memory pressure. Called from
+     * {@code MessengerApplication.onTrimMemory}.
+     *
+     * @param level The trim level reported by the system.
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            memoryCache.evictAll(); // Bitmaps still on screen stay referenced by their views
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            memoryCache.trimToSize(memoryCache.maxSize() / 2);
+        }
+    }
+
+    /**
+     * Returns the share of loads served from the memory cache.
+     *
+     * @return The hit rate between 0 and 1, or 0 before the first load.
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Returns the average time taken to decode a sticker.
+     *
+     * @return The average decode time in milliseconds, or 0 before the first decode.
+     */
+    public double getAverageDecodeMillis() {
+        long count = decodes.get();
+        return count == 0 ? 0 : decodeNanos.get() / 1_000_000.0 / count;
+    }
+
+    /**
+     * Finds the bitmap showing a sticker and shows it in a view, or only decodes it.
+     *
+     * @param stickerId The id of the sticker; unknown ids show the default sticker.
+     * @param resources The resources holding the sticker drawables.
+     * @param width     The target width in pixels.
+     * @param height    The target height in pixels.
+     * @param imageView The view to show the sticker in, or null to only fill the cache.
+     */
+    private void request(String stickerId, Resources resources, int width, int height, ImageView imageView) {
+        if (stickerId != null && !StickerKey.isBuiltin(stickerId)) {
+            StickerPackFile pack = StickerPackStore.getInstance().getPack(StickerKey.packOf(stickerId));
+            String item = StickerKey.itemOf(stickerId);
+            if (pack != null && pack.contains(item)) {
+                request(imageView, "pack:" + stickerId + ":" + width + "x" + height, null,
+                        () -> pack.decode(item, width, height));
+                return;
+            }
+            // Packs that are not installed show the default sticker
+        }
+        StickerCatalog catalog = StickerCatalog.getInstance();
+        StickerAtlas atlas = StickerAtlas.getInstance();
+        StickerAtlas.Region region = atlas.find(catalog.getDrawableName(stickerId));
+        if (region != null) {
+            // Every sticker on a page is drawn from the same page bitmap
+            int page = region.page;
+            request(imageView, "atlas:" + page, region, () -> atlas.decodePage(page));
+            return;
+        }
+        int resourceId = catalog.getResourceId(stickerId);
+        request(imageView, resourceId + ":" + width + "x" + height, null,
+                () -> decodeResource(resources, resourceId, width, height));
+    }
+
+    /**
+     * Shows a cached bitmap in a view, or the placeholder while the bitmap is decoded. Without a
+     * view, only starts the decode if the bitmap is neither cached nor being decoded.
+     *
+     * @param imageView The view to show the sticker in, or null to only fill the cache.
+     * @param key       The key of the bitmap in the cache.
+     * @param region    The region of the bitmap showing the sticker, or null for all of it.
+     * @param decoder   Decodes the bitmap on a decoding thread.
+     */
+    private void request(ImageView imageView, String key, StickerAtlas.Region region, Supplier<Bitmap> decoder) {
+        if (imageView == null) {
+            // Prefetches are not counted, so the hit rate reflects what rows actually waited for
+            if (memoryCache.get(key) != null || waitingViews.containsKey(key)) return;
+            waitingViews.put(key, new ArrayList<>());
+        } else if (!show(imageView, key, region)) {
+            return;
+        }
+
+        decodeExecutor.execute(() -> {
+            Bitmap bitmap = timeDecode(key, decoder);
+            mainHandler.post(() -> deliver(key, bitmap));
+        });
+    }
+
+    /**
+     * Shows a cached bitmap in a view, or the placeholder while it waits for the bitmap.
+     *
+     * @param imageView The view to show the sticker in.
+     * @param key       The key of the bitmap in the cache.
+     * @param region    The region of the bitmap showing the sticker, or null for all of it.
+     * @return true if the bitmap must be decoded, false if it is cached or already being decoded.
+     */
+    private boolean show(ImageView imageView, String key, StickerAtlas.Region region) {
+        imageView.setTag(R.id.sticker_image_key, key);
+        imageView.setTag(R.id.sticker_atlas_region, region);
+
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            show(imageView, cached);
+            return false;
+        }
+        misses.incrementAndGet();
+        imageView.setImageResource(R.drawable.ic_sticker_placeholder);
+
+        List<ImageView> views = waitingViews.get(key);
+        if (views != null) {
+            views.add(imageView); // Already being decoded, possibly by a prefetch
+            return false;
+        }
+        views = new ArrayList<>();
+        views.add(imageView);
+        waitingViews.put(key, views);
+        return true;
+    }
+
+    /**
+     * Hands a decoded bitmap to the views still waiting for it.
+     *
+     * @param key    The key of the bitmap.
+     * @param bitmap The bitmap, or null if it could not be decoded.
+     */
+    private void deliver(String key, Bitmap bitmap) {
+        List<ImageView> views = waitingViews.remove(key);
+        if (bitmap == null || views == null) return;
+        memoryCache.put(key, bitmap);
+        for (ImageView view : views) {
+            // The row may have been rebound to another sticker in the meantime
+            if (key.equals(view.getTag(R.id.sticker_image_key))) {
+                show(view, bitmap);
+            }
+        }
+    }
+
+    /**
+     * Sets the image of a view, drawing only the atlas region it was tagged with, if any.
+     *
+     * @param view   The view.
+     * @param bitmap The sticker bitmap or atlas page.
+     */
+    private static void show(ImageView view, Bitmap bitmap) {
+        Object region = view.getTag(R.id.sticker_atlas_region);
+        if (region instanceof StickerAtlas.Region) {
+            view.setImageDrawable(new AtlasRegionDrawable(bitmap, ((StickerAtlas.Region) region).bounds));
+        } else {
+            view.setImageBitmap(bitmap);
+        }
+    }
+
+    /**
+     * Runs a decode on a decoding thread and records how long it took.
+     *
+     * @param key     The key of the bitmap, for logging.
+     * @param decoder Decodes the bitmap.
+     * @return The bitmap, or null if it could not be decoded.
+     */
+    private Bitmap timeDecode(String key, Supplier<Bitmap> decoder) {
+        long startedAt = SystemClock.elapsedRealtimeNanos();
+        Bitmap bitmap = decoder.get();
+        decodeNanos.addAndGet(SystemClock.elapsedRealtimeNanos() - startedAt);
+        long count = decodes.incrementAndGet();
+        if (bitmap == null) {
+            Log.w("StickerImageLoader", "Could not decode sticker bitmap " + key);
+        }
+        if (count % STATS_LOG_INTERVAL == 0) {
+            Log.d("StickerImageLoader", String.format("%d decodes, %.2f ms average, %.0f%% cache hits",
+                    count, getAverageDecodeMillis(), getHitRate() * 100));
+        }
+        return bitmap;
+    }
+
+    /**
+     * Decodes a sticker drawable at the largest power-of-two reduction that still covers the
+     * target size. Runs on a decoding thread.
+     *
+     * @param resources  The resources holding the drawable.
+     * @param resourceId The drawable.
+     * @param width      The target width in pixels.
+     * @param height     The target height in pixels.
+     * @return The bitmap, or null if the drawable could not be decoded.
+     */
+    private static Bitmap decodeResource(Resources resources, int resourceId, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resourceId, options);
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, width, height);
+        options.inScaled = false; // Sized by the view, not scaled up by the screen density
+        return BitmapFactory.decodeResource(resources, resourceId, options);
+    }
+
+    /**
+     * Returns the largest power-of-two reduction of an image that still covers a target size.
+     *
+     * @param imageWidth   The width of the encoded image.
+     * @param imageHeight  The height of the encoded image.
+     * @param targetWidth  The target width.
+     * @param targetHeight The target height.
+     * @return The {@link BitmapFactory.Options#inSampleSize} to decode the image with.
+     */
+    static int sampleSize(int imageWidth, int imageHeight, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+        while (imageWidth / (sampleSize * 2) >= targetWidth && imageHeight / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Returns the size a view displays its image at, from its layout if it has been laid out,
+     * otherwise from its layout parameters, falling back to the default sticker size.
+     *
+     * @param view  The view.
+     * @param width true for the width, false for the height.
+     * @return The size in pixels.
+     */
+    private static int targetSize(ImageView view, boolean width) {
+        int size = width ? view.getWidth() : view.getHeight();
+        if (size > 0) return size;
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        if (params != null) {
+            size = width ? params.width : params.height;
+            if (size > 0) return size;
+        }
+        return view.getResources().getDimensionPixelSize(R.dimen.sticker_default_size);
+    }
+}
@@ -0,0 +1,66 @@
+package edu.northeastern.cs5520_lab6.stickers;
+
+/**
+ * Helpers for sticker keys. A sticker is identified by the pack it belongs to and its item id
+ * within the pack, written {@code pack:item}, as stored in {@code Message.stickerId}. A key
+ * without a pack names an item of the built-in pack compiled into the application, so the ids of
+ * messages sent before packs existed, such as {@code "1"}, resolve unchanged. Built-in stickers
+ * are still sent with their bare item ids, which earlier versions of the application understand
+ * and which the stored sticker counts are keyed by.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public final class StickerKey {
+    /**
+     * The pack of stickers compiled into the application and listed in {@code stickers.json}.
+     */
+    public static final String BUILTIN_PACK = "builtin";
+
+    private static final char SEPARATOR = ':';
+
+    private StickerKey() { }
+
+    /**
+     * Builds the key of a sticker.
+     *
+     * @param packId The pack id.
+     * @param itemId The item id within the pack.
+     * @return The key; the bare item id for built-in stickers.
+     */
+    public static String of(String packId, String itemId) {
+        return BUILTIN_PACK.equals(packId) ? itemId : packId + SEPARATOR + itemId;
+    }
+
+    /**
+     * Returns the pack a sticker belongs to.
+     *
+     * @param key The sticker key.
+     * @return The pack id, {@link #BUILTIN_PACK} for keys without one.
+     */
+    public static String packOf(String key) {
+        int separator = key.indexOf(SEPARATOR);
+        return separator == -1 ? BUILTIN_PACK : key.substring(0, separator);
+    }
+
+    /**
+     * Returns the item id of a sticker within its pack.
+     *
+     * @param key The sticker key.
+     * @return The item id.
+     */
+    public static String itemOf(String key) {
+        return key.substring(key.indexOf(SEPARATOR) + 1);
+    }
+
+    /**
+     * Returns whether a sticker is one of the built-in stickers.
+     *
+     * @param key The sticker key.
+     * @return true if the key has no pack or names the built-in pack.
+     */
+    public static boolean isBuiltin(String key) {
+        int separator = key.indexOf(SEPARATOR);
+        return separator == -1 || separator == BUILTIN_PACK.length() && key.startsWith(BUILTIN_PACK);
+    }
+}
@@ -0,0 +1,244 @@
+package edu.northeastern.cs5520_lab6.stickers;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A downloaded sticker pack, stored as a single file holding an index followed by the encoded
+ * image of every sticker. The file is memory-mapped, so opening a pack reads only its index and
+ * decoding a sticker reads only that sticker's bytes, through the page cache, without copying
+ * the pack onto the Java heap.
+ *
+ * The file is big-endian:
+ *
+ * <pre>
+ * int    magic     "STKP"
+ * int    version   1
+ * int    count
+ * count entries of:
+ *   short  item id length, followed by the UTF-8 item id
+ *   double cost per use
+ *   int    offset of the image from the start of the file
+ *   int    length of the image
+ * the images, PNG or WebP
+ * </pre>
+ *
+ * Instances are immutable and may be used from any thread.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public final class StickerPackFile {
+    private static final int MAGIC = 0x53544B50; // "STKP"
+    private static final int VERSION = 1;
+
+    private final String packId;
+    private final ByteBuffer data; // Read only through duplicates, so its position is never changed
+    private final String[] items;
+    private final double[] costs;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final Map<String, Integer> entryByItem = new HashMap<>();
+
+    /**
+     * Maps a pack file and reads its index.
+     *
+     * @param packId The id of the pack.
+     * @param file   The pack file.
+     * @return The opened pack.
+     * @throws IOException If the file cannot be read or is not a valid pack.
+     */
+    public static StickerPackFile open(String packId, File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r"); FileChannel channel = in.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Sticker pack " + packId + " is too large to map");
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new StickerPackFile(packId, data);
+        }
+    }
+
+    private StickerPackFile(String packId, ByteBuffer data) throws IOException {
+        this.packId = packId;
+        this.data = data;
+        ByteBuffer index = data.duplicate();
+        try {
+            if (index.getInt() != MAGIC || index.getInt() != VERSION) {
+                throw new IOException("Sticker pack " + packId + " has an unknown format");
+            }
+            int count = index.getInt();
+            if (count < 0 || count > index.remaining()) {
+                throw new IOException("Sticker pack " + packId + " has a corrupt index");
+            }
+            items = new String[count];
+            costs = new double[count];
+            offsets = new int[count];
+            lengths = new int[count];
+            for (int i = 0; i < count; i++) {
+                byte[] item = new byte[index.getShort() & 0xFFFF];
+                index.get(item);
+                items[i] = new String(item, StandardCharsets.UTF_8);
+                costs[i] = index.getDouble();
+                offsets[i] = index.getInt();
+                lengths[i] = index.getInt();
+                if (offsets[i] < 0 || lengths[i] < 0 || offsets[i] > data.capacity() - lengths[i]) {
+                    throw new IOException("Sticker " + items[i] + " lies outside pack " + packId);
+                }
+                entryByItem.put(items[i], i);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Sticker pack " + packId + " is truncated", e);
+        }
+    }
+
+    /**
+     * Returns the id of the pack.
+     *
+     * @return The pack id.
+     */
+    public String getPackId() {
+        return packId;
+    }
+
+    /**
+     * Returns the keys of the stickers in the pack, in pack order.
+     *
+     * @return A new list of {@code pack:item} keys.
+     */
+    public List<String> getStickerKeys() {
+        List<String> keys = new ArrayList<>(items.length);
+        for (String item : items) {
+            keys.add(StickerKey.of(packId, item));
+        }
+        return keys;
+    }
+
+    /**
+     * Returns whether the pack holds an item.
+     *
+     * @param itemId The item id within the pack.
+     * @return true if the pack has the item.
+     */
+    public boolean contains(String itemId) {
+        return entryByItem.containsKey(itemId);
+    }
+
+    /**
+     * Returns the cost of using an item.
+     *
+     * @param itemId The item id within the pack.
+     * @return The cost, or -1 if the pack does not have the item.
+     */
+    public double getCost(String itemId) {
+        Integer entry = entryByItem.get(itemId);
+        return entry == null ? -1 : costs[entry];
+    }
+
+    /**
+     * Decodes an item at the largest power-of-two reduction that still covers the target size.
+     * Reads the mapped image bytes directly; must not be called on the main thread.
+     *
+     * @param itemId The item id within the pack.
+     * @param width  The target width in pixels.
+     * @param height The target height in pixels.
+     * @return The bitmap, or null if the pack does not have the item or it cannot be decoded.
+     */
+    public Bitmap decode(String itemId, int width, int height) {
+        Integer entry = entryByItem.get(itemId);
+        if (entry == null) return null;
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeStream(imageStream(entry), null, options);
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = StickerImageLoader.sampleSize(options.outWidth, options.outHeight, width, height);
+        return BitmapFactory.decodeStream(imageStream(entry), null, options);
+    }
+
+    /**
+     * Returns a stream over the mapped bytes of an image.
+     *
+     * @param entry The index entry of the image.
+     * @return A new stream positioned at the start of the image.
+     */
+    private InputStream imageStream(int entry) {
+        ByteBuffer image = data.duplicate();
+        image.position(offsets[entry]);
+        image.limit(offsets[entry] + lengths[entry]);
+        return new ByteBufferInputStream(image.slice());
+    }
+
+    /**
+     * Reads a byte buffer as a stream, so that images are decoded straight from the mapping.
+     * Supports mark and reset, so the decoder does not wrap it in a buffering copy.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        private int mark; // Position reset() returns to
+
+        /**
+         * Creates a stream reading a buffer from its position to its limit.
+         *
+         * @param buffer The buffer; its position is advanced as the stream is read.
+         */
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.max(0, Math.min(count, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            mark = buffer.position();
+        }
+
+        @Override
+        public synchronized void reset() {
+            buffer.position(mark);
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package edu.northeastern.cs5520_lab6.stickers;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import edu.northeastern.cs5520_lab6.R;
+
+/**
+ * Downloads sticker packs and keeps the installed ones open. Packs are served from the origin
+ * configured per build type by the {@code sticker_pack_origin} string resource (see
+ * app/build.gradle.kts), which lists them in {@code packs.json}:
+ *
+ * <pre>
+ * { "packs": [ { "id": "cats", "sha256": "9f86d0...", "file": "packs/cats.pack" }, ... ] }
+ * </pre>
+ *
+ * A pack is downloaded to a temporary file while its SHA-256 hash is computed, and is only
+ * installed, as {@code sticker_packs/<id>.pack} in the application files, once the hash matches
+ * the listing and the file opens as a valid {@link StickerPackFile}. Installed packs are opened
+ * again when the process starts.
+ *
+ * Network and disk work runs on a single background thread; callbacks are delivered on the main
+ * thread. Lookups of installed packs may be made from any thread. The store must be initialised
+ * once with {@link #init(Context)} before it is used.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class StickerPackStore {
+    /**
+     * Callback interface for pack installs.
+     */
+    public interface InstallCallback {
+        /**
+         * Called on the main thread once the pack is installed and its stickers can be shown.
+         *
+         * @param pack The installed pack.
+         */
+        void onInstalled(StickerPackFile pack);
+
+        /**
+         * Called on the main thread if the pack could not be downloaded or verified.
+         *
+         * @param packId The id of the pack.
+         * @param e      The cause of the failure.
+         */
+        void onFailed(String packId, Exception e);
+    }
+
+    /**
+     * Callback interface for reading the packs the origin offers.
+     */
+    public interface ListingCallback {
+        /**
+         * Called on the main thread with the ids of the listed packs.
+         *
+         * @param packIds The pack ids, in listing order.
+         */
+        void onListed(List<String> packIds);
+
+        /**
+         * Called on the main thread if the listing could not be read.
+         *
+         * @param e The cause of the failure.
+         */
+        void onFailed(Exception e);
+    }
+
+    private static final String LISTING = "packs.json";
+    private static final String PACK_DIRECTORY = "sticker_packs";
+    private static final String PACK_EXTENSION = ".pack";
+    private static final Pattern PACK_ID = Pattern.compile("[a-z0-9_]{1,64}"); // Also safe as a file name
+    private static final int TIMEOUT_MILLIS = 15_000;
+
+    private static StickerPackStore instance;
+
+    private final String origin;
+    private final File directory;
+    private final Map<String, StickerPackFile> packs = new ConcurrentHashMap<>(); // Installed packs by id
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Initialises the shared store and starts opening the installed packs. Safe to call more
+     * than once.
+     *
+     * @param context Any context; the application context is retained.
+     */
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            instance = new StickerPackStore(context.getApplicationContext());
+        }
+    }
+
+    /**
+     * Returns the shared store.
+     *
+     * @return The store initialised by {@link #init(Context)}.
+     */
+    public static synchronized StickerPackStore getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("StickerPackStore.init(Context) has not been called");
+        }
+        return instance;
+    }
+
+    private StickerPackStore(Context context) {
+        origin = trimSlash(context.getString(R.string.sticker_pack_origin));
+        directory = new File(context.getFilesDir(), PACK_DIRECTORY);
+        ioExecutor.execute(this::openInstalledPacks);
+    }
+
+    /**
+     * Returns an installed pack.
+     *
+     * @param packId The id of the pack.
+     * @return The pack, or null if it is not installed or still being opened.
+     */
+    public StickerPackFile getPack(String packId) {
+        return packs.get(packId);
+    }
+
+    /**
+     * Returns the installed packs.
+     *
+     * @return A new list of the installed packs, in no particular order.
+     */
+    public List<StickerPackFile> getInstalledPacks() {
+        return new ArrayList<>(packs.values());
+    }
+
+    /**
+     * Reads the ids of the packs the origin lists, installed or not.
+     *
+     * @param callback Receives the pack ids or the failure.
+     */
+    public void listAvailable(ListingCallback callback) {
+        ioExecutor.execute(() -> {
+            try {
+                JSONArray listings = readListings();
+                List<String> packIds = new ArrayList<>();
+                for (int i = 0; i < listings.length(); i++) {
+                    String packId = listings.getJSONObject(i).optString("id");
+                    if (PACK_ID.matcher(packId).matches() && !StickerKey.BUILTIN_PACK.equals(packId)) {
+                        packIds.add(packId);
+                    }
+                }
+                mainHandler.post(() -> callback.onListed(packIds));
+            } catch (IOException | JSONException e) {
+                Log.w("StickerPackStore", "listAvailable:failed", e);
+                mainHandler.post(() -> callback.onFailed(e));
+            }
+        });
+    }
+
+    /**
+     * Downloads, verifies and installs a pack listed by the origin, replacing the installed
+     * copy, if any, once the new one has been verified.
+     *
+     * @param packId   The id of the pack.
+     * @param callback Receives the installed pack or the failure.
+     */
+    public void install(String packId, InstallCallback callback) {
+        ioExecutor.execute(() -> {
+            try {
+                StickerPackFile pack = download(packId);
+                packs.put(packId, pack);
+                mainHandler.post(() -> callback.onInstalled(pack));
+            } catch (IOException | JSONException | NoSuchAlgorithmException e) {
+                Log.w("StickerPackStore", "install:failed", e);
+                mainHandler.post(() -> callback.onFailed(packId, e));
+            }
+        });
+    }
+
+    /**
+     * Opens the packs installed by earlier runs. Runs on the background thread.
+     */
+    private void openInstalledPacks() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(PACK_EXTENSION));
+        if (files == null) return;
+        for (File file : files) {
+            String packId = file.getName().substring(0, file.getName().length() - PACK_EXTENSION.length());
+            try {
+                packs.put(packId, StickerPackFile.open(packId, file));
+            } catch (IOException e) {
+                Log.w("StickerPackStore", "openInstalledPacks:failed", e);
+            }
+        }
+        Log.d("StickerPackStore", "Opened " + packs.size() + " sticker packs");
+    }
+
+    /**
+     * Downloads a pack and installs it if it matches the hash the origin lists for it. Runs on the
+     * background thread.
+     *
+     * @param packId The id of the pack.
+     * @return The installed pack.
+     * @throws IOException              If the pack cannot be downloaded, fails verification or is
+     *                                  not a valid pack.
+     * @throws JSONException            If the listing cannot be parsed.
+     * @throws NoSuchAlgorithmException If SHA-256 is unavailable, which it never is on Android.
+     */
+    private StickerPackFile download(String packId) throws IOException, JSONException, NoSuchAlgorithmException {
+        if (StickerKey.BUILTIN_PACK.equals(packId) || !PACK_ID.matcher(packId).matches()) {
+            throw new IOException("Invalid sticker pack id " + packId);
+        }
+        JSONObject listing = findListing(packId);
+        String expectedHash = listing.getString("sha256");
+        String file = listing.optString("file", "packs/" + packId + PACK_EXTENSION);
+
+        HttpURLConnection connection = connect(file);
+        try (InputStream in = connection.getInputStream()) {
+            return installVerified(packId, in, expectedHash, directory);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Copies a pack to a temporary file while hashing it, and installs it as
+     * {@code <directory>/<id>.pack} only if the hash matches and the file is a valid pack. On any
+     * failure the temporary file is deleted and the installed copy, if any, is left in place.
+     *
+     * @param packId       The id of the pack.
+     * @param in           The pack bytes; not closed.
+     * @param expectedHash The SHA-256 hash the origin lists for the pack, in hexadecimal.
+     * @param directory    The directory holding the installed packs.
+     * @return The installed pack.
+     * @throws IOException              If the pack cannot be written, fails verification or is
+     *                                  not a valid pack.
+     * @throws NoSuchAlgorithmException If SHA-256 is unavailable, which it never is on Android.
+     */
+    static StickerPackFile installVerified(String packId, InputStream in, String expectedHash, File directory)
+            throws IOException, NoSuchAlgorithmException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File partial = new File(directory, packId + ".part");
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        InputStream hashed = new DigestInputStream(in, digest); // Left open; the caller owns the stream
+        try (OutputStream out = new FileOutputStream(partial)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = hashed.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+
+        String actualHash = toHex(digest.digest());
+        if (!actualHash.equalsIgnoreCase(expectedHash)) {
+            partial.delete();
+            throw new IOException("Sticker pack " + packId + " does not match its hash: " + actualHash);
+        }
+        try {
+            StickerPackFile.open(packId, partial); // Checks the index before replacing a working copy
+        } catch (IOException e) {
+            partial.delete();
+            throw e;
+        }
+        File installed = new File(directory, packId + PACK_EXTENSION);
+        if (!partial.renameTo(installed)) {
+            partial.delete();
+            throw new IOException("Cannot install sticker pack " + packId);
+        }
+        return StickerPackFile.open(packId, installed);
+    }
+
+    /**
+     * Finds the listing of a pack on the origin.
+     *
+     * @param packId The id of the pack.
+     * @return The listing entry of the pack.
+     * @throws IOException   If the listing cannot be fetched or does not list the pack.
+     * @throws JSONException If the listing cannot be parsed.
+     */
+    private JSONObject findListing(String packId) throws IOException, JSONException {
+        JSONArray listings = readListings();
+        for (int i = 0; i < listings.length(); i++) {
+            JSONObject listing = listings.getJSONObject(i);
+            if (packId.equals(listing.optString("id"))) return listing;
+        }
+        throw new IOException("Sticker pack " + packId + " is not listed by " + origin);
+    }
+
+    /**
+     * Fetches the pack listing from the origin.
+     *
+     * @return The {@code packs} array of the listing.
+     * @throws IOException   If the listing cannot be fetched.
+     * @throws JSONException If the listing cannot be parsed.
+     */
+    private JSONArray readListings() throws IOException, JSONException {
+        HttpURLConnection connection = connect(LISTING);
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return new JSONObject(new String(bytes.toByteArray(), StandardCharsets.UTF_8)).getJSONArray("packs");
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Opens a GET request for a path on the origin.
+     *
+     * @param path The path, relative to the origin.
+     * @return The connection, with a successful response.
+     * @throws IOException If the request fails or is not answered with 200 OK.
+     */
+    private HttpURLConnection connect(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(origin + "/" + path).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            connection.disconnect();
+            throw new IOException("GET " + path + " returned " + status);
+        }
+        return connection;
+    }
+
+    /**
+     * Formats bytes as lower-case hexadecimal.
+     *
+     * @param bytes The bytes.
+     * @return The hexadecimal string.
+     */
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Removes trailing slashes from the origin.
+     *
+     * @param origin The configured origin.
+     * @return The origin without trailing slashes.
+     */
+    private static String trimSlash(String origin) {
+        int end = origin.length();
+        while (end > 0 && origin.charAt(end - 1) == '/') end--;
+        return origin.substring(0, end);
+    }
+}
@@ -0,0 +1,158 @@
+package edu.northeastern.cs5520_lab6.stickers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.northeastern.cs5520_lab6.api.LocalStore;
+
+/**
+ * Orders the sticker picker by how much, and how recently, a user has used each sticker. Every
+ * use adds one to the sticker's score, and scores decay exponentially with a half-life of
+ * {@link #HALF_LIFE_MILLIS}, so a sticker used often last month drops below one used a few
+ * times this week. Only the score and the time it was last updated are stored, in the
+ * {@link LocalStore}; the decay up to the present is applied when the picker is ranked.
+ *
+ * Stickers with equal scores, including all the stickers never used on this device, are ordered
+ * by the user's sticker counts from the server, most used first, and then keep their catalog
+ * order.
+ *
+ * Not thread-safe; used on the main thread only.
+ *
+ * @version 1.0
+ * @author Tony Wilson
+ */
+public class StickerRanking {
+    /**
+     * The time after which a use counts for half as much.
+     */
+    static final long HALF_LIFE_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    /**
+     * The stored score of a sticker.
+     */
+    public static final class Score {
+        /**
+         * The score at {@link #updatedAt}.
+         */
+        public final double value;
+
+        /**
+         * The time the score was last updated, in milliseconds since the epoch.
+         */
+        public final long updatedAt;
+
+        /**
+         * Creates a score.
+         *
+         * @param value     The score at the time it was updated.
+         * @param updatedAt The time the score was updated, in milliseconds since the epoch.
+         */
+        public Score(double value, long updatedAt) {
+            this.value = value;
+            this.updatedAt = updatedAt;
+        }
+
+        /**
+         * Returns the score decayed to a point in time.
+         *
+         * @param now The time, in milliseconds since the epoch.
+         * @return The decayed score.
+         */
+        double at(long now) {
+            long elapsed = Math.max(0, now - updatedAt);
+            return value * Math.pow(0.5, (double) elapsed / HALF_LIFE_MILLIS);
+        }
+    }
+
+    private final String ownerId;
+    private final Map<String, Score> scores = new HashMap<>();
+    private final Map<String, Integer> counts = new HashMap<>();
+
+    /**
+     * Creates an empty ranking for a user; {@link #load(Runnable)} reads the stored scores.
+     *
+     * @param ownerId The user whose sticker use is ranked.
+     */
+    public StickerRanking(String ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    /**
+     * Loads the stored scores and sticker counts of the user.
+     *
+     * @param onLoaded Run on the main thread once both are loaded.
+     */
+    public void load(Runnable onLoaded) {
+        LocalStore store = LocalStore.getInstance();
+        store.loadStickerScores(ownerId, storedScores -> {
+            scores.putAll(storedScores);
+            store.loadStickerCounts(ownerId, stickers -> {
+                for (Sticker sticker : stickers) {
+                    counts.put(sticker.getId(), sticker.getCount());
+                }
+                onLoaded.run();
+            });
+        });
+    }
+
+    /**
+     * Returns stickers in picker order, highest score first.
+     *
+     * @param stickers The stickers, in catalog order; not modified.
+     * @return A new list holding the same stickers in ranked order.
+     */
+    public List<Sticker> rank(List<Sticker> stickers) {
+        long now = System.currentTimeMillis();
+        Map<String, Double> current = new HashMap<>();
+        for (Map.Entry<String, Score> entry : scores.entrySet()) {
+            current.put(entry.getKey(), entry.getValue().at(now)); // Decayed once per sticker, not per comparison
+        }
+        List<Sticker> ranked = new ArrayList<>(stickers);
+        // Stable, so stickers that tie keep their catalog order
+        Collections.sort(ranked, (first, second) -> {
+            int byScore = Double.compare(valueOf(current, second.getId()), valueOf(current, first.getId()));
+            if (byScore != 0) return byScore;
+            return Integer.compare(countOf(second.getId()), countOf(first.getId()));
+        });
+        return ranked;
+    }
+
+    /**
+     * Records a use of a sticker and stores its new score.
+     *
+     * @param stickerId The sticker that was sent.
+     */
+    public void recordUse(String stickerId) {
+        long now = System.currentTimeMillis();
+        Score previous = scores.get(stickerId);
+        Score score = new Score((previous == null ? 0 : previous.at(now)) + 1, now);
+        scores.put(stickerId, score);
+        LocalStore.getInstance().saveStickerScore(ownerId, stickerId, score);
+    }
+
+    /**
+     * Returns the current score of a sticker.
+     *
+     * @param current The decayed scores by sticker id.
+     * @param id      The sticker id.
+     * @return The score, 0 for stickers never used on this device.
+     */
+    private static double valueOf(Map<String, Double> current, String id) {
+        Double value = current.get(id);
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * Returns the server count of a sticker.
+     *
+     * @param id The sticker id.
+     * @return The number of times the user has sent the sticker, 0 if unknown.
+     */
+    private int countOf(String id) {
+        Integer count = counts.get(id);
+        return count == null ? 0 : count;
+    }
+}
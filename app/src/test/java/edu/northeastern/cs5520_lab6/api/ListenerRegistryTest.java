@@ -0,0 +1,97 @@
+package edu.northeastern.cs5520_lab6.api;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that listeners bound to a lifecycle are counted while it lives and all detached once it
+ * is destroyed.
+ */
+public class ListenerRegistryTest {
+    private ListenerRegistry registry;
+    private TestOwner owner;
+    private int detached;
+
+    @Before
+    public void setUp() {
+        registry = new ListenerRegistry();
+        owner = new TestOwner();
+        owner.lifecycle.setCurrentState(Lifecycle.State.RESUMED);
+    }
+
+    @Test
+    public void countFallsToZeroAfterDestroy() {
+        bind("/userChats/u1");
+        bind("/chats/a_b");
+        bind("/chats/a_b");
+        assertEquals(2, registry.getActiveListenerCount("/chats/a_b"));
+        assertEquals(3, registry.getActiveListenerCount());
+
+        owner.lifecycle.setCurrentState(Lifecycle.State.DESTROYED);
+
+        assertEquals(0, registry.getActiveListenerCount());
+        assertEquals(0, registry.getActiveListenerCount("/chats/a_b"));
+        assertEquals(3, detached);
+        assertEquals(0, owner.lifecycle.getObserverCount());
+    }
+
+    @Test
+    public void resumingDoesNotAddListeners() {
+        bind("/users/u1/contacts");
+        for (int i = 0; i < 10; i++) {
+            owner.lifecycle.setCurrentState(Lifecycle.State.STARTED);
+            owner.lifecycle.setCurrentState(Lifecycle.State.RESUMED);
+        }
+
+        assertEquals(1, registry.getActiveListenerCount());
+        assertEquals(1, owner.lifecycle.getObserverCount());
+    }
+
+    @Test
+    public void removedEarly_isCountedDownOnce() {
+        ListenerRegistry.Registration registration = bind("/chats/a_b");
+
+        registration.remove();
+        registration.remove();
+        owner.lifecycle.setCurrentState(Lifecycle.State.DESTROYED);
+
+        assertEquals(0, registry.getActiveListenerCount());
+        assertEquals(1, detached);
+    }
+
+    @Test
+    public void bindingToADestroyedOwner_detachesAtOnce() {
+        owner.lifecycle.setCurrentState(Lifecycle.State.DESTROYED);
+
+        bind("/chats/a_b");
+
+        assertEquals(0, registry.getActiveListenerCount());
+        assertEquals(1, detached);
+    }
+
+    private ListenerRegistry.Registration bind(String path) {
+        ListenerRegistry.Registration registration = registry.track(path, () -> detached++);
+        registry.bindToLifecycle(owner, registration::remove);
+        return registration;
+    }
+
+    /**
+     * A lifecycle owner whose state the test moves by hand.
+     */
+    private static class TestOwner implements LifecycleOwner {
+        final LifecycleRegistry lifecycle = LifecycleRegistry.createUnsafe(this); // No main thread check
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return lifecycle;
+        }
+    }
+}
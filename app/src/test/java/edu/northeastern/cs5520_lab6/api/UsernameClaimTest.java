@@ -0,0 +1,226 @@
+package edu.northeastern.cs5520_lab6.api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.northeastern.cs5520_lab6.contacts.User;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the claim and rollback path of {@link UsernameClaim} against an in-memory registry. The
+ * Firebase transaction itself is not run here; its decision, {@link UsernameClaim#canClaim}, is
+ * tested directly and shared with the in-memory registry.
+ */
+public class UsernameClaimTest {
+    private FakeRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new FakeRegistry();
+    }
+
+    @Test
+    public void freeName_isClaimedAndProfileWritten() {
+        RecordingListener listener = register(user("u1", "Bob"));
+
+        assertEquals("registered", listener.outcome);
+        assertEquals("u1", registry.usernames.get("bob"));
+        assertTrue(registry.profiles.containsKey("u1"));
+    }
+
+    @Test
+    public void nameClaimedByAnotherUser_isTaken() {
+        registry.usernames.put("bob", "u1");
+
+        RecordingListener listener = register(user("u2", "bob"));
+
+        assertEquals("taken", listener.outcome);
+        assertEquals("u1", registry.usernames.get("bob"));
+        assertFalse(registry.profiles.containsKey("u2"));
+    }
+
+    @Test
+    public void nameOfLegacyUser_isTakenWithoutClaiming() {
+        registry.legacyUsernames.put("legacy", "bob");
+
+        RecordingListener listener = register(user("u2", "bob"));
+
+        assertEquals("taken", listener.outcome);
+        assertNull(registry.usernames.get("bob"));
+        assertEquals(0, registry.claims);
+    }
+
+    @Test
+    public void legacyNameInOtherCase_isTaken() {
+        registry.legacyUsernames.put("legacy", "alice");
+
+        RecordingListener listener = register(user("u2", " Alice"));
+
+        assertEquals("taken", listener.outcome);
+        assertEquals(0, registry.claims);
+    }
+
+    @Test
+    public void failedProfileWrite_releasesTheClaim() {
+        registry.failProfileWrites = true;
+
+        RecordingListener listener = register(user("u1", "bob"));
+
+        assertEquals("failed", listener.outcome);
+        assertNull(registry.usernames.get("bob"));
+    }
+
+    @Test
+    public void failedLegacyLookup_claimsNothing() {
+        registry.failLegacyLookups = true;
+
+        RecordingListener listener = register(user("u1", "bob"));
+
+        assertEquals("failed", listener.outcome);
+        assertEquals(0, registry.claims);
+    }
+
+    @Test
+    public void racingSignUps_exactlyOneWins() {
+        // Both pass the legacy check before either claims, as two devices would. The claims are
+        // decided by canClaim in order, as the transaction retries would settle them
+        registry.deferClaims = true;
+        RecordingListener first = register(user("u1", "bob"));
+        RecordingListener second = register(user("u2", "Bob"));
+        registry.runDeferredClaims();
+
+        List<String> outcomes = new ArrayList<>();
+        outcomes.add(first.outcome);
+        outcomes.add(second.outcome);
+        Collections.sort(outcomes);
+        assertEquals("[registered, taken]", outcomes.toString());
+        assertEquals("u1", registry.usernames.get("bob"));
+    }
+
+    @Test
+    public void claimDecision_allowsOnlyAFreeOrOwnEntry() {
+        assertTrue(UsernameClaim.canClaim(null, "u1"));
+        assertTrue(UsernameClaim.canClaim("u1", "u1"));
+        assertFalse(UsernameClaim.canClaim("u2", "u1"));
+    }
+
+    @Test
+    public void availability_reportsLegacyOwners() {
+        registry.legacyUsernames.put("legacy", "bob");
+        UsernameClaim claim = new UsernameClaim(registry);
+        List<UsernameClaim.Availability> answers = new ArrayList<>();
+
+        claim.checkAvailable("BOB", false, answers::add);
+        claim.checkAvailable("alice", false, answers::add);
+        claim.checkAvailable("alice", true, answers::add);
+
+        assertEquals("[TAKEN, AVAILABLE, TAKEN]", answers.toString());
+    }
+
+    @Test
+    public void availability_isUnknownWhenLegacyUsersCannotBeRead() {
+        registry.failLegacyLookups = true;
+        List<UsernameClaim.Availability> answers = new ArrayList<>();
+
+        new UsernameClaim(registry).checkAvailable("bob", false, answers::add);
+
+        assertEquals("[UNKNOWN]", answers.toString());
+    }
+
+    private RecordingListener register(User user) {
+        RecordingListener listener = new RecordingListener();
+        new UsernameClaim(registry).register(user, listener);
+        return listener;
+    }
+
+    private static User user(String userId, String username) {
+        return new User(userId, "Name", username, userId + "@example.com", "", "");
+    }
+
+    /**
+     * Records the outcome of a registration.
+     */
+    private static class RecordingListener implements UsernameClaim.Listener {
+        String outcome;
+
+        @Override
+        public void onRegistered() {
+            outcome = "registered";
+        }
+
+        @Override
+        public void onUsernameTaken() {
+            outcome = "taken";
+        }
+
+        @Override
+        public void onFailed() {
+            outcome = "failed";
+        }
+    }
+
+    /**
+     * A registry held in maps, answering synchronously. Legacy lookups return every legacy user,
+     * leaving the name comparison to the claim. Claims are compare-and-set with the same decision
+     * as the Firebase transaction, and can be deferred to interleave two registrations.
+     */
+    private static class FakeRegistry implements UsernameClaim.Registry {
+        final Map<String, String> usernames = new HashMap<>(); // usernames/{key}
+        final Map<String, String> legacyUsernames = new HashMap<>(); // users/{uid}/username outside the registry
+        final Map<String, User> profiles = new HashMap<>();
+        final List<Runnable> deferred = new ArrayList<>();
+        boolean failProfileWrites;
+        boolean failLegacyLookups;
+        boolean deferClaims;
+        int claims;
+
+        @Override
+        public void findLegacyOwners(String username, UsernameClaim.Step<Map<String, String>> step) {
+            step.onDone(failLegacyLookups ? null : new HashMap<>(legacyUsernames));
+        }
+
+        @Override
+        public void claim(String key, String userId, UsernameClaim.Step<UsernameClaim.ClaimResult> step) {
+            claims++;
+            Runnable claim = () -> {
+                if (UsernameClaim.canClaim(usernames.get(key), userId)) {
+                    usernames.put(key, userId);
+                    step.onDone(UsernameClaim.ClaimResult.CLAIMED);
+                } else {
+                    step.onDone(UsernameClaim.ClaimResult.TAKEN);
+                }
+            };
+            if (deferClaims) {
+                deferred.add(claim);
+            } else {
+                claim.run();
+            }
+        }
+
+        @Override
+        public void release(String key) {
+            usernames.remove(key);
+        }
+
+        @Override
+        public void writeProfile(User user, UsernameClaim.Step<Boolean> step) {
+            if (!failProfileWrites) profiles.put(user.getUserId(), user);
+            step.onDone(!failProfileWrites);
+        }
+
+        void runDeferredClaims() {
+            for (Runnable claim : deferred) claim.run();
+            deferred.clear();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package edu.northeastern.cs5520_lab6.main;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import edu.northeastern.cs5520_lab6.messages.Chat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that {@link RecentChats} stays in order of last activity, and that the updates it reports
+ * keep a copy of the list in step, under many random updates.
+ */
+public class RecentChatsTest {
+    private static final int CHATS = 3000;
+    private static final int UPDATES = 5000;
+
+    private final Random random = new Random(5520); // Fixed seed, so a failure can be reproduced
+    private final List<String> shown = new ArrayList<>(); // Chat ids as an adapter would show them
+    private final Map<String, Chat> latest = new HashMap<>(); // The last version put of every chat
+    private RecentChats chats;
+    private int updatesReported;
+
+    @Before
+    public void setUp() {
+        chats = new RecentChats(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                updatesReported++;
+                for (int i = 0; i < count; i++) {
+                    shown.add(position + i, chats.get(position + i).getId());
+                }
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                updatesReported++;
+                for (int i = 0; i < count; i++) {
+                    shown.remove(position);
+                }
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                updatesReported++;
+                shown.add(toPosition, shown.remove(fromPosition));
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                updatesReported++;
+            }
+        });
+    }
+
+    @Test
+    public void randomUpdates_keepTheListInOrder() {
+        for (int i = 0; i < CHATS; i++) {
+            put(chat("chat" + i, random.nextInt(1_000_000)));
+        }
+        assertInOrder();
+
+        for (int i = 0; i < UPDATES; i++) {
+            String chatId = "chat" + random.nextInt(CHATS);
+            int action = random.nextInt(10);
+            if (action == 0) {
+                chats.remove(chatId);
+                latest.remove(chatId);
+            } else if (action == 1) {
+                // Same time as another chat, so the order falls back to the chat id
+                Chat other = chats.get(random.nextInt(chats.size()));
+                put(chat(chatId, other.getTimestamp()));
+            } else {
+                put(chat(chatId, 1_000_000 + i)); // A new message
+            }
+            assertInOrder();
+        }
+    }
+
+    @Test
+    public void newMessage_isReportedAsOneChangeAndOneMove() {
+        for (int i = 0; i < CHATS; i++) {
+            put(chat("chat" + i, i));
+        }
+        for (int i = 0; i < UPDATES; i++) {
+            updatesReported = 0;
+            put(chat("chat" + random.nextInt(CHATS), CHATS + i));
+            assertTrue("Reported " + updatesReported + " updates", updatesReported <= 2);
+            assertInOrder();
+        }
+    }
+
+    @Test
+    public void putAbsent_keepsChatsAlreadyInTheList() {
+        Chat first = chat("a", 10);
+        put(first);
+        List<Chat> batch = new ArrayList<>();
+        batch.add(chat("a", 5));
+        batch.add(chat("b", 20));
+        batch.add(chat("c", 1));
+
+        chats.putAbsent(batch);
+
+        assertEquals(3, chats.size());
+        assertEquals("b", chats.get(0).getId());
+        assertSame(first, chats.get(1));
+        assertEquals("c", chats.get(2).getId());
+    }
+
+    private void put(Chat chat) {
+        chats.put(chat);
+        latest.put(chat.getId(), chat);
+    }
+
+    /**
+     * Checks that the list holds the latest version of every chat exactly once, in display
+     * order, and that the reported updates produced the same order.
+     */
+    private void assertInOrder() {
+        assertEquals(latest.size(), chats.size());
+        for (int i = 0; i < chats.size(); i++) {
+            Chat chat = chats.get(i);
+            assertSame(latest.get(chat.getId()), chat);
+            if (i > 0) {
+                assertTrue("Out of order at " + i, RecentChats.BY_RECENCY.compare(chats.get(i - 1), chat) < 0);
+            }
+            assertEquals(chat.getId(), shown.get(i));
+        }
+        assertEquals(chats.size(), shown.size());
+    }
+
+    private static Chat chat(String chatId, long timestamp) {
+        return new Chat(chatId, null, "Name", "Message " + timestamp, timestamp, null);
+    }
+}
@@ -0,0 +1,133 @@
+package edu.northeastern.cs5520_lab6.stickers;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the id lookup rules of {@link StickerCatalog}, and checks them against the linear scan of
+ * the sticker enum they replaced.
+ */
+public class StickerCatalogTest {
+    private static final int LARGE_CATALOG = 2000;
+
+    @Test
+    public void numericId_acceptsOnlyCanonicalSmallNumbers() {
+        assertEquals(0, StickerCatalog.numericId("0"));
+        assertEquals(7, StickerCatalog.numericId("7"));
+        assertEquals(65535, StickerCatalog.numericId("65535"));
+        assertEquals(-1, StickerCatalog.numericId("65536")); // Too large for the array
+        assertEquals(-1, StickerCatalog.numericId("01"));
+        assertEquals(-1, StickerCatalog.numericId("00"));
+        assertEquals(-1, StickerCatalog.numericId("-1"));
+        assertEquals(-1, StickerCatalog.numericId("+1"));
+        assertEquals(-1, StickerCatalog.numericId("1a"));
+        assertEquals(-1, StickerCatalog.numericId(""));
+        assertEquals(-1, StickerCatalog.numericId("123456"));
+    }
+
+    @Test
+    public void lookups_useTheArrayAndTheMapFallback() {
+        StickerCatalog catalog = catalog(
+                entry("1", "sticker1", 0.99),
+                entry("65535", "largest_dense", 0.5),
+                entry("65536", "too_large", 0.25),
+                entry("party", "party", 1.5));
+
+        assertEquals("sticker1", catalog.getDrawableName("1"));
+        assertEquals("largest_dense", catalog.getDrawableName("65535"));
+        assertEquals("too_large", catalog.getDrawableName("65536"));
+        assertEquals("party", catalog.getDrawableName("party"));
+        assertEquals(1.5, catalog.getCost("party"), 0);
+        assertEquals(0.25, catalog.getCost("65536"), 0);
+    }
+
+    @Test
+    public void zeroPaddedId_isNotTheSameSticker() {
+        StickerCatalog catalog = catalog(entry("1", "one", 0.99), entry("01", "zero_one", 0.5));
+
+        assertEquals("one", catalog.getDrawableName("1"));
+        assertEquals("zero_one", catalog.getDrawableName("01"));
+        assertEquals(0.5, catalog.getCost("01"), 0);
+        assertFalse(catalog(entry("1", "one", 0.99)).contains("01"));
+    }
+
+    @Test
+    public void unknownIds_resolveToTheDefaultSticker() {
+        StickerCatalog catalog = catalog(entry("1", "sticker1", 0.99), entry("3", "sticker3", 0.99));
+
+        assertEquals("default_sticker", catalog.getDrawableName("2")); // Gap in the array
+        assertEquals("default_sticker", catalog.getDrawableName("4")); // Past the end of the array
+        assertEquals("default_sticker", catalog.getDrawableName("nope"));
+        assertEquals("default_sticker", catalog.getDrawableName(null));
+        assertEquals(0, catalog.getCost("4"), 0);
+        assertFalse(catalog.contains(null));
+    }
+
+    @Test
+    public void builtinPrefix_andDuplicates() {
+        StickerCatalog catalog = catalog(entry("1", "first", 0.99), entry("1", "duplicate", 5), null, entry(null, "no_id", 1));
+
+        assertEquals("first", catalog.getDrawableName(StickerKey.BUILTIN_PACK + ":1"));
+        assertTrue(catalog.contains("1"));
+        assertEquals(0.99, catalog.getCost("1"), 0);
+    }
+
+    @Test
+    public void lookups_matchTheLinearScan() {
+        List<StickerCatalog.ManifestEntry> entries = new ArrayList<>();
+        String[] legacyIds = new String[LARGE_CATALOG];
+        for (int i = 0; i < LARGE_CATALOG; i++) {
+            legacyIds[i] = String.valueOf(i + 1);
+            entries.add(entry(legacyIds[i], "sticker" + (i + 1), 0.99));
+        }
+        StickerCatalog catalog = new StickerCatalog(null, "test", entries);
+        String[] queries = new String[LARGE_CATALOG + 4];
+        for (int i = 0; i < LARGE_CATALOG; i++) {
+            queries[i] = String.valueOf(i + 1);
+        }
+        queries[LARGE_CATALOG] = "01";
+        queries[LARGE_CATALOG + 1] = "0";
+        queries[LARGE_CATALOG + 2] = String.valueOf(LARGE_CATALOG + 1);
+        queries[LARGE_CATALOG + 3] = "sticker";
+
+        for (String query : queries) {
+            int legacy = legacyIndexOf(legacyIds, query);
+            assertEquals(query, legacy == -1 ? "default_sticker" : "sticker" + (legacy + 1), catalog.getDrawableName(query));
+            assertEquals(query, legacy != -1, catalog.contains(query));
+        }
+    }
+
+    /**
+     * The lookup of the former {@code StickerEnum.getResourceIdById}: parse the id, then compare
+     * it with every sticker's id, over a copy of the constants as {@code values()} makes.
+     *
+     * @return The index of the matching id, or -1.
+     */
+    private static int legacyIndexOf(String[] legacyIds, String id) {
+        try {
+            Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        String[] values = legacyIds.clone();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(id)) return i;
+        }
+        return -1;
+    }
+
+    private static StickerCatalog catalog(StickerCatalog.ManifestEntry... entries) {
+        return new StickerCatalog(null, "test", Arrays.asList(entries));
+    }
+
+    private static StickerCatalog.ManifestEntry entry(String id, String drawableName, double cost) {
+        return new StickerCatalog.ManifestEntry(id, drawableName, cost);
+    }
+}
@@ -0,0 +1,80 @@
+package edu.northeastern.cs5520_lab6.stickers;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests reading the index of sticker pack files.
+ */
+public class StickerPackFileTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void open_readsTheIndex() throws IOException {
+        byte[] pack = new StickerPackFixture()
+                .add("wave", 0.5, new byte[] {1, 2, 3})
+                .add("cat", 1.25, new byte[] {4})
+                .toBytes();
+
+        StickerPackFile file = StickerPackFile.open("cats", write(pack));
+
+        assertEquals("cats", file.getPackId());
+        assertEquals(Arrays.asList("cats:wave", "cats:cat"), file.getStickerKeys());
+        assertTrue(file.contains("cat"));
+        assertFalse(file.contains("dog"));
+        assertEquals(1.25, file.getCost("cat"), 0);
+        assertEquals(-1, file.getCost("dog"), 0);
+    }
+
+    @Test
+    public void open_rejectsAnUnknownFormat() throws IOException {
+        byte[] pack = new StickerPackFixture().add("wave", 0.5, new byte[] {1}).toBytes();
+        pack[0] = 'X';
+
+        assertRejected(pack);
+    }
+
+    @Test
+    public void open_rejectsATruncatedIndex() throws IOException {
+        byte[] pack = new StickerPackFixture().add("wave", 0.5, new byte[] {1}).toBytes();
+
+        assertRejected(Arrays.copyOf(pack, 20));
+    }
+
+    @Test
+    public void open_rejectsAnImageOutsideTheFile() throws IOException {
+        byte[] pack = new StickerPackFixture().add("wave", 0.5, new byte[] {1, 2, 3}).toBytes();
+
+        assertRejected(Arrays.copyOf(pack, pack.length - 1));
+    }
+
+    private void assertRejected(byte[] pack) throws IOException {
+        File file = write(pack);
+        try {
+            StickerPackFile.open("cats", file);
+            fail("Opened an invalid pack");
+        } catch (IOException expected) {
+            // The pack is rejected
+        }
+    }
+
+    private File write(byte[] bytes) throws IOException {
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+        return file;
+    }
+}
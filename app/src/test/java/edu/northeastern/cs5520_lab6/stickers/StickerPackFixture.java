@@ -0,0 +1,87 @@
+package edu.northeastern.cs5520_lab6.stickers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds sticker pack files in the format read by {@link StickerPackFile}, for tests.
+ */
+class StickerPackFixture {
+    private final List<String> items = new ArrayList<>();
+    private final List<Double> costs = new ArrayList<>();
+    private final List<byte[]> images = new ArrayList<>();
+
+    /**
+     * Adds a sticker to the pack.
+     *
+     * @param itemId The item id.
+     * @param cost   The cost per use.
+     * @param image  The image bytes; need not be a real image.
+     * @return This fixture.
+     */
+    StickerPackFixture add(String itemId, double cost, byte[] image) {
+        items.add(itemId);
+        costs.add(cost);
+        images.add(image);
+        return this;
+    }
+
+    /**
+     * Returns the pack file contents.
+     *
+     * @return The bytes of a valid pack holding the added stickers.
+     */
+    byte[] toBytes() {
+        try {
+            int indexLength = 12;
+            for (String item : items) {
+                indexLength += 2 + item.getBytes(StandardCharsets.UTF_8).length + 8 + 4 + 4;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes); // Big-endian, as the format requires
+            out.writeInt(0x53544B50);
+            out.writeInt(1);
+            out.writeInt(items.size());
+            int offset = indexLength;
+            for (int i = 0; i < items.size(); i++) {
+                byte[] item = items.get(i).getBytes(StandardCharsets.UTF_8);
+                out.writeShort(item.length);
+                out.write(item);
+                out.writeDouble(costs.get(i));
+                out.writeInt(offset);
+                out.writeInt(images.get(i).length);
+                offset += images.get(i).length;
+            }
+            for (byte[] image : images) {
+                out.write(image);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Returns the SHA-256 hash of some bytes, as listed in {@code packs.json}.
+     *
+     * @param bytes The bytes.
+     * @return The hash in lower-case hexadecimal.
+     */
+    static String sha256(byte[] bytes) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package edu.northeastern.cs5520_lab6.stickers;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.NoSuchAlgorithmException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that downloaded sticker packs are only installed once they are verified.
+ */
+public class StickerPackStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private byte[] pack;
+
+    @Before
+    public void setUp() {
+        directory = new File(folder.getRoot(), "sticker_packs"); // Created by the install
+        pack = new StickerPackFixture().add("wave", 0.5, new byte[] {1, 2, 3}).toBytes();
+    }
+
+    @Test
+    public void matchingHash_installsThePack() throws IOException, NoSuchAlgorithmException {
+        StickerPackFile installed = StickerPackStore.installVerified(
+                "cats", new ByteArrayInputStream(pack), StickerPackFixture.sha256(pack), directory);
+
+        assertEquals("cats", installed.getPackId());
+        assertArrayEquals(pack, Files.readAllBytes(new File(directory, "cats.pack").toPath()));
+        assertFalse(new File(directory, "cats.part").exists());
+    }
+
+    @Test
+    public void hashMismatch_isRejectedAndKeepsTheInstalledCopy() throws IOException, NoSuchAlgorithmException {
+        StickerPackStore.installVerified("cats", new ByteArrayInputStream(pack), StickerPackFixture.sha256(pack), directory);
+        byte[] tampered = pack.clone();
+        tampered[tampered.length - 1] ^= 1;
+
+        try {
+            StickerPackStore.installVerified(
+                    "cats", new ByteArrayInputStream(tampered), StickerPackFixture.sha256(pack), directory);
+            fail("Installed a pack that does not match its hash");
+        } catch (IOException expected) {
+            // The download is rejected
+        }
+
+        assertArrayEquals(pack, Files.readAllBytes(new File(directory, "cats.pack").toPath()));
+        assertFalse(new File(directory, "cats.part").exists());
+    }
+
+    @Test
+    public void invalidPackWithMatchingHash_isRejected() throws IOException, NoSuchAlgorithmException {
+        byte[] garbage = {1, 2, 3, 4};
+
+        try {
+            StickerPackStore.installVerified(
+                    "cats", new ByteArrayInputStream(garbage), StickerPackFixture.sha256(garbage), directory);
+            fail("Installed a pack that is not a valid pack file");
+        } catch (IOException expected) {
+            // The download is rejected
+        }
+
+        assertFalse(new File(directory, "cats.pack").exists());
+        assertFalse(new File(directory, "cats.part").exists());
+    }
+}